@@ -0,0 +1,318 @@
+package org.yifeng.spring.boot.blogservice;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpDelete;
+import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPatch;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpPut;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+import org.springframework.boot.context.embedded.EmbeddedWebApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.yifeng.spring.boot.blogservice.controllers.requests.CreateBlogRequest;
+import org.yifeng.spring.boot.blogservice.controllers.requests.PatchBlogsRequest;
+import org.yifeng.spring.boot.blogservice.controllers.requests.UpdateBlogRequest;
+import org.yifeng.spring.boot.blogservice.services.BlogService;
+import org.yifeng.spring.boot.blogservice.services.models.Blog;
+import org.yifeng.spring.boot.blogservice.utils.BenchmarkUtil;
+import org.yifeng.spring.boot.blogservice.utils.CursorUtil;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class BlogServiceLoadRunner {
+
+	private static final String OPTION_PREFIX = "--load.";
+	private static final String LOG_DIRECTORY_PROPERTY = "blog-service.log.directory";
+	private static final int PAGE_LIMIT = 20;
+	private static final int BATCH_SIZE = 10;
+	private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+	private enum Operation {
+		GET_BLOG(45),
+		GET_BLOGS(10),
+		GET_BLOG_SUMMARIES(10),
+		SEARCH_BLOGS(10),
+		CREATE_BLOG(8),
+		CREATE_BLOGS(2),
+		UPDATE_BLOG(8),
+		PATCH_BLOGS(3),
+		DELETE_BLOG(3),
+		DELETE_BLOGS(1);
+
+		private final int weight;
+
+		Operation(int weight) {
+			this.weight = weight;
+		}
+	}
+
+	private final int blogCount;
+	private final int rate;
+	private final int warmupSeconds;
+	private final int durationSeconds;
+	private final int connections;
+	private final int contentLength;
+	private final Path reportPath;
+	private final List<String> applicationArgs;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final Map<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+	private final Map<Operation, LongAdder> clientErrors = new EnumMap<>(Operation.class);
+	private final Map<Operation, LongAdder> serverErrors = new EnumMap<>(Operation.class);
+	private final int totalWeight = Stream.of(Operation.values()).mapToInt(operation -> operation.weight).sum();
+
+	private CloseableHttpClient httpClient;
+	private String baseUrl;
+	private long minBlogId;
+
+	public BlogServiceLoadRunner(Map<String, String> options, List<String> applicationArgs) {
+		this.blogCount = Integer.parseInt(options.getOrDefault("blogs", "10000"));
+		this.rate = Integer.parseInt(options.getOrDefault("rate", "200"));
+		this.warmupSeconds = Integer.parseInt(options.getOrDefault("warmup-seconds", "10"));
+		this.durationSeconds = Integer.parseInt(options.getOrDefault("duration-seconds", "60"));
+		this.connections = Integer.parseInt(options.getOrDefault("connections", "64"));
+		this.contentLength = Integer.parseInt(options.getOrDefault("content-length", "2000"));
+		this.reportPath = Paths.get(options.getOrDefault("report", "target/load-test-report.txt"));
+		this.applicationArgs = applicationArgs;
+		for (Operation operation : Operation.values()) {
+			latencies.put(operation, new ConcurrentHistogram(3));
+			clientErrors.put(operation, new LongAdder());
+			serverErrors.put(operation, new LongAdder());
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		Map<String, String> options = new HashMap<>();
+		List<String> applicationArgs = new ArrayList<>();
+		for (String arg : args) {
+			if (arg.startsWith(OPTION_PREFIX) && arg.contains("=")) {
+				options.put(arg.substring(OPTION_PREFIX.length(), arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+			} else {
+				applicationArgs.add(arg);
+			}
+		}
+		if (System.getProperty(LOG_DIRECTORY_PROPERTY) == null) {
+			System.setProperty(LOG_DIRECTORY_PROPERTY, "target/load-test-log");
+		}
+		new BlogServiceLoadRunner(options, applicationArgs).run();
+		System.exit(0);
+	}
+
+	public void run() throws Exception {
+		List<String> args = new ArrayList<>();
+		args.add("--server.port=0");
+		args.addAll(applicationArgs);
+		ConfigurableApplicationContext applicationContext =
+				BenchmarkUtil.startWebApplication(args.toArray(new String[args.size()]));
+		PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+		connectionManager.setMaxTotal(connections);
+		connectionManager.setDefaultMaxPerRoute(connections);
+		httpClient = HttpClients.custom().setConnectionManager(connectionManager).build();
+		try {
+			int port = ((EmbeddedWebApplicationContext) applicationContext).getEmbeddedServletContainer().getPort();
+			baseUrl = "http://localhost:" + port + "/blogs";
+			seedBlogs(applicationContext.getBean(BlogService.class));
+			long elapsedNanos = driveLoad();
+			writeReport(elapsedNanos);
+		} finally {
+			httpClient.close();
+			applicationContext.close();
+		}
+	}
+
+	private void seedBlogs(BlogService blogService) {
+		Random random = new Random(42L);
+		for (int i = 0; i < blogCount; i += BlogService.MAX_BATCH_SIZE) {
+			List<Blog> blogs = new ArrayList<>();
+			for (int j = i; j < Math.min(i + BlogService.MAX_BATCH_SIZE, blogCount); j++) {
+				blogs.add(new Blog("Title " + j, BenchmarkUtil.randomContent(random, contentLength)));
+			}
+			blogService.createBlogs(blogs);
+		}
+		minBlogId = blogService.getBlogs(0L, 1).getItems().get(0).getId();
+	}
+
+	// Open-loop schedule: latency is measured from each request's intended start time, so queueing
+	// behind a slow server shows up in the histograms instead of silently lowering the offered rate.
+	private long driveLoad() throws InterruptedException {
+		ExecutorService workers = Executors.newFixedThreadPool(connections);
+		long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+		long startNanos = System.nanoTime();
+		long measureStartNanos = startNanos + TimeUnit.SECONDS.toNanos(warmupSeconds);
+		long endNanos = measureStartNanos + TimeUnit.SECONDS.toNanos(durationSeconds);
+		Random random = new Random();
+		for (long intendedNanos = startNanos; intendedNanos < endNanos; intendedNanos += intervalNanos) {
+			long waitNanos = intendedNanos - System.nanoTime();
+			if (waitNanos > 0) {
+				LockSupport.parkNanos(waitNanos);
+			}
+			Operation operation = nextOperation(random);
+			long scheduledNanos = intendedNanos;
+			boolean measured = intendedNanos >= measureStartNanos;
+			workers.execute(() -> {
+				int status = execute(operation);
+				if (measured) {
+					latencies.get(operation).recordValue(System.nanoTime() - scheduledNanos);
+					if (status < 0 || status >= 500) {
+						serverErrors.get(operation).increment();
+					} else if (status >= 400) {
+						clientErrors.get(operation).increment();
+					}
+				}
+			});
+		}
+		workers.shutdown();
+		workers.awaitTermination(1, TimeUnit.MINUTES);
+		return Math.max(System.nanoTime(), endNanos) - measureStartNanos;
+	}
+
+	private Operation nextOperation(Random random) {
+		int weight = random.nextInt(totalWeight);
+		for (Operation operation : Operation.values()) {
+			weight -= operation.weight;
+			if (weight < 0) {
+				return operation;
+			}
+		}
+		throw new IllegalStateException("No operation for weight: " + weight);
+	}
+
+	private int execute(Operation operation) {
+		try (CloseableHttpResponse httpResponse = httpClient.execute(toRequest(operation))) {
+			EntityUtils.consume(httpResponse.getEntity());
+			return httpResponse.getStatusLine().getStatusCode();
+		} catch (IOException e) {
+			return -1;
+		}
+	}
+
+	private HttpUriRequest toRequest(Operation operation) throws JsonProcessingException {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		switch (operation) {
+		case GET_BLOG:
+			return new HttpGet(baseUrl + "/" + randomBlogId());
+		case GET_BLOGS:
+			return new HttpGet(baseUrl + "?cursor=" + CursorUtil.encode(randomBlogId()) + "&limit=" + PAGE_LIMIT);
+		case GET_BLOG_SUMMARIES:
+			return new HttpGet(baseUrl + "?view=summary&cursor=" + CursorUtil.encode(randomBlogId())
+					+ "&limit=" + PAGE_LIMIT);
+		case SEARCH_BLOGS:
+			return new HttpGet(baseUrl + "/search?q=" + BenchmarkUtil.randomWord(random) + "&limit=" + PAGE_LIMIT);
+		case CREATE_BLOG:
+			return withBody(new HttpPost(baseUrl), randomCreateBlogRequest(random));
+		case CREATE_BLOGS:
+			List<CreateBlogRequest> createBlogRequests = new ArrayList<>();
+			for (int i = 0; i < BATCH_SIZE; i++) {
+				createBlogRequests.add(randomCreateBlogRequest(random));
+			}
+			return withBody(new HttpPost(baseUrl + "/batch"), createBlogRequests);
+		case UPDATE_BLOG:
+			return withBody(new HttpPut(baseUrl + "/" + randomBlogId()), new UpdateBlogRequest(
+					"Updated " + BenchmarkUtil.randomWord(random), BenchmarkUtil.randomContent(random, contentLength)));
+		case PATCH_BLOGS:
+			return withBody(new HttpPatch(baseUrl + "/batch"), new PatchBlogsRequest(
+					randomBlogIds().boxed().collect(Collectors.toList()), "Patched " + BenchmarkUtil.randomWord(random), null));
+		case DELETE_BLOG:
+			return new HttpDelete(baseUrl + "/" + randomBlogId());
+		case DELETE_BLOGS:
+			return new HttpDelete(baseUrl + "?ids="
+					+ randomBlogIds().mapToObj(String::valueOf).collect(Collectors.joining(",")));
+		default:
+			throw new IllegalArgumentException("Unsupported operation: " + operation);
+		}
+	}
+
+	private CreateBlogRequest randomCreateBlogRequest(Random random) {
+		return new CreateBlogRequest("Created " + BenchmarkUtil.randomWord(random),
+				BenchmarkUtil.randomContent(random, contentLength));
+	}
+
+	private HttpUriRequest withBody(HttpEntityEnclosingRequestBase request, Object body) throws JsonProcessingException {
+		request.setEntity(new StringEntity(objectMapper.writeValueAsString(body), ContentType.APPLICATION_JSON));
+		return request;
+	}
+
+	private long randomBlogId() {
+		return minBlogId + ThreadLocalRandom.current().nextInt(blogCount);
+	}
+
+	private LongStream randomBlogIds() {
+		return LongStream.generate(this::randomBlogId).limit(BATCH_SIZE);
+	}
+
+	private void writeReport(long elapsedNanos) throws IOException {
+		if (reportPath.getParent() != null) {
+			Files.createDirectories(reportPath.getParent());
+		}
+		double elapsedSeconds = elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1);
+		Histogram total = new Histogram(3);
+		try (PrintStream report = new PrintStream(new FileOutputStream(reportPath.toFile()), true,
+				StandardCharsets.UTF_8.name())) {
+			report.printf("blogs=%d rate=%d/s warmup=%ds duration=%ds connections=%d content-length=%d%n",
+					blogCount, rate, warmupSeconds, durationSeconds, connections, contentLength);
+			report.printf("application args=%s%n%n", applicationArgs);
+			report.printf("%-20s %9s %10s %7s %7s %9s %9s %9s %9s%n",
+					"operation", "count", "ops/s", "4xx", "5xx/io", "p50 ms", "p99 ms", "p999 ms", "max ms");
+			for (Operation operation : Operation.values()) {
+				Histogram histogram = latencies.get(operation);
+				total.add(histogram);
+				printRow(report, operation.name(), histogram, elapsedSeconds,
+						clientErrors.get(operation).sum(), serverErrors.get(operation).sum());
+			}
+			printRow(report, "TOTAL", total, elapsedSeconds,
+					clientErrors.values().stream().mapToLong(LongAdder::sum).sum(),
+					serverErrors.values().stream().mapToLong(LongAdder::sum).sum());
+			report.printf("%nTOTAL latency distribution (ms)%n");
+			total.outputPercentileDistribution(report, NANOS_PER_MILLI);
+		}
+		System.out.println(new String(Files.readAllBytes(reportPath), StandardCharsets.UTF_8));
+		System.out.println("Report written to " + reportPath.toAbsolutePath());
+	}
+
+	private void printRow(PrintStream report, String name, Histogram histogram, double elapsedSeconds,
+			long clientErrorCount, long serverErrorCount) {
+		report.printf("%-20s %9d %10.1f %7d %7d %9.2f %9.2f %9.2f %9.2f%n",
+				name,
+				histogram.getTotalCount(),
+				histogram.getTotalCount() / elapsedSeconds,
+				clientErrorCount,
+				serverErrorCount,
+				histogram.getValueAtPercentile(50) / NANOS_PER_MILLI,
+				histogram.getValueAtPercentile(99) / NANOS_PER_MILLI,
+				histogram.getValueAtPercentile(99.9) / NANOS_PER_MILLI,
+				histogram.getMaxValue() / NANOS_PER_MILLI);
+	}
+}
@@ -0,0 +1,108 @@
+package org.yifeng.spring.boot.blogservice.controllers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.context.embedded.EmbeddedWebApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.yifeng.spring.boot.blogservice.services.BlogService;
+import org.yifeng.spring.boot.blogservice.services.models.Blog;
+import org.yifeng.spring.boot.blogservice.utils.BenchmarkUtil;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Dhttp.maxConnections=128")
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(64)
+public class BlogControllerLoadBenchmark {
+
+	private static final int BLOG_COUNT = 10000;
+	private static final int BLOCKING_THREADS = 16;
+	private static final int POOL_CONNECTIONS = 32;
+
+	// Both modes block on the database with the same number of threads: the servlet threads without the executor,
+	// the executor threads with it. Any difference is then down to the async handling, not a larger thread count.
+	@Param({ "false", "true" })
+	private boolean executorEnabled;
+
+	// In-memory H2 answers without any I/O wait, so every statement sleeps inside the JDBC call to simulate a round
+	// trip to a remote database, holding its pooled connection meanwhile. Both caches are off so every read pays it.
+	@Param({ "0", "20" })
+	private long dbLatencyMillis;
+
+	private ConfigurableApplicationContext applicationContext;
+	private String baseUrl;
+	private long minBlogId;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		List<String> args = new ArrayList<>(Arrays.asList(
+				"--server.port=0",
+				"--server.tomcat.max-threads=" + BLOCKING_THREADS,
+				"--server.compression.enabled=false",
+				"--spring.datasource.hikari.maximum-pool-size=" + POOL_CONNECTIONS,
+				"--spring.datasource.hikari.minimum-idle=" + POOL_CONNECTIONS,
+				"--blog-service.executor.enabled=" + executorEnabled,
+				"--blog-service.executor.pool-size=" + BLOCKING_THREADS,
+				"--blog-service.executor.queue-capacity=1024",
+				"--blog-service.cache.enabled=false",
+				"--spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+				"--spring.jpa.properties.hibernate.cache.use_query_cache=false"));
+		args.addAll(Arrays.asList(BenchmarkUtil.simulatedLatencyArgs(dbLatencyMillis)));
+		applicationContext = BenchmarkUtil.startWebApplication(args.toArray(new String[args.size()]));
+		int port = ((EmbeddedWebApplicationContext) applicationContext).getEmbeddedServletContainer().getPort();
+		baseUrl = "http://localhost:" + port + "/blogs/";
+		BlogService blogService = applicationContext.getBean(BlogService.class);
+		String content = new String(new char[2000]).replace("\0", "c");
+		for (int i = 0; i < BLOG_COUNT; i += BlogService.MAX_BATCH_SIZE) {
+			List<Blog> blogs = new ArrayList<>();
+			for (int j = i; j < Math.min(i + BlogService.MAX_BATCH_SIZE, BLOG_COUNT); j++) {
+				blogs.add(new Blog("Title" + j, content));
+			}
+			blogService.createBlogs(blogs);
+		}
+		minBlogId = blogService.getBlogs(0L, 1).getItems().get(0).getId();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		applicationContext.close();
+	}
+
+	@Benchmark
+	public int getBlog() throws IOException {
+		long blogId = minBlogId + ThreadLocalRandom.current().nextInt(BLOG_COUNT);
+		HttpURLConnection httpURLConnection = (HttpURLConnection) new URL(baseUrl + blogId).openConnection();
+		int status = httpURLConnection.getResponseCode();
+		try (InputStream inputStream = status < 400
+				? httpURLConnection.getInputStream() : httpURLConnection.getErrorStream()) {
+			byte[] buffer = new byte[8192];
+			while (inputStream.read(buffer) != -1) {
+			}
+		}
+		return status;
+	}
+}
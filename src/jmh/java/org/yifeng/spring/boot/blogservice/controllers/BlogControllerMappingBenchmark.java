@@ -0,0 +1,60 @@
+package org.yifeng.spring.boot.blogservice.controllers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.yifeng.spring.boot.blogservice.controllers.responses.BlogResponse;
+import org.yifeng.spring.boot.blogservice.services.models.Blog;
+import org.yifeng.spring.boot.blogservice.utils.BenchmarkUtil;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class BlogControllerMappingBenchmark {
+
+	private static final int CONTENT_LENGTH = 2000;
+
+	@Param({ "1", "20", "100" })
+	private int blogCount;
+
+	private BlogController blogController;
+	private List<Blog> blogs;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		blogController = new BlogController();
+		Random random = new Random(42L);
+		blogs = new ArrayList<>();
+		for (int i = 0; i < blogCount; i++) {
+			long epoch = System.currentTimeMillis();
+			blogs.add(new Blog(i, "Title " + i, BenchmarkUtil.randomContent(random, CONTENT_LENGTH), 0L, epoch, epoch));
+		}
+	}
+
+	@Benchmark
+	public BlogResponse toBlogResponse() {
+		return blogController.toBlogResponse(blogs.get(0));
+	}
+
+	@Benchmark
+	public List<BlogResponse> toBlogResponses() {
+		return blogController.toBlogResponses(blogs);
+	}
+}
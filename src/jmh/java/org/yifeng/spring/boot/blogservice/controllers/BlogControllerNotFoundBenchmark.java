@@ -0,0 +1,101 @@
+package org.yifeng.spring.boot.blogservice.controllers;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.yifeng.spring.boot.blogservice.controllers.advices.ExceptionControllerAdvice;
+import org.yifeng.spring.boot.blogservice.services.BlogService;
+import org.yifeng.spring.boot.blogservice.services.exceptions.BlogNotFoundException;
+import org.yifeng.spring.boot.blogservice.services.models.Blog;
+import org.yifeng.spring.boot.blogservice.services.models.BlogVersion;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = {
+		"-Dblog-service.log.directory=target/benchmark-log",
+		"-Dlog4j.configurationFile=log4j2-benchmark-async.xml" })
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 10, time = 2)
+public class BlogControllerNotFoundBenchmark {
+
+	private static final long EXIST_BLOG_ID = 1L;
+	private static final long MISSING_BLOG_ID = 2L;
+
+	@Param({ "blogNotFoundException", "illegalArgumentException" })
+	private String notFoundException;
+
+	private MockMvc mockMvc;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		boolean stackless = "blogNotFoundException".equals(notFoundException);
+		Blog blog = new Blog(EXIST_BLOG_ID, "Title", "Content", 1L, 0L, 0L);
+		BlogService blogService = new BlogService() {
+
+			@Override
+			public BlogVersion getBlogVersion(long blogId) {
+				if (blogId != EXIST_BLOG_ID) {
+					throw stackless
+							? new BlogNotFoundException(blogId)
+							: new IllegalArgumentException("No blog with id: " + blogId);
+				}
+				return new BlogVersion(blog.getVersion(), blog.getLastModifiedEpoch());
+			}
+
+			@Override
+			public Blog getBlog(long blogId) {
+				return blog;
+			}
+		};
+		ReflectionTestUtils.setField(blogService, "maxPendingBlogViews", 10000);
+		blogService.initBlogViewCounter();
+		BlogController blogController = new BlogController();
+		ReflectionTestUtils.setField(blogController, "blogService", blogService);
+		ReflectionTestUtils.setField(blogController, "objectMapper", new ObjectMapper());
+		ReflectionTestUtils.setField(blogController, "blogServiceExecutor", new SyncTaskExecutor());
+		mockMvc = MockMvcBuilders.standaloneSetup(blogController)
+				.setControllerAdvice(new ExceptionControllerAdvice())
+				.build();
+	}
+
+	@Benchmark
+	public int getExistBlog() throws Exception {
+		return perform(get("/blogs/" + EXIST_BLOG_ID)).getResponse().getStatus();
+	}
+
+	@Benchmark
+	public int getMissingBlog() throws Exception {
+		return perform(get("/blogs/" + MISSING_BLOG_ID)).getResponse().getStatus();
+	}
+
+	private MvcResult perform(RequestBuilder requestBuilder) throws Exception {
+		MvcResult mvcResult = mockMvc.perform(requestBuilder).andReturn();
+		if (mvcResult.getRequest().isAsyncStarted()) {
+			mvcResult = mockMvc.perform(asyncDispatch(mvcResult)).andReturn();
+		}
+		return mvcResult;
+	}
+}
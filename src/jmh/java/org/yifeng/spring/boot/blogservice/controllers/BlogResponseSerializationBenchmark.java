@@ -0,0 +1,113 @@
+package org.yifeng.spring.boot.blogservice.controllers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.yifeng.spring.boot.blogservice.controllers.converters.SmileHttpMessageConverter;
+import org.yifeng.spring.boot.blogservice.controllers.responses.BlogResponse;
+import org.yifeng.spring.boot.blogservice.utils.BenchmarkUtil;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class BlogResponseSerializationBenchmark {
+
+	@Param({ "1", "20", "100" })
+	private int blogsPerPage;
+
+	@Param({ "200", "2000", "10000" })
+	private int contentLength;
+
+	private ObjectWriter jsonWriter;
+	private ObjectReader jsonReader;
+	private ObjectWriter smileWriter;
+	private ObjectReader smileReader;
+	private List<BlogResponse> blogResponses;
+	private byte[] json;
+	private byte[] smile;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		TypeReference<List<BlogResponse>> blogResponsesType = new TypeReference<List<BlogResponse>>() {
+		};
+		ObjectMapper jsonMapper = new ObjectMapper();
+		ObjectMapper smileMapper = new SmileHttpMessageConverter().getObjectMapper();
+		jsonWriter = jsonMapper.writerFor(blogResponsesType);
+		jsonReader = jsonMapper.readerFor(JsonNode.class);
+		smileWriter = smileMapper.writerFor(blogResponsesType);
+		smileReader = smileMapper.readerFor(JsonNode.class);
+
+		Random random = new Random(42L);
+		blogResponses = new ArrayList<>();
+		for (int i = 0; i < blogsPerPage; i++) {
+			long epoch = System.currentTimeMillis();
+			blogResponses.add(new BlogResponse(
+					(long) i, "Title " + i, BenchmarkUtil.randomContent(random, contentLength), 0L, epoch, epoch, 0L));
+		}
+
+		json = jsonWriter.writeValueAsBytes(blogResponses);
+		smile = smileWriter.writeValueAsBytes(blogResponses);
+		System.out.println();
+		System.out.println("bytes on wire: json=" + json.length + ", json+gzip=" + gzip(json).length
+				+ ", smile=" + smile.length + ", smile+gzip=" + gzip(smile).length);
+	}
+
+	@Benchmark
+	public byte[] writeJson() throws IOException {
+		return jsonWriter.writeValueAsBytes(blogResponses);
+	}
+
+	@Benchmark
+	public byte[] writeJsonGzip() throws IOException {
+		return gzip(jsonWriter.writeValueAsBytes(blogResponses));
+	}
+
+	@Benchmark
+	public byte[] writeSmile() throws IOException {
+		return smileWriter.writeValueAsBytes(blogResponses);
+	}
+
+	@Benchmark
+	public JsonNode readJson() throws IOException {
+		return jsonReader.readValue(json);
+	}
+
+	@Benchmark
+	public JsonNode readSmile() throws IOException {
+		return smileReader.readValue(smile);
+	}
+
+	private static byte[] gzip(byte[] bytes) throws IOException {
+		ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+		try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(byteArrayOutputStream)) {
+			gzipOutputStream.write(bytes);
+		}
+		return byteArrayOutputStream.toByteArray();
+	}
+}
@@ -0,0 +1,59 @@
+package org.yifeng.spring.boot.blogservice.controllers.advices;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ExceptionControllerAdviceLoggingBenchmark {
+
+	private static final String LOG_DIRECTORY = "-Dblog-service.log.directory=target/benchmark-log";
+	private static final String SYNC_CONFIGURATION = "-Dlog4j.configurationFile=log4j2-benchmark-sync.xml";
+	private static final String ASYNC_CONFIGURATION = "-Dlog4j.configurationFile=log4j2-benchmark-async.xml";
+	private static final String SYNC_CONTEXT_SELECTOR =
+			"-Dlog4j2.contextSelector=org.apache.logging.log4j.core.selector.ClassLoaderContextSelector";
+	private static final String BLOCK_WHEN_FULL = "-Dlog4j2.asyncQueueFullPolicy=Default";
+
+	private static final Logger logger = LogManager.getLogger();
+
+	private final IllegalArgumentException exception = new IllegalArgumentException("No blog with id: 42");
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		LogManager.shutdown();
+	}
+
+	@Benchmark
+	@Fork(value = 1, jvmArgsAppend = { LOG_DIRECTORY, SYNC_CONFIGURATION, SYNC_CONTEXT_SELECTOR })
+	public void warnWithSyncLoggerAndLocation() {
+		logger.warn(exception.getMessage());
+	}
+
+	@Benchmark
+	@Fork(value = 1, jvmArgsAppend = { LOG_DIRECTORY, ASYNC_CONFIGURATION, BLOCK_WHEN_FULL })
+	public void warnWithAsyncLoggerBlockingWhenFull() {
+		logger.warn(exception.getMessage());
+	}
+
+	@Benchmark
+	@Fork(value = 1, jvmArgsAppend = { LOG_DIRECTORY, ASYNC_CONFIGURATION })
+	public void warnWithAsyncLoggerDiscardingWhenFull() {
+		logger.warn(exception.getMessage());
+	}
+}
@@ -0,0 +1,97 @@
+package org.yifeng.spring.boot.blogservice.repositories;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.yifeng.spring.boot.blogservice.repositories.records.BlogRecord;
+import org.yifeng.spring.boot.blogservice.repositories.records.BlogSummaryRecord;
+import org.yifeng.spring.boot.blogservice.repositories.records.BlogVersionRecord;
+import org.yifeng.spring.boot.blogservice.services.BlogService;
+import org.yifeng.spring.boot.blogservice.services.models.Blog;
+import org.yifeng.spring.boot.blogservice.utils.BenchmarkUtil;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class BlogRepositoryBenchmark {
+
+	private static final int BLOG_COUNT = 10000;
+	private static final int BLOGS_PER_PAGE = 20;
+	private static final int CONTENT_LENGTH = 2000;
+
+	@Param({ "false", "true" })
+	private boolean secondLevelCache;
+
+	private ConfigurableApplicationContext applicationContext;
+	private BlogRepository blogRepository;
+	private long minBlogId;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		applicationContext = BenchmarkUtil.startApplication(
+				"--spring.jpa.properties.hibernate.cache.use_second_level_cache=" + secondLevelCache,
+				"--spring.jpa.properties.hibernate.cache.use_query_cache=" + secondLevelCache,
+				"--blog-service.cache.enabled=false");
+		blogRepository = applicationContext.getBean(BlogRepository.class);
+		BlogService blogService = applicationContext.getBean(BlogService.class);
+		Random random = new Random(42L);
+		for (int i = 0; i < BLOG_COUNT; i += BlogService.MAX_BATCH_SIZE) {
+			List<Blog> blogs = new ArrayList<>();
+			for (int j = i; j < Math.min(i + BlogService.MAX_BATCH_SIZE, BLOG_COUNT); j++) {
+				blogs.add(new Blog("Title" + j, BenchmarkUtil.randomContent(random, CONTENT_LENGTH)));
+			}
+			blogService.createBlogs(blogs);
+		}
+		minBlogId = blogService.getBlogs(0L, 1).getItems().get(0).getId();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		applicationContext.close();
+	}
+
+	@Benchmark
+	public BlogRecord findOne() {
+		return blogRepository.findOne(randomBlogId());
+	}
+
+	@Benchmark
+	public BlogVersionRecord findVersionById() {
+		return blogRepository.findVersionById(randomBlogId());
+	}
+
+	@Benchmark
+	public List<BlogRecord> findByIdGreaterThanOrderByIdAsc() {
+		return blogRepository.findByIdGreaterThanOrderByIdAsc(randomBlogId(), new PageRequest(0, BLOGS_PER_PAGE));
+	}
+
+	@Benchmark
+	public List<BlogSummaryRecord> findSummariesByIdGreaterThan() {
+		return blogRepository.findSummariesByIdGreaterThan(randomBlogId(), new PageRequest(0, BLOGS_PER_PAGE));
+	}
+
+	private long randomBlogId() {
+		return minBlogId + ThreadLocalRandom.current().nextInt(BLOG_COUNT);
+	}
+}
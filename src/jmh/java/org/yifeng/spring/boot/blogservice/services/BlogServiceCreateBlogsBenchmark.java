@@ -0,0 +1,68 @@
+package org.yifeng.spring.boot.blogservice.services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.yifeng.spring.boot.blogservice.services.models.Blog;
+import org.yifeng.spring.boot.blogservice.utils.BenchmarkUtil;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class BlogServiceCreateBlogsBenchmark {
+
+	private static final int ROWS_PER_INVOCATION = 500;
+
+	private ConfigurableApplicationContext applicationContext;
+	private BlogService blogService;
+	private List<Blog> blogs;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		applicationContext = BenchmarkUtil.startApplication();
+		blogService = applicationContext.getBean(BlogService.class);
+		blogs = new ArrayList<>();
+		String content = new String(new char[2000]).replace("\0", "c");
+		for (int i = 0; i < ROWS_PER_INVOCATION; i++) {
+			blogs.add(new Blog("Title" + i, content));
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		applicationContext.close();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ROWS_PER_INVOCATION)
+	public void createBlogsOneByOne(Blackhole blackhole) {
+		for (Blog blog : blogs) {
+			blackhole.consume(blogService.createBlog(blog));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ROWS_PER_INVOCATION)
+	public List<Blog> createBlogsInBatch() {
+		return blogService.createBlogs(blogs);
+	}
+}
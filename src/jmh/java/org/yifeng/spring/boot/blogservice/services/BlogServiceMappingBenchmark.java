@@ -0,0 +1,66 @@
+package org.yifeng.spring.boot.blogservice.services;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.yifeng.spring.boot.blogservice.repositories.records.BlogRecord;
+import org.yifeng.spring.boot.blogservice.services.models.Blog;
+import org.yifeng.spring.boot.blogservice.utils.BenchmarkUtil;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class BlogServiceMappingBenchmark {
+
+	private static final int CONTENT_LENGTH = 2000;
+
+	@Param({ "1", "20", "100" })
+	private int blogCount;
+
+	private BlogService blogService;
+	private List<BlogRecord> blogRecords;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		blogService = new BlogService();
+		Random random = new Random(42L);
+		blogRecords = new ArrayList<>();
+		for (int i = 0; i < blogCount; i++) {
+			BlogRecord blogRecord = new BlogRecord("Title " + i, BenchmarkUtil.randomContent(random, CONTENT_LENGTH));
+			ReflectionTestUtils.setField(blogRecord, "id", (long) i);
+			ReflectionTestUtils.setField(blogRecord, "version", 0L);
+			ReflectionTestUtils.setField(blogRecord, "createdDate", new Date());
+			ReflectionTestUtils.setField(blogRecord, "lastModifiedDate", new Date());
+			blogRecords.add(blogRecord);
+		}
+	}
+
+	@Benchmark
+	public Blog toBlog() {
+		return blogService.toBlog(blogRecords.get(0));
+	}
+
+	@Benchmark
+	public List<Blog> toBlogs() {
+		return blogService.toBlogs(blogRecords);
+	}
+}
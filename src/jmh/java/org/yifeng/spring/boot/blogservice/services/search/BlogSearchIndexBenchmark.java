@@ -0,0 +1,69 @@
+package org.yifeng.spring.boot.blogservice.services.search;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.yifeng.spring.boot.blogservice.services.models.KeysetPage;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class BlogSearchIndexBenchmark {
+
+	private static final int VOCABULARY_SIZE = 50000;
+	private static final int WORDS_PER_BLOG = 80;
+
+	@Param({ "100000", "1000000" })
+	private int blogCount;
+
+	private BlogSearchIndex blogSearchIndex;
+	private Random random;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		blogSearchIndex = new BlogSearchIndex();
+		random = new Random(42L);
+		for (long blogId = 1L; blogId <= blogCount; blogId++) {
+			StringBuilder content = new StringBuilder();
+			for (int i = 0; i < WORDS_PER_BLOG; i++) {
+				content.append(word()).append(' ');
+			}
+			blogSearchIndex.index(blogId, word() + " " + word(), content.toString());
+		}
+	}
+
+	@Benchmark
+	public KeysetPage<Long> searchRareTerms() {
+		return blogSearchIndex.search("w" + (5000 + random.nextInt(1000)) + " w" + (20000 + random.nextInt(1000)), 0, 20);
+	}
+
+	@Benchmark
+	public KeysetPage<Long> searchCommonAndRareTerms() {
+		return blogSearchIndex.search("w" + random.nextInt(10) + " w" + (5000 + random.nextInt(1000)), 0, 20);
+	}
+
+	@Benchmark
+	public KeysetPage<Long> searchRareTermsDeepPage() {
+		return blogSearchIndex.search("w" + (500 + random.nextInt(100)) + " w" + (600 + random.nextInt(100)), 200, 20);
+	}
+
+	private String word() {
+		// Zipf-like rank distribution: low ranks are common words, high ranks are rare ones.
+		return "w" + (int) Math.pow(VOCABULARY_SIZE, random.nextDouble());
+	}
+}
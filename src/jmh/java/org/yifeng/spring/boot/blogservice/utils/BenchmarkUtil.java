@@ -0,0 +1,76 @@
+package org.yifeng.spring.boot.blogservice.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.TypeExcludeFilter;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.type.classreading.MetadataReader;
+import org.springframework.core.type.classreading.MetadataReaderFactory;
+import org.yifeng.spring.boot.blogservice.BlogServiceApplication;
+
+public class BenchmarkUtil {
+
+	public static final String H2_URL = "jdbc:h2:mem:benchmark;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+	private static final String URL_ARG = "--spring.datasource.url=";
+	private static final List<String> H2_ARGS = Arrays.asList(
+			"--spring.datasource.username=sa",
+			"--spring.datasource.password=benchmark",
+			"--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+			"--spring.jpa.hibernate.ddl-auto=create-drop");
+	private static final String[] WORDS = {
+			"spring", "boot", "blog", "service", "cache", "query", "index", "latency", "throughput", "the", "a", "of" };
+
+	public static ConfigurableApplicationContext startApplication(String... args) {
+		return startApplication(false, args);
+	}
+
+	public static ConfigurableApplicationContext startWebApplication(String... args) {
+		return startApplication(true, args);
+	}
+
+	// Every statement sleeps inside the JDBC call, holding its pooled connection like a remote database would.
+	public static String[] simulatedLatencyArgs(long latencyMillis) {
+		return new String[] {
+				URL_ARG + SimulatedLatencyDriver.toUrl(latencyMillis, H2_URL),
+				"--spring.datasource.driver-class-name=" + SimulatedLatencyDriver.class.getName() };
+	}
+
+	private static ConfigurableApplicationContext startApplication(boolean webEnvironment, String... args) {
+		List<String> applicationArgs = new ArrayList<>(H2_ARGS);
+		if (Arrays.stream(args).noneMatch(arg -> arg.startsWith(URL_ARG))) {
+			applicationArgs.add(URL_ARG + H2_URL);
+		}
+		applicationArgs.addAll(Arrays.asList(args));
+		return new SpringApplicationBuilder(BlogServiceApplication.class)
+				.web(webEnvironment)
+				.initializers(applicationContext -> applicationContext.getBeanFactory()
+						.registerSingleton(TestClassExcludeFilter.class.getName(), new TestClassExcludeFilter()))
+				.run(applicationArgs.toArray(new String[applicationArgs.size()]));
+	}
+
+	public static String randomContent(Random random, int length) {
+		StringBuilder content = new StringBuilder(length + 16);
+		while (content.length() < length) {
+			content.append(randomWord(random)).append(' ');
+		}
+		return content.substring(0, length);
+	}
+
+	public static String randomWord(Random random) {
+		return WORDS[random.nextInt(WORDS.length)];
+	}
+
+	private static class TestClassExcludeFilter extends TypeExcludeFilter {
+
+		@Override
+		public boolean match(MetadataReader metadataReader, MetadataReaderFactory metadataReaderFactory) {
+			String className = metadataReader.getClassMetadata().getClassName();
+			return className.endsWith("Test") || className.contains("Test$");
+		}
+	}
+}
@@ -0,0 +1,117 @@
+package org.yifeng.spring.boot.blogservice.utils;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+// Wraps another driver as jdbc:latency:<millis>:<url> and sleeps inside every statement execution, so a simulated
+// database round trip holds its pooled connection for as long as a real one would.
+public class SimulatedLatencyDriver implements Driver {
+
+	public static final String URL_PREFIX = "jdbc:latency:";
+
+	static {
+		try {
+			DriverManager.registerDriver(new SimulatedLatencyDriver());
+		} catch (SQLException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	public static String toUrl(long latencyMillis, String url) {
+		return URL_PREFIX + latencyMillis + ":" + url;
+	}
+
+	@Override
+	public Connection connect(String url, Properties info) throws SQLException {
+		if (!acceptsURL(url)) {
+			return null;
+		}
+		String latencyAndUrl = url.substring(URL_PREFIX.length());
+		int separator = latencyAndUrl.indexOf(':');
+		long latencyMillis = Long.parseLong(latencyAndUrl.substring(0, separator));
+		Connection connection = DriverManager.getConnection(latencyAndUrl.substring(separator + 1), info);
+		return latencyMillis == 0L ? connection : proxy(Connection.class, connection, latencyMillis);
+	}
+
+	@Override
+	public boolean acceptsURL(String url) {
+		return url != null && url.startsWith(URL_PREFIX);
+	}
+
+	@Override
+	public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+		return new DriverPropertyInfo[0];
+	}
+
+	@Override
+	public int getMajorVersion() {
+		return 1;
+	}
+
+	@Override
+	public int getMinorVersion() {
+		return 0;
+	}
+
+	@Override
+	public boolean jdbcCompliant() {
+		return false;
+	}
+
+	@Override
+	public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T proxy(Class<T> type, T target, long latencyMillis) {
+		InvocationHandler invocationHandler = (proxy, method, args) -> {
+			if (target instanceof Statement && method.getName().startsWith("execute")) {
+				sleep(latencyMillis);
+			}
+			Object result = invoke(method, target, args);
+			if (result instanceof CallableStatement) {
+				return proxy(CallableStatement.class, (CallableStatement) result, latencyMillis);
+			}
+			if (result instanceof PreparedStatement) {
+				return proxy(PreparedStatement.class, (PreparedStatement) result, latencyMillis);
+			}
+			if (result instanceof Statement) {
+				return proxy(Statement.class, (Statement) result, latencyMillis);
+			}
+			return result;
+		};
+		return (T) Proxy.newProxyInstance(SimulatedLatencyDriver.class.getClassLoader(),
+				new Class<?>[] { type }, invocationHandler);
+	}
+
+	private static Object invoke(Method method, Object target, Object[] args) throws Throwable {
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+
+	private static void sleep(long latencyMillis) throws SQLException {
+		try {
+			Thread.sleep(latencyMillis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException(e);
+		}
+	}
+}
@@ -1,74 +1,433 @@
 package org.yifeng.spring.boot.blogservice.controllers;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
 import java.util.stream.Collectors;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
 
+import org.hibernate.validator.constraints.NotBlank;
+import org.hibernate.validator.constraints.NotEmpty;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StringUtils;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.yifeng.spring.boot.blogservice.controllers.configurations.ExecutorConfiguration;
+import org.yifeng.spring.boot.blogservice.controllers.events.BlogEventBroadcaster;
+import org.yifeng.spring.boot.blogservice.controllers.exceptions.BadRequestException;
+import org.yifeng.spring.boot.blogservice.controllers.exceptions.PreconditionFailedException;
 import org.yifeng.spring.boot.blogservice.controllers.requests.CreateBlogRequest;
+import org.yifeng.spring.boot.blogservice.controllers.requests.GetBlogsRequest;
+import org.yifeng.spring.boot.blogservice.controllers.requests.PatchBlogsRequest;
 import org.yifeng.spring.boot.blogservice.controllers.requests.UpdateBlogRequest;
+import org.yifeng.spring.boot.blogservice.controllers.responses.BlogChangesResponse;
 import org.yifeng.spring.boot.blogservice.controllers.responses.BlogResponse;
+import org.yifeng.spring.boot.blogservice.controllers.responses.BlogSummaryResponse;
+import org.yifeng.spring.boot.blogservice.controllers.responses.BulkOperationResponse;
+import org.yifeng.spring.boot.blogservice.controllers.responses.GetBlogsResponse;
 import org.yifeng.spring.boot.blogservice.services.BlogService;
 import org.yifeng.spring.boot.blogservice.services.models.Blog;
+import org.yifeng.spring.boot.blogservice.services.models.BlogChangePosition;
+import org.yifeng.spring.boot.blogservice.services.models.BlogChanges;
+import org.yifeng.spring.boot.blogservice.services.models.BlogPatch;
+import org.yifeng.spring.boot.blogservice.services.models.BlogSummary;
+import org.yifeng.spring.boot.blogservice.services.models.BlogVersion;
+import org.yifeng.spring.boot.blogservice.services.models.KeysetPage;
+import org.yifeng.spring.boot.blogservice.utils.CursorUtil;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 
 @RestController
 @RequestMapping("/blogs")
 @Validated
 public class BlogController {
 
+	private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+	private static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+	private static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
+
 	@Autowired
 	private BlogService blogService;
 
+	@Autowired
+	private BlogEventBroadcaster blogEventBroadcaster;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	@Qualifier(ExecutorConfiguration.BLOG_SERVICE_EXECUTOR)
+	private TaskExecutor blogServiceExecutor;
+
 	@GetMapping
-	public List<BlogResponse> getBlogs() {
-		return toBlogResponses(blogService.getBlogs());
+	public CompletableFuture<ResponseEntity<List<BlogResponse>>> getBlogs(
+			@RequestParam(value = "cursor", required = false) String cursor,
+			@Min(1) @Max(100) @RequestParam(value = "limit", defaultValue = "20") int limit) {
+		long afterBlogId = decodeCursor(cursor);
+		return supplyAsync(() -> {
+			KeysetPage<Blog> blogPage = blogService.getBlogs(afterBlogId, limit);
+			return toPageResponseEntity(blogPage, toBlogResponses(blogPage.getItems()),
+					Blog::getId, Blog::getLastModifiedEpoch, true);
+		});
+	}
+
+	@GetMapping(params = "ids")
+	public CompletableFuture<GetBlogsResponse> getBlogsByIds(
+			@NotEmpty @Size(max = BlogService.MAX_BATCH_SIZE) @RequestParam(value = "ids") List<Long> blogIds) {
+		return supplyAsync(() -> toGetBlogsResponse(blogIds, blogService.getBlogsByIds(blogIds)));
+	}
+
+	@PostMapping("/lookup")
+	public CompletableFuture<GetBlogsResponse> lookupBlogs(
+			@Valid @NotNull @RequestBody GetBlogsRequest getBlogsRequest) {
+		List<Long> blogIds = getBlogsRequest.getIds();
+		return supplyAsync(() -> toGetBlogsResponse(blogIds, blogService.getBlogsByIds(blogIds)));
+	}
+
+	// More specific than both the ids and the view mappings, so their combination is a 400 instead of ambiguous.
+	@GetMapping(params = { "ids", "view" })
+	public void rejectBlogsByIdsWithView(@RequestParam(value = "view") String view) {
+		throw new BadRequestException("Parameter ids can not be combined with view: " + view);
+	}
+
+	@GetMapping(params = "view=summary")
+	public CompletableFuture<ResponseEntity<List<BlogSummaryResponse>>> getBlogSummaries(
+			@RequestParam(value = "cursor", required = false) String cursor,
+			@Min(1) @Max(100) @RequestParam(value = "limit", defaultValue = "20") int limit) {
+		long afterBlogId = decodeCursor(cursor);
+		return supplyAsync(() -> {
+			KeysetPage<BlogSummary> blogSummaryPage = blogService.getBlogSummaries(afterBlogId, limit);
+			return toPageResponseEntity(blogSummaryPage, toBlogSummaryResponses(blogSummaryPage.getItems()),
+					BlogSummary::getId, BlogSummary::getLastModifiedEpoch, false);
+		});
+	}
+
+	@GetMapping("/search")
+	public CompletableFuture<ResponseEntity<List<BlogResponse>>> searchBlogs(
+			@NotBlank @RequestParam(value = "q") String query,
+			@RequestParam(value = "cursor", required = false) String cursor,
+			@Min(1) @Max(100) @RequestParam(value = "limit", defaultValue = "20") int limit) {
+		long offset = decodeCursor(cursor);
+		if (offset < 0 || offset > BlogService.MAX_SEARCH_OFFSET) {
+			throw new BadRequestException("Invalid cursor: " + cursor);
+		}
+		return supplyAsync(() -> {
+			KeysetPage<Blog> blogPage = blogService.searchBlogs(query, (int) offset, limit);
+			ResponseEntity.BodyBuilder bodyBuilder = ResponseEntity.ok();
+			// Pages past the deepest offset a cursor may carry are not handed out.
+			if (blogPage.hasNext() && offset + limit <= BlogService.MAX_SEARCH_OFFSET) {
+				bodyBuilder.header(NEXT_CURSOR_HEADER, CursorUtil.encode(offset + limit));
+			}
+			return bodyBuilder.body(toBlogResponses(blogPage.getItems()));
+		});
+	}
+
+	@GetMapping("/changes")
+	public CompletableFuture<BlogChangesResponse> getBlogChanges(
+			@Min(0) @RequestParam(value = "since", defaultValue = "0") long since,
+			@RequestParam(value = "cursor", required = false) String cursor,
+			@Min(1) @Max(100) @RequestParam(value = "limit", defaultValue = "20") int limit) {
+		BlogChangePosition after = cursor == null
+				? new BlogChangePosition(since, Long.MAX_VALUE, since, Long.MAX_VALUE)
+				: decodeChangeCursor(cursor);
+		return supplyAsync(() -> toBlogChangesResponse(blogService.getBlogChanges(after, limit)));
+	}
+
+	@GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public SseEmitter streamBlogEvents(
+			@RequestHeader(value = LAST_EVENT_ID_HEADER, required = false) String lastEventId) {
+		return blogEventBroadcaster.subscribe(lastEventId);
+	}
+
+	@GetMapping(value = "/export", produces = APPLICATION_NDJSON_VALUE)
+	public void exportBlogs(HttpServletResponse httpServletResponse) throws IOException {
+		httpServletResponse.setContentType(APPLICATION_NDJSON_VALUE);
+		ObjectWriter objectWriter = objectMapper.writerFor(BlogResponse.class)
+				.without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+		try (JsonGenerator jsonGenerator = objectMapper.getFactory()
+				.createGenerator(httpServletResponse.getOutputStream())) {
+			jsonGenerator.setRootValueSeparator(null);
+			try {
+				blogService.exportBlogs(blog -> {
+					try {
+						objectWriter.writeValue(jsonGenerator, toBlogResponse(blog));
+						jsonGenerator.writeRaw('\n');
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				});
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+		}
 	}
 
 	@GetMapping("/{blogId}")
-	public BlogResponse getBlog(@Valid @NotNull @PathVariable(value = "blogId") Long blogId) {
-		return toBlogResponse(blogService.getBlog(blogId));
+	public CompletableFuture<ResponseEntity<BlogResponse>> getBlog(
+			@Valid @NotNull @PathVariable(value = "blogId") Long blogId,
+			HttpServletRequest request) {
+		List<String> ifNoneMatch = toIfNoneMatch(request);
+		long ifModifiedSince = toIfModifiedSince(request);
+		return supplyAsync(() -> {
+			if (!ifNoneMatch.isEmpty() || ifModifiedSince >= 0) {
+				BlogVersion blogVersion = blogService.getBlogVersion(blogId);
+				String eTag = toWeakETag(Long.toString(blogVersion.getVersion()));
+				if (isNotModified(ifNoneMatch, ifModifiedSince, eTag, blogVersion.getLastModifiedEpoch())) {
+					return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+							.eTag(eTag)
+							.lastModified(blogVersion.getLastModifiedEpoch())
+							.build();
+				}
+			}
+			// Only a served body counts as a view; a revalidation reuses a copy the client has already counted.
+			blogService.recordBlogView(blogId);
+			// The headers describe the body actually sent, which may be a cached copy older than the version read above.
+			Blog blog = blogService.getBlog(blogId);
+			return ResponseEntity.ok()
+					.eTag(toWeakETag(Long.toString(blog.getVersion())))
+					.lastModified(blog.getLastModifiedEpoch())
+					.body(toBlogResponse(blog));
+		});
 	}
 
 	@PostMapping
-	public BlogResponse createBlog(@Valid @NotNull @RequestBody CreateBlogRequest createBlogRequest) {
+	public CompletableFuture<BlogResponse> createBlog(
+			@Valid @NotNull @RequestBody CreateBlogRequest createBlogRequest) {
 		Blog blog = new Blog(createBlogRequest.getTitle(), createBlogRequest.getContent());
-		return toBlogResponse(blogService.createBlog(blog));
+		return supplyAsync(() -> toBlogResponse(blogService.createBlog(blog)));
+	}
+
+	@PostMapping("/batch")
+	public CompletableFuture<List<BlogResponse>> createBlogs(
+			@Valid @NotEmpty @Size(max = BlogService.MAX_BATCH_SIZE) @RequestBody List<CreateBlogRequest> createBlogRequests) {
+		List<Blog> blogs = createBlogRequests.stream()
+				.map(createBlogRequest -> new Blog(createBlogRequest.getTitle(), createBlogRequest.getContent()))
+				.collect(Collectors.toList());
+		return supplyAsync(() -> toBlogResponses(blogService.createBlogs(blogs)));
 	}
 
 	@PutMapping("/{blogId}")
-	public BlogResponse updateBlog(
+	public CompletableFuture<ResponseEntity<BlogResponse>> updateBlog(
 			@Valid @NotNull @PathVariable(value = "blogId") Long blogId,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
 			@Valid @NotNull @RequestBody UpdateBlogRequest updateBlogRequest) {
 		Blog blog = new Blog(updateBlogRequest.getTitle(), updateBlogRequest.getContent());
-		return toBlogResponse(blogService.updateBlog(blogId, blog));
+		Long expectedVersion = toExpectedVersion(ifMatch);
+		return supplyAsync(() -> {
+			Blog updatedBlog = blogService.updateBlog(blogId, expectedVersion, blog);
+			return ResponseEntity.ok()
+					.eTag(toWeakETag(Long.toString(updatedBlog.getVersion())))
+					.body(toBlogResponse(updatedBlog));
+		});
+	}
+
+	@PatchMapping("/batch")
+	public CompletableFuture<BulkOperationResponse> patchBlogs(
+			@Valid @NotNull @RequestBody PatchBlogsRequest patchBlogsRequest) {
+		BlogPatch blogPatch = new BlogPatch(patchBlogsRequest.getTitle(), patchBlogsRequest.getContent());
+		return supplyAsync(() -> new BulkOperationResponse(
+				blogService.patchBlogs(patchBlogsRequest.getIds(), blogPatch)));
 	}
 
 	@DeleteMapping("/{blogId}")
-	public void deleteBlog(@Valid @NotNull @PathVariable(value = "blogId") Long blogId) {
-		blogService.deleteBlog(blogId);
+	public CompletableFuture<Void> deleteBlog(@Valid @NotNull @PathVariable(value = "blogId") Long blogId) {
+		return supplyAsync(() -> {
+			blogService.deleteBlog(blogId);
+			return null;
+		});
+	}
+
+	@DeleteMapping(params = "ids")
+	public CompletableFuture<BulkOperationResponse> deleteBlogs(
+			@NotEmpty @Size(max = BlogService.MAX_BATCH_SIZE) @RequestParam(value = "ids") List<Long> blogIds) {
+		return supplyAsync(() -> new BulkOperationResponse(blogService.deleteBlogs(blogIds)));
 	}
 
-	private List<BlogResponse> toBlogResponses(List<Blog> blogs) {
+	private <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier) {
+		CompletableFuture<T> completableFuture = new CompletableFuture<>();
+		blogServiceExecutor.execute(() -> {
+			try {
+				completableFuture.complete(supplier.get());
+			} catch (Throwable t) {
+				completableFuture.completeExceptionally(t);
+			}
+		});
+		return completableFuture;
+	}
+
+	private long decodeCursor(String cursor) {
+		if (cursor == null) {
+			return 0L;
+		}
+		try {
+			return CursorUtil.decode(cursor, 1)[0];
+		} catch (IllegalArgumentException e) {
+			throw new BadRequestException("Invalid cursor: " + cursor, e);
+		}
+	}
+
+	private BlogChangePosition decodeChangeCursor(String cursor) {
+		try {
+			long[] keys = CursorUtil.decode(cursor, 4);
+			return new BlogChangePosition(keys[0], keys[1], keys[2], keys[3]);
+		} catch (IllegalArgumentException e) {
+			throw new BadRequestException("Invalid cursor: " + cursor, e);
+		}
+	}
+
+	private Long toExpectedVersion(String ifMatch) {
+		if (ifMatch == null || "*".equals(ifMatch.trim())) {
+			return null;
+		}
+		// The version alone identifies the content a client edits, so the weak tags it was served are accepted.
+		String eTag = toOpaqueTag(ifMatch);
+		if (eTag.length() < 2 || !eTag.startsWith("\"") || !eTag.endsWith("\"")) {
+			throw new PreconditionFailedException("Unmatched If-Match: " + ifMatch);
+		}
+		try {
+			return Long.valueOf(eTag.substring(1, eTag.length() - 1));
+		} catch (NumberFormatException e) {
+			throw new PreconditionFailedException("Unmatched If-Match: " + ifMatch, e);
+		}
+	}
+
+	private <T, R> ResponseEntity<List<R>> toPageResponseEntity(KeysetPage<T> page, List<R> body,
+			ToLongFunction<T> idExtractor, ToLongFunction<T> lastModifiedExtractor, boolean hasViewCounts) {
+		String eTag = toPageETag(page, idExtractor, lastModifiedExtractor);
+		ResponseEntity.BodyBuilder bodyBuilder = ResponseEntity.ok().eTag(hasViewCounts ? "W/" + eTag : eTag);
+		if (page.hasNext()) {
+			T lastItem = page.getItems().get(page.getItems().size() - 1);
+			bodyBuilder.header(NEXT_CURSOR_HEADER, CursorUtil.encode(idExtractor.applyAsLong(lastItem)));
+		}
+		return bodyBuilder.body(body);
+	}
+
+	private <T> String toPageETag(
+			KeysetPage<T> page, ToLongFunction<T> idExtractor, ToLongFunction<T> lastModifiedExtractor) {
+		StringBuilder versions = new StringBuilder();
+		for (T item : page.getItems()) {
+			versions.append(idExtractor.applyAsLong(item)).append('-')
+					.append(lastModifiedExtractor.applyAsLong(item)).append(',');
+		}
+		versions.append(page.hasNext());
+		return toETag(DigestUtils.md5DigestAsHex(versions.toString().getBytes(StandardCharsets.UTF_8)));
+	}
+
+	// Evaluated from headers captured on the request thread; the executor thread never touches the servlet response.
+	private boolean isNotModified(List<String> ifNoneMatch, long ifModifiedSince, String eTag, long lastModifiedEpoch) {
+		if (!ifNoneMatch.isEmpty()) {
+			String opaqueTag = toOpaqueTag(eTag);
+			return ifNoneMatch.stream().anyMatch(tag -> "*".equals(tag) || opaqueTag.equals(toOpaqueTag(tag)));
+		}
+		return ifModifiedSince >= 0 && lastModifiedEpoch / 1000 <= ifModifiedSince / 1000;
+	}
+
+	private List<String> toIfNoneMatch(HttpServletRequest request) {
+		return Collections.list(request.getHeaders(HttpHeaders.IF_NONE_MATCH)).stream()
+				.flatMap(value -> Arrays.stream(StringUtils.tokenizeToStringArray(value, ",")))
+				.collect(Collectors.toList());
+	}
+
+	private long toIfModifiedSince(HttpServletRequest request) {
+		try {
+			return request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE);
+		} catch (IllegalArgumentException e) {
+			return -1L;
+		}
+	}
+
+	private String toOpaqueTag(String eTag) {
+		String tag = eTag.trim();
+		return tag.startsWith("W/") ? tag.substring(2) : tag;
+	}
+
+	private String toETag(String version) {
+		return "\"" + version + "\"";
+	}
+
+	// View counts change without a new version, so tags covering them only promise an equivalent body.
+	private String toWeakETag(String version) {
+		return "W/" + toETag(version);
+	}
+
+	private GetBlogsResponse toGetBlogsResponse(List<Long> blogIds, List<Blog> blogs) {
+		Set<Long> foundBlogIds = blogs.stream().map(Blog::getId).collect(Collectors.toSet());
+		List<Long> missingBlogIds = blogIds.stream()
+				.distinct()
+				.filter(blogId -> !foundBlogIds.contains(blogId))
+				.collect(Collectors.toList());
+		return new GetBlogsResponse(toBlogResponses(blogs), missingBlogIds);
+	}
+
+	private BlogChangesResponse toBlogChangesResponse(BlogChanges blogChanges) {
+		BlogChangePosition position = blogChanges.getPosition();
+		String nextCursor = CursorUtil.encode(position.getModifiedEpoch(), position.getModifiedBlogId(),
+				position.getDeletedEpoch(), position.getDeletedBlogId());
+		return new BlogChangesResponse(toBlogResponses(blogChanges.getBlogs()), blogChanges.getDeletedBlogIds(),
+				nextCursor, blogChanges.hasNext());
+	}
+
+	List<BlogResponse> toBlogResponses(List<Blog> blogs) {
 		return blogs.stream().map(blog -> toBlogResponse(blog)).collect(Collectors.toList());
 	}
 
-	private BlogResponse toBlogResponse(Blog blog) {
+	private List<BlogSummaryResponse> toBlogSummaryResponses(List<BlogSummary> blogSummaries) {
+		return blogSummaries.stream()
+				.map(blogSummary -> toBlogSummaryResponse(blogSummary))
+				.collect(Collectors.toList());
+	}
+
+	private BlogSummaryResponse toBlogSummaryResponse(BlogSummary blogSummary) {
+		return new BlogSummaryResponse(
+				blogSummary.getId(),
+				blogSummary.getTitle(),
+				blogSummary.getCreatedEpoch(),
+				blogSummary.getLastModifiedEpoch());
+	}
+
+	BlogResponse toBlogResponse(Blog blog) {
 		return new BlogResponse(
 				blog.getId(),
 				blog.getTitle(),
 				blog.getContent(),
+				blog.getVersion(),
 				blog.getCreatedEpoch(),
-				blog.getLastModifiedEpoch());
+				blog.getLastModifiedEpoch(),
+				blog.getViewCount());
 	}
 }
@@ -1,45 +1,88 @@
 package org.yifeng.spring.boot.blogservice.controllers.advices;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.validation.ConstraintViolationException;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.web.HttpMediaTypeNotSupportedException;
 import org.springframework.web.HttpRequestMethodNotSupportedException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.bind.MissingServletRequestParameterException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.context.request.async.AsyncRequestTimeoutException;
 import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
+import org.yifeng.spring.boot.blogservice.controllers.exceptions.BadRequestException;
+import org.yifeng.spring.boot.blogservice.controllers.exceptions.PreconditionFailedException;
 import org.yifeng.spring.boot.blogservice.controllers.responses.ExceptionResponse;
-import org.yifeng.spring.boot.blogservice.utils.LogUtil;
+import org.yifeng.spring.boot.blogservice.services.exceptions.BlogChangesExpiredException;
+import org.yifeng.spring.boot.blogservice.services.exceptions.BlogNotFoundException;
 
 @RestControllerAdvice
 public class ExceptionControllerAdvice {
 
+	private static final Logger logger = LogManager.getLogger();
+
 	@ExceptionHandler(value = {
 			HttpRequestMethodNotSupportedException.class,
 			HttpMessageNotReadableException.class,
 			HttpMediaTypeNotSupportedException.class,
 			MethodArgumentNotValidException.class,
-			MethodArgumentTypeMismatchException.class })
+			MethodArgumentTypeMismatchException.class,
+			MissingServletRequestParameterException.class,
+			ConstraintViolationException.class,
+			BadRequestException.class })
 	@ResponseStatus(HttpStatus.BAD_REQUEST)
 	public ExceptionResponse adviseBadRequest(Exception e, HttpServletRequest httpServletRequest) {
-		LogUtil.getLogger().warn(e.getMessage());
+		logger.warn(e.getMessage());
 		return new ExceptionResponse(e, HttpStatus.BAD_REQUEST, httpServletRequest);
 	}
 
+	@ExceptionHandler(value = { BlogNotFoundException.class })
+	@ResponseStatus(HttpStatus.NOT_FOUND)
+	public ExceptionResponse adviseBlogNotFound(Exception e, HttpServletRequest httpServletRequest) {
+		logger.debug(e.getMessage());
+		return new ExceptionResponse(e, HttpStatus.NOT_FOUND, httpServletRequest);
+	}
+
 	@ExceptionHandler(value = { IllegalArgumentException.class })
 	@ResponseStatus(HttpStatus.NOT_FOUND)
 	public ExceptionResponse adviseNotFound(Exception e, HttpServletRequest httpServletRequest) {
-		LogUtil.getLogger().warn(e.getMessage());
+		logger.warn(e.getMessage());
 		return new ExceptionResponse(e, HttpStatus.NOT_FOUND, httpServletRequest);
 	}
 
+	@ExceptionHandler(value = { OptimisticLockingFailureException.class, PreconditionFailedException.class })
+	@ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+	public ExceptionResponse advisePreconditionFailed(Exception e, HttpServletRequest httpServletRequest) {
+		logger.warn(e.getMessage());
+		return new ExceptionResponse(e, HttpStatus.PRECONDITION_FAILED, httpServletRequest);
+	}
+
+	@ExceptionHandler(value = { BlogChangesExpiredException.class })
+	@ResponseStatus(HttpStatus.GONE)
+	public ExceptionResponse adviseGone(Exception e, HttpServletRequest httpServletRequest) {
+		logger.warn(e.getMessage());
+		return new ExceptionResponse(e, HttpStatus.GONE, httpServletRequest);
+	}
+
+	@ExceptionHandler(value = { TaskRejectedException.class, AsyncRequestTimeoutException.class })
+	@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+	public ExceptionResponse adviseServiceUnavailable(Exception e, HttpServletRequest httpServletRequest) {
+		logger.warn(e.getMessage());
+		return new ExceptionResponse(e, HttpStatus.SERVICE_UNAVAILABLE, httpServletRequest);
+	}
+
 	@ExceptionHandler(value = { Exception.class })
 	@ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
 	public ExceptionResponse adviseInternalServerError(Exception e, HttpServletRequest httpServletRequest) {
-		LogUtil.getLogger().fatal(e);
+		logger.fatal(e.getMessage(), e);
 		return new ExceptionResponse(e, HttpStatus.INTERNAL_SERVER_ERROR, httpServletRequest);
 	}
 }
@@ -0,0 +1,19 @@
+package org.yifeng.spring.boot.blogservice.controllers.configurations;
+
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.LongAdder;
+
+public class CountingAbortPolicy extends ThreadPoolExecutor.AbortPolicy {
+
+	private final LongAdder rejectedCount = new LongAdder();
+
+	@Override
+	public void rejectedExecution(Runnable runnable, ThreadPoolExecutor threadPoolExecutor) {
+		rejectedCount.increment();
+		super.rejectedExecution(runnable, threadPoolExecutor);
+	}
+
+	public long getRejectedCount() {
+		return rejectedCount.sum();
+	}
+}
@@ -0,0 +1,88 @@
+package org.yifeng.spring.boot.blogservice.controllers.configurations;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.yifeng.spring.boot.blogservice.metrics.QueueWaitMetrics;
+import org.yifeng.spring.boot.blogservice.repositories.datasources.DataSourceRoutingContext;
+import org.yifeng.spring.boot.blogservice.services.BlogService;
+
+@Configuration
+public class ExecutorConfiguration {
+
+	public static final String BLOG_SERVICE_EXECUTOR = "blogServiceExecutor";
+	public static final String BLOG_EVENT_EXECUTOR = "blogEventExecutor";
+	public static final String TASK_SCHEDULER = "taskScheduler";
+
+	@Value("${blog-service.executor.enabled:true}")
+	private boolean blogServiceExecutorEnabled;
+
+	@Value("${blog-service.executor.pool-size:32}")
+	private int blogServiceExecutorPoolSize;
+
+	@Value("${blog-service.executor.queue-capacity:256}")
+	private int blogServiceExecutorQueueCapacity;
+
+	@Value("${blog-service.executor.await-termination-seconds:30}")
+	private int blogServiceExecutorAwaitTerminationSeconds;
+
+	@Value("${blog-service.events.executor.pool-size:16}")
+	private int blogEventExecutorPoolSize;
+
+	@Value("${blog-service.scheduler.pool-size:2}")
+	private int taskSchedulerPoolSize;
+
+	// On shutdown the queued and running tasks finish first, then the views they recorded are flushed; taking the blog
+	// service also keeps it from being destroyed before this executor.
+	@Bean(name = BLOG_SERVICE_EXECUTOR)
+	public TaskExecutor getBlogServiceExecutor(BlogService blogService) {
+		if (!blogServiceExecutorEnabled) {
+			return new SyncTaskExecutor();
+		}
+		ThreadPoolTaskExecutor threadPoolTaskExecutor = new ThreadPoolTaskExecutor() {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public void shutdown() {
+				super.shutdown();
+				blogService.flushBlogViews();
+			}
+		};
+		threadPoolTaskExecutor.setCorePoolSize(blogServiceExecutorPoolSize);
+		threadPoolTaskExecutor.setMaxPoolSize(blogServiceExecutorPoolSize);
+		threadPoolTaskExecutor.setQueueCapacity(blogServiceExecutorQueueCapacity);
+		threadPoolTaskExecutor.setThreadNamePrefix("blog-service-");
+		threadPoolTaskExecutor.setRejectedExecutionHandler(new CountingAbortPolicy());
+		threadPoolTaskExecutor.setTaskDecorator(runnable -> QueueWaitMetrics.time(
+				BLOG_SERVICE_EXECUTOR, DataSourceRoutingContext.propagate(runnable)));
+		threadPoolTaskExecutor.setWaitForTasksToCompleteOnShutdown(true);
+		threadPoolTaskExecutor.setAwaitTerminationSeconds(blogServiceExecutorAwaitTerminationSeconds);
+		return threadPoolTaskExecutor;
+	}
+
+	// Each subscriber has at most one drain task queued, so the queue is bounded by the subscriber count. Sends block,
+	// so the pool is sized for a few stalled clients at a time; the broadcaster drops those after the send timeout.
+	@Bean(name = BLOG_EVENT_EXECUTOR)
+	public TaskExecutor getBlogEventExecutor() {
+		ThreadPoolTaskExecutor threadPoolTaskExecutor = new ThreadPoolTaskExecutor();
+		threadPoolTaskExecutor.setCorePoolSize(blogEventExecutorPoolSize);
+		threadPoolTaskExecutor.setMaxPoolSize(blogEventExecutorPoolSize);
+		threadPoolTaskExecutor.setThreadNamePrefix("blog-event-");
+		return threadPoolTaskExecutor;
+	}
+
+	// Runs every @Scheduled task and the early view flushes, so a slow flush does not hold up the health checks.
+	@Bean(name = TASK_SCHEDULER)
+	public TaskScheduler getTaskScheduler() {
+		ThreadPoolTaskScheduler threadPoolTaskScheduler = new ThreadPoolTaskScheduler();
+		threadPoolTaskScheduler.setPoolSize(taskSchedulerPoolSize);
+		threadPoolTaskScheduler.setThreadNamePrefix("blog-scheduler-");
+		return threadPoolTaskScheduler;
+	}
+}
@@ -0,0 +1,28 @@
+package org.yifeng.spring.boot.blogservice.controllers.configurations;
+
+import java.util.List;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+import org.yifeng.spring.boot.blogservice.controllers.converters.SmileHttpMessageConverter;
+import org.yifeng.spring.boot.blogservice.metrics.RequestMetricsInterceptor;
+import org.yifeng.spring.boot.blogservice.metrics.TimedHttpMessageConverter;
+
+@Configuration
+public class WebMvcConfiguration extends WebMvcConfigurerAdapter {
+
+	@Override
+	public void addInterceptors(InterceptorRegistry registry) {
+		registry.addInterceptor(new RequestMetricsInterceptor());
+	}
+
+	@Override
+	public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+		converters.add(new SmileHttpMessageConverter());
+		converters.replaceAll(converter -> converter instanceof AbstractJackson2HttpMessageConverter
+				? new TimedHttpMessageConverter((AbstractJackson2HttpMessageConverter) converter) : converter);
+	}
+}
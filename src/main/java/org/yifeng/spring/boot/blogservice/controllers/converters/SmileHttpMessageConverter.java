@@ -0,0 +1,20 @@
+package org.yifeng.spring.boot.blogservice.controllers.converters;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+public class SmileHttpMessageConverter extends AbstractJackson2HttpMessageConverter {
+
+	public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+	public static final MediaType APPLICATION_SMILE = MediaType.valueOf(APPLICATION_SMILE_VALUE);
+
+	public SmileHttpMessageConverter() {
+		super(new ObjectMapper(new SmileFactory()), APPLICATION_SMILE);
+		Jackson2ObjectMapperBuilder.json().configure(getObjectMapper());
+		setDefaultCharset(null);
+	}
+}
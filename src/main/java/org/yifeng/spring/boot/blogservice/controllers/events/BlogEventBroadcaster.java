@@ -0,0 +1,179 @@
+package org.yifeng.spring.boot.blogservice.controllers.events;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.yifeng.spring.boot.blogservice.controllers.configurations.ExecutorConfiguration;
+import org.yifeng.spring.boot.blogservice.controllers.responses.BlogEventResponse;
+import org.yifeng.spring.boot.blogservice.controllers.responses.BlogResponse;
+import org.yifeng.spring.boot.blogservice.services.events.BlogEvent;
+import org.yifeng.spring.boot.blogservice.services.models.Blog;
+import org.yifeng.spring.boot.blogservice.utils.CursorUtil;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@Component
+public class BlogEventBroadcaster {
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	@Qualifier(ExecutorConfiguration.BLOG_EVENT_EXECUTOR)
+	private TaskExecutor blogEventExecutor;
+
+	@Value("${blog-service.events.replay-capacity:10000}")
+	private int replayCapacity;
+
+	@Value("${blog-service.events.buffer-capacity:256}")
+	private int bufferCapacity;
+
+	@Value("${blog-service.events.emitter-timeout-millis:300000}")
+	private long emitterTimeoutMillis;
+
+	@Value("${blog-service.events.send-timeout-millis:10000}")
+	private long sendTimeoutMillis;
+
+	// Event ids carry the start time of this instance, so ids from another instance or an earlier run never resume.
+	private final long epoch = System.currentTimeMillis();
+	private final Set<BlogEventSubscriber> subscribers = new LinkedHashSet<>();
+	private final LongAdder publishedCount = new LongAdder();
+	private final LongAdder coalescedCount = new LongAdder();
+	private final LongAdder resetCount = new LongAdder();
+	private final LongAdder stalledCount = new LongAdder();
+
+	private BlogStreamEvent[] replayEvents;
+	private long lastSequence;
+
+	@PostConstruct
+	public void initReplayEvents() {
+		replayEvents = new BlogStreamEvent[replayCapacity];
+	}
+
+	public synchronized int getSubscriberCount() {
+		return subscribers.size();
+	}
+
+	public long getPublishedCount() {
+		return publishedCount.sum();
+	}
+
+	public long getCoalescedCount() {
+		return coalescedCount.sum();
+	}
+
+	public long getResetCount() {
+		return resetCount.sum();
+	}
+
+	public long getStalledCount() {
+		return stalledCount.sum();
+	}
+
+	public SseEmitter subscribe(String lastEventId) {
+		SseEmitter sseEmitter = new SseEmitter(emitterTimeoutMillis);
+		BlogEventSubscriber subscriber = new BlogEventSubscriber(
+				sseEmitter, bufferCapacity, blogEventExecutor, coalescedCount, resetCount);
+		sseEmitter.onCompletion(() -> unsubscribe(subscriber));
+		sseEmitter.onTimeout(() -> unsubscribe(subscriber));
+		synchronized (this) {
+			if (lastEventId != null && !replay(lastEventId, subscriber)) {
+				subscriber.reset(BlogEventSubscriber.RESET_REASON_UNKNOWN_LAST_EVENT_ID);
+			}
+			subscribers.add(subscriber);
+		}
+		return sseEmitter;
+	}
+
+	@EventListener
+	public void onBlogEvent(BlogEvent blogEvent) {
+		String name = blogEvent.getType().name().toLowerCase();
+		String data = toData(new BlogEventResponse(name, blogEvent.getBlogId(),
+				blogEvent.getBlog() == null ? null : toBlogResponse(blogEvent.getBlog())));
+		synchronized (this) {
+			long sequence = ++lastSequence;
+			BlogStreamEvent blogStreamEvent = new BlogStreamEvent(
+					sequence, blogEvent.getBlogId(), CursorUtil.encode(epoch, sequence), name, data);
+			replayEvents[(int) (sequence % replayCapacity)] = blogStreamEvent;
+			subscribers.forEach(subscriber -> subscriber.offer(blogStreamEvent));
+		}
+		publishedCount.increment();
+	}
+
+	@Scheduled(fixedDelayString = "${blog-service.events.heartbeat-interval-millis:15000}")
+	public synchronized void sendHeartbeats() {
+		subscribers.forEach(BlogEventSubscriber::heartbeat);
+	}
+
+	// A subscriber whose send has stalled holds an event thread, so it is dropped rather than fed more events; its
+	// client reconnects with Last-Event-ID and resumes from the replay buffer.
+	@Scheduled(fixedDelayString = "${blog-service.events.send-timeout-millis:10000}")
+	public void closeStalledSubscribers() {
+		long now = System.currentTimeMillis();
+		List<BlogEventSubscriber> stalledSubscribers;
+		synchronized (this) {
+			stalledSubscribers = subscribers.stream()
+					.filter(subscriber -> subscriber.isSendStalled(now, sendTimeoutMillis))
+					.collect(Collectors.toList());
+			subscribers.removeAll(stalledSubscribers);
+		}
+		stalledSubscribers.forEach(BlogEventSubscriber::abort);
+		stalledCount.add(stalledSubscribers.size());
+	}
+
+	private synchronized void unsubscribe(BlogEventSubscriber subscriber) {
+		subscriber.close();
+		subscribers.remove(subscriber);
+	}
+
+	private boolean replay(String lastEventId, BlogEventSubscriber subscriber) {
+		long[] keys;
+		try {
+			keys = CursorUtil.decode(lastEventId, 2);
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+		long afterSequence = keys[1];
+		if (keys[0] != epoch || afterSequence < 0
+				|| afterSequence > lastSequence || afterSequence < lastSequence - replayCapacity) {
+			return false;
+		}
+		for (long sequence = afterSequence + 1; sequence <= lastSequence; sequence++) {
+			subscriber.offer(replayEvents[(int) (sequence % replayCapacity)]);
+		}
+		return true;
+	}
+
+	private String toData(BlogEventResponse blogEventResponse) {
+		try {
+			return objectMapper.writeValueAsString(blogEventResponse);
+		} catch (JsonProcessingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private BlogResponse toBlogResponse(Blog blog) {
+		return new BlogResponse(
+				blog.getId(),
+				blog.getTitle(),
+				blog.getContent(),
+				blog.getVersion(),
+				blog.getCreatedEpoch(),
+				blog.getLastModifiedEpoch(),
+				blog.getViewCount());
+	}
+}
@@ -0,0 +1,187 @@
+package org.yifeng.spring.boot.blogservice.controllers.events;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter.SseEventBuilder;
+
+public class BlogEventSubscriber {
+
+	public static final String RESET_EVENT_NAME = "reset";
+	public static final String RESET_REASON_OVERFLOW = "overflow";
+	public static final String RESET_REASON_UNKNOWN_LAST_EVENT_ID = "unknown-last-event-id";
+
+	private final SseEmitter sseEmitter;
+	private final int bufferCapacity;
+	private final Executor executor;
+	private final LongAdder coalescedCount;
+	private final LongAdder resetCount;
+
+	// Keyed by blog id in sequence order, so a newer event for a pending blog replaces the older one.
+	private final LinkedHashMap<Long, BlogStreamEvent> pendingEvents = new LinkedHashMap<>();
+	private String pendingResetReason;
+	private boolean heartbeatPending;
+	private boolean draining;
+	private boolean closed;
+	private boolean aborted;
+	private volatile long sendStartedMillis;
+
+	public BlogEventSubscriber(SseEmitter sseEmitter, int bufferCapacity, Executor executor,
+			LongAdder coalescedCount, LongAdder resetCount) {
+		this.sseEmitter = sseEmitter;
+		this.bufferCapacity = bufferCapacity;
+		this.executor = executor;
+		this.coalescedCount = coalescedCount;
+		this.resetCount = resetCount;
+	}
+
+	public SseEmitter getSseEmitter() {
+		return sseEmitter;
+	}
+
+	public synchronized int getPendingCount() {
+		return pendingEvents.size();
+	}
+
+	public void offer(BlogStreamEvent blogStreamEvent) {
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			if (pendingEvents.remove(blogStreamEvent.getBlogId()) != null) {
+				coalescedCount.increment();
+			} else if (pendingEvents.size() >= bufferCapacity) {
+				pendingEvents.clear();
+				pendingResetReason = RESET_REASON_OVERFLOW;
+				resetCount.increment();
+			}
+			pendingEvents.put(blogStreamEvent.getBlogId(), blogStreamEvent);
+			if (!startDraining()) {
+				return;
+			}
+		}
+		executor.execute(this::drain);
+	}
+
+	public void reset(String reason) {
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			pendingEvents.clear();
+			pendingResetReason = reason;
+			resetCount.increment();
+			if (!startDraining()) {
+				return;
+			}
+		}
+		executor.execute(this::drain);
+	}
+
+	public void heartbeat() {
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			heartbeatPending = true;
+			if (!startDraining()) {
+				return;
+			}
+		}
+		executor.execute(this::drain);
+	}
+
+	public synchronized void close() {
+		closed = true;
+		pendingEvents.clear();
+	}
+
+	// A send that is still in progress after the timeout has a client that is not reading fast enough.
+	public boolean isSendStalled(long nowMillis, long sendTimeoutMillis) {
+		long startedMillis = sendStartedMillis;
+		return startedMillis != 0L && nowMillis - startedMillis > sendTimeoutMillis;
+	}
+
+	// The emitter can not be completed while a send holds it, so the drain completes it once the send returns.
+	public void abort() {
+		synchronized (this) {
+			close();
+			aborted = true;
+			if (draining) {
+				return;
+			}
+		}
+		sseEmitter.complete();
+	}
+
+	private boolean startDraining() {
+		if (draining) {
+			return false;
+		}
+		draining = true;
+		return true;
+	}
+
+	private void drain() {
+		while (true) {
+			SseEventBuilder sseEventBuilder;
+			synchronized (this) {
+				sseEventBuilder = nextEvent();
+				if (sseEventBuilder == null) {
+					draining = false;
+					if (!aborted) {
+						return;
+					}
+				}
+			}
+			if (sseEventBuilder == null) {
+				sseEmitter.complete();
+				return;
+			}
+			sendStartedMillis = System.currentTimeMillis();
+			try {
+				sseEmitter.send(sseEventBuilder);
+			} catch (IOException | IllegalStateException e) {
+				// The emitter has already been completed with the error, so there is nobody left to write to.
+				synchronized (this) {
+					close();
+					draining = false;
+				}
+				return;
+			} finally {
+				sendStartedMillis = 0L;
+			}
+		}
+	}
+
+	private SseEventBuilder nextEvent() {
+		if (closed) {
+			return null;
+		}
+		if (pendingResetReason != null) {
+			String reason = pendingResetReason;
+			pendingResetReason = null;
+			heartbeatPending = false;
+			return SseEmitter.event().name(RESET_EVENT_NAME).data(reason);
+		}
+		Iterator<BlogStreamEvent> iterator = pendingEvents.values().iterator();
+		if (iterator.hasNext()) {
+			BlogStreamEvent blogStreamEvent = iterator.next();
+			iterator.remove();
+			heartbeatPending = false;
+			return SseEmitter.event()
+					.id(blogStreamEvent.getId())
+					.name(blogStreamEvent.getName())
+					.data(blogStreamEvent.getData());
+		}
+		if (heartbeatPending) {
+			heartbeatPending = false;
+			return SseEmitter.event().comment("heartbeat");
+		}
+		return null;
+	}
+}
@@ -0,0 +1,38 @@
+package org.yifeng.spring.boot.blogservice.controllers.events;
+
+public class BlogStreamEvent {
+
+	private long sequence;
+	private long blogId;
+	private String id;
+	private String name;
+	private String data;
+
+	public BlogStreamEvent(long sequence, long blogId, String id, String name, String data) {
+		this.sequence = sequence;
+		this.blogId = blogId;
+		this.id = id;
+		this.name = name;
+		this.data = data;
+	}
+
+	public long getSequence() {
+		return sequence;
+	}
+
+	public long getBlogId() {
+		return blogId;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getData() {
+		return data;
+	}
+}
@@ -0,0 +1,14 @@
+package org.yifeng.spring.boot.blogservice.controllers.exceptions;
+
+public class BadRequestException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public BadRequestException(String message) {
+		super(message);
+	}
+
+	public BadRequestException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
@@ -0,0 +1,14 @@
+package org.yifeng.spring.boot.blogservice.controllers.exceptions;
+
+public class PreconditionFailedException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public PreconditionFailedException(String message) {
+		super(message);
+	}
+
+	public PreconditionFailedException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
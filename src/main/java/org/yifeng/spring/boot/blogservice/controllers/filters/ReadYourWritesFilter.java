@@ -0,0 +1,77 @@
+package org.yifeng.spring.boot.blogservice.controllers.filters;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+import org.springframework.web.util.WebUtils;
+import org.yifeng.spring.boot.blogservice.repositories.configurations.DataSourceConfiguration;
+import org.yifeng.spring.boot.blogservice.repositories.datasources.DataSourceRoutingContext;
+
+@Component
+@ConditionalOnProperty(DataSourceConfiguration.REPLICA_URLS_PROPERTY)
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+	public static final String LAST_WRITE_COOKIE = "blog-service-last-write";
+
+	// POST endpoints that only read, so they neither start nor need a read-your-writes window.
+	private static final Set<String> READ_ONLY_POST_PATHS = Collections.singleton("/blogs/lookup");
+
+	private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+
+	@Value("${blog-service.datasource.read-your-writes-window-seconds:5}")
+	private int readYourWritesWindowSeconds;
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest httpServletRequest, HttpServletResponse httpServletResponse,
+			FilterChain filterChain) throws ServletException, IOException {
+		long now = System.currentTimeMillis();
+		if (isWrite(httpServletRequest)) {
+			Cookie lastWriteCookie = new Cookie(LAST_WRITE_COOKIE, Long.toString(now));
+			lastWriteCookie.setPath("/");
+			lastWriteCookie.setHttpOnly(true);
+			lastWriteCookie.setMaxAge(readYourWritesWindowSeconds);
+			httpServletResponse.addCookie(lastWriteCookie);
+		}
+		DataSourceRoutingContext.setPrimaryRequired(isWithinReadYourWritesWindow(httpServletRequest, now));
+		try {
+			filterChain.doFilter(httpServletRequest, httpServletResponse);
+		} finally {
+			DataSourceRoutingContext.clear();
+		}
+	}
+
+	private boolean isWrite(HttpServletRequest httpServletRequest) {
+		HttpMethod httpMethod = HttpMethod.resolve(httpServletRequest.getMethod());
+		if (httpMethod == HttpMethod.POST) {
+			return !READ_ONLY_POST_PATHS.contains(urlPathHelper.getPathWithinApplication(httpServletRequest));
+		}
+		return httpMethod != HttpMethod.GET && httpMethod != HttpMethod.HEAD && httpMethod != HttpMethod.OPTIONS;
+	}
+
+	private boolean isWithinReadYourWritesWindow(HttpServletRequest httpServletRequest, long now) {
+		Cookie lastWriteCookie = WebUtils.getCookie(httpServletRequest, LAST_WRITE_COOKIE);
+		if (lastWriteCookie == null) {
+			return false;
+		}
+		try {
+			long lastWriteEpoch = Long.parseLong(lastWriteCookie.getValue());
+			return now - lastWriteEpoch < TimeUnit.SECONDS.toMillis(readYourWritesWindowSeconds);
+		} catch (NumberFormatException e) {
+			return false;
+		}
+	}
+}
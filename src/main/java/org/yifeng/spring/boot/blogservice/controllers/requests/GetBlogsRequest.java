@@ -0,0 +1,32 @@
+package org.yifeng.spring.boot.blogservice.controllers.requests;
+
+import java.util.List;
+
+import javax.validation.constraints.Size;
+
+import org.hibernate.validator.constraints.NotEmpty;
+import org.yifeng.spring.boot.blogservice.services.BlogService;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class GetBlogsRequest {
+
+	@JsonProperty("ids")
+	@NotEmpty
+	@Size(max = BlogService.MAX_BATCH_SIZE)
+	private List<Long> ids;
+
+	public GetBlogsRequest() {
+
+	}
+
+	public GetBlogsRequest(List<Long> ids) {
+		this.ids = ids;
+	}
+
+	public List<Long> getIds() {
+		return ids;
+	}
+}
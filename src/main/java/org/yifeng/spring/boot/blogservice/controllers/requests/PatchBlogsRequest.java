@@ -0,0 +1,63 @@
+package org.yifeng.spring.boot.blogservice.controllers.requests;
+
+import java.util.List;
+
+import javax.validation.constraints.AssertTrue;
+import javax.validation.constraints.Pattern;
+import javax.validation.constraints.Size;
+
+import org.hibernate.validator.constraints.NotEmpty;
+import org.yifeng.spring.boot.blogservice.services.BlogService;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class PatchBlogsRequest {
+
+	private static final String NOT_BLANK_PATTERN = "(?s).*\\S.*";
+
+	@JsonProperty("ids")
+	@NotEmpty
+	@Size(max = BlogService.MAX_BATCH_SIZE)
+	private List<Long> ids;
+
+	@JsonProperty("title")
+	@Pattern(regexp = NOT_BLANK_PATTERN)
+	@Size(min = 1, max = 100)
+	private String title;
+
+	@JsonProperty("content")
+	@Pattern(regexp = NOT_BLANK_PATTERN)
+	@Size(min = 1, max = 10000)
+	private String content;
+
+	public PatchBlogsRequest() {
+
+	}
+
+	public PatchBlogsRequest(List<Long> ids, String title, String content) {
+		this.ids = ids;
+		this.title = title;
+		this.content = content;
+	}
+
+	public List<Long> getIds() {
+		return ids;
+	}
+
+	public String getTitle() {
+		return title;
+	}
+
+	public String getContent() {
+		return content;
+	}
+
+	@JsonIgnore
+	@AssertTrue
+	public boolean isPatching() {
+		return title != null || content != null;
+	}
+}
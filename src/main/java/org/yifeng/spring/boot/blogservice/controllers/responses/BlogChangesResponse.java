@@ -0,0 +1,43 @@
+package org.yifeng.spring.boot.blogservice.controllers.responses;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class BlogChangesResponse {
+
+	@JsonProperty("blogs")
+	private List<BlogResponse> blogs;
+
+	@JsonProperty("deletedIds")
+	private List<Long> deletedIds;
+
+	@JsonProperty("nextCursor")
+	private String nextCursor;
+
+	@JsonProperty("hasMore")
+	private boolean hasMore;
+
+	public BlogChangesResponse(List<BlogResponse> blogs, List<Long> deletedIds, String nextCursor, boolean hasMore) {
+		this.blogs = blogs;
+		this.deletedIds = deletedIds;
+		this.nextCursor = nextCursor;
+		this.hasMore = hasMore;
+	}
+
+	public List<BlogResponse> getBlogs() {
+		return blogs;
+	}
+
+	public List<Long> getDeletedIds() {
+		return deletedIds;
+	}
+
+	public String getNextCursor() {
+		return nextCursor;
+	}
+
+	public boolean isHasMore() {
+		return hasMore;
+	}
+}
@@ -0,0 +1,36 @@
+package org.yifeng.spring.boot.blogservice.controllers.responses;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+@JsonInclude(Include.NON_NULL)
+public class BlogEventResponse {
+
+	@JsonProperty("type")
+	private String type;
+
+	@JsonProperty("id")
+	private long id;
+
+	@JsonProperty("blog")
+	private BlogResponse blog;
+
+	public BlogEventResponse(String type, long id, BlogResponse blog) {
+		this.type = type;
+		this.id = id;
+		this.blog = blog;
+	}
+
+	public String getType() {
+		return type;
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	public BlogResponse getBlog() {
+		return blog;
+	}
+}
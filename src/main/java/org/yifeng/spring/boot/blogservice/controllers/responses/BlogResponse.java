@@ -13,18 +13,27 @@ public class BlogResponse {
 	@JsonProperty("content")
 	private String content;
 
+	@JsonProperty("version")
+	private Long version;
+
 	@JsonProperty("createdDate")
 	private Long createdDate;
 
 	@JsonProperty("lastModifiedDate")
 	private Long lastModifiedDate;
 
-	public BlogResponse(Long id, String title, String content, Long createdDate, Long lastModifiedDate) {
+	@JsonProperty("viewCount")
+	private Long viewCount;
+
+	public BlogResponse(Long id, String title, String content, Long version, Long createdDate,
+			Long lastModifiedDate, Long viewCount) {
 		this.id = id;
 		this.title = title;
 		this.content = content;
+		this.version = version;
 		this.createdDate = createdDate;
 		this.lastModifiedDate = lastModifiedDate;
+		this.viewCount = viewCount;
 	}
 
 	public Long getId() {
@@ -39,6 +48,10 @@ public class BlogResponse {
 		return content;
 	}
 
+	public Long getVersion() {
+		return version;
+	}
+
 	public Long getCreatedDate() {
 		return createdDate;
 	}
@@ -46,4 +59,8 @@ public class BlogResponse {
 	public Long getLastModifiedDate() {
 		return lastModifiedDate;
 	}
+
+	public Long getViewCount() {
+		return viewCount;
+	}
 }
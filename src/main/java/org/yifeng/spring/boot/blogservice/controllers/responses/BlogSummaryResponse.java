@@ -0,0 +1,41 @@
+package org.yifeng.spring.boot.blogservice.controllers.responses;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class BlogSummaryResponse {
+
+	@JsonProperty("id")
+	private Long id;
+
+	@JsonProperty("title")
+	private String title;
+
+	@JsonProperty("createdDate")
+	private Long createdDate;
+
+	@JsonProperty("lastModifiedDate")
+	private Long lastModifiedDate;
+
+	public BlogSummaryResponse(Long id, String title, Long createdDate, Long lastModifiedDate) {
+		this.id = id;
+		this.title = title;
+		this.createdDate = createdDate;
+		this.lastModifiedDate = lastModifiedDate;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public String getTitle() {
+		return title;
+	}
+
+	public Long getCreatedDate() {
+		return createdDate;
+	}
+
+	public Long getLastModifiedDate() {
+		return lastModifiedDate;
+	}
+}
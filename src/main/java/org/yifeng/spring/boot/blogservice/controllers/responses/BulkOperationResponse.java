@@ -0,0 +1,17 @@
+package org.yifeng.spring.boot.blogservice.controllers.responses;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class BulkOperationResponse {
+
+	@JsonProperty("affectedCount")
+	private Integer affectedCount;
+
+	public BulkOperationResponse(Integer affectedCount) {
+		this.affectedCount = affectedCount;
+	}
+
+	public Integer getAffectedCount() {
+		return affectedCount;
+	}
+}
@@ -1,7 +1,5 @@
 package org.yifeng.spring.boot.blogservice.controllers.responses;
 
-import java.util.Date;
-
 import javax.servlet.http.HttpServletRequest;
 
 import org.springframework.http.HttpStatus;
@@ -10,6 +8,14 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 
 public class ExceptionResponse {
 
+	private static final ClassValue<String> exceptionNames = new ClassValue<String>() {
+
+		@Override
+		protected String computeValue(Class<?> type) {
+			return type.getCanonicalName();
+		}
+	};
+
 	@JsonProperty("timestamp")
 	private Long timestamp;
 
@@ -29,10 +35,10 @@ public class ExceptionResponse {
 	private String path;
 
 	public ExceptionResponse(Exception exception, HttpStatus httpStatus, HttpServletRequest httpServletRequest) {
-		this.timestamp = new Date().getTime();
+		this.timestamp = System.currentTimeMillis();
 		this.status = httpStatus.value();
 		this.error = httpStatus.getReasonPhrase();
-		this.exception = exception.getClass().getCanonicalName();
+		this.exception = exceptionNames.get(exception.getClass());
 		this.message = exception.getMessage();
 		this.path = httpServletRequest.getRequestURI();
 	}
@@ -0,0 +1,27 @@
+package org.yifeng.spring.boot.blogservice.controllers.responses;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class GetBlogsResponse {
+
+	@JsonProperty("blogs")
+	private List<BlogResponse> blogs;
+
+	@JsonProperty("missingIds")
+	private List<Long> missingIds;
+
+	public GetBlogsResponse(List<BlogResponse> blogs, List<Long> missingIds) {
+		this.blogs = blogs;
+		this.missingIds = missingIds;
+	}
+
+	public List<BlogResponse> getBlogs() {
+		return blogs;
+	}
+
+	public List<Long> getMissingIds() {
+		return missingIds;
+	}
+}
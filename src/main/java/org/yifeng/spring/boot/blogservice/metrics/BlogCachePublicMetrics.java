@@ -0,0 +1,30 @@
+package org.yifeng.spring.boot.blogservice.metrics;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+import org.yifeng.spring.boot.blogservice.services.BlogService;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+@Component
+public class BlogCachePublicMetrics implements PublicMetrics {
+
+	@Autowired
+	private BlogService blogService;
+
+	@Override
+	public Collection<Metric<?>> metrics() {
+		CacheStats cacheStats = blogService.getBlogCacheStats();
+		return Arrays.asList(
+				new Metric<>("cache.blog.size", blogService.getBlogCacheSize()),
+				new Metric<>("cache.blog.hit.count", cacheStats.hitCount()),
+				new Metric<>("cache.blog.miss.count", cacheStats.missCount()),
+				new Metric<>("cache.blog.eviction.count", cacheStats.evictionCount()),
+				new Metric<>("cache.blog.hit.ratio", cacheStats.hitRate()));
+	}
+}
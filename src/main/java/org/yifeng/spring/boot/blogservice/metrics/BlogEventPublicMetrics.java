@@ -0,0 +1,29 @@
+package org.yifeng.spring.boot.blogservice.metrics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+import org.yifeng.spring.boot.blogservice.controllers.events.BlogEventBroadcaster;
+
+@Component
+public class BlogEventPublicMetrics implements PublicMetrics {
+
+	@Autowired
+	private BlogEventBroadcaster blogEventBroadcaster;
+
+	@Override
+	public Collection<Metric<?>> metrics() {
+		List<Metric<?>> metrics = new ArrayList<>();
+		metrics.add(new Metric<>("events.subscribers", blogEventBroadcaster.getSubscriberCount()));
+		metrics.add(new Metric<>("events.published.count", blogEventBroadcaster.getPublishedCount()));
+		metrics.add(new Metric<>("events.coalesced.count", blogEventBroadcaster.getCoalescedCount()));
+		metrics.add(new Metric<>("events.reset.count", blogEventBroadcaster.getResetCount()));
+		metrics.add(new Metric<>("events.stalled.count", blogEventBroadcaster.getStalledCount()));
+		return metrics;
+	}
+}
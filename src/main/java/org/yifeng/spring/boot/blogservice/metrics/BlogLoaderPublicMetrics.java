@@ -0,0 +1,33 @@
+package org.yifeng.spring.boot.blogservice.metrics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+import org.yifeng.spring.boot.blogservice.services.BlogService;
+import org.yifeng.spring.boot.blogservice.services.loaders.SingleFlightLoader;
+
+@Component
+public class BlogLoaderPublicMetrics implements PublicMetrics {
+
+	@Autowired
+	private BlogService blogService;
+
+	@Override
+	public Collection<Metric<?>> metrics() {
+		List<Metric<?>> metrics = new ArrayList<>();
+		addMetrics(metrics, "loader.blog", blogService.getBlogLoader());
+		addMetrics(metrics, "loader.blog-version", blogService.getBlogVersionLoader());
+		return metrics;
+	}
+
+	private void addMetrics(List<Metric<?>> metrics, String prefix, SingleFlightLoader<?, ?> loader) {
+		metrics.add(new Metric<>(prefix + ".load.count", loader.getLoadCount()));
+		metrics.add(new Metric<>(prefix + ".coalesced.count", loader.getCoalescedCount()));
+		metrics.add(new Metric<>(prefix + ".in-flight", loader.getInFlightCount()));
+	}
+}
@@ -0,0 +1,43 @@
+package org.yifeng.spring.boot.blogservice.metrics;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.yifeng.spring.boot.blogservice.controllers.configurations.CountingAbortPolicy;
+import org.yifeng.spring.boot.blogservice.controllers.configurations.ExecutorConfiguration;
+
+@Component
+public class BlogServiceExecutorPublicMetrics implements PublicMetrics {
+
+	@Autowired
+	@Qualifier(ExecutorConfiguration.BLOG_SERVICE_EXECUTOR)
+	private TaskExecutor blogServiceExecutor;
+
+	@Override
+	public Collection<Metric<?>> metrics() {
+		if (!(blogServiceExecutor instanceof ThreadPoolTaskExecutor)) {
+			return Collections.emptyList();
+		}
+		ThreadPoolExecutor threadPoolExecutor = ((ThreadPoolTaskExecutor) blogServiceExecutor).getThreadPoolExecutor();
+		RejectedExecutionHandler rejectedExecutionHandler = threadPoolExecutor.getRejectedExecutionHandler();
+		long rejectedCount = rejectedExecutionHandler instanceof CountingAbortPolicy
+				? ((CountingAbortPolicy) rejectedExecutionHandler).getRejectedCount() : 0L;
+		return Arrays.asList(
+				new Metric<>("executor.blog-service.pool.size", threadPoolExecutor.getPoolSize()),
+				new Metric<>("executor.blog-service.active.count", threadPoolExecutor.getActiveCount()),
+				new Metric<>("executor.blog-service.queue.size", threadPoolExecutor.getQueue().size()),
+				new Metric<>("executor.blog-service.queue.remaining", threadPoolExecutor.getQueue().remainingCapacity()),
+				new Metric<>("executor.blog-service.completed.count", threadPoolExecutor.getCompletedTaskCount()),
+				new Metric<>("executor.blog-service.rejected.count", rejectedCount));
+	}
+}
@@ -0,0 +1,30 @@
+package org.yifeng.spring.boot.blogservice.metrics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+import org.yifeng.spring.boot.blogservice.services.BlogService;
+import org.yifeng.spring.boot.blogservice.services.views.BlogViewCounter;
+
+@Component
+public class BlogViewPublicMetrics implements PublicMetrics {
+
+	@Autowired
+	private BlogService blogService;
+
+	@Override
+	public Collection<Metric<?>> metrics() {
+		BlogViewCounter blogViewCounter = blogService.getBlogViewCounter();
+		List<Metric<?>> metrics = new ArrayList<>();
+		metrics.add(new Metric<>("views.recorded.count", blogViewCounter.getRecordedCount()));
+		metrics.add(new Metric<>("views.flushed.count", blogViewCounter.getDrainedCount()));
+		metrics.add(new Metric<>("views.dropped.count", blogViewCounter.getDroppedCount()));
+		metrics.add(new Metric<>("views.pending-blogs", blogViewCounter.getPendingBlogCount()));
+		return metrics;
+	}
+}
@@ -0,0 +1,126 @@
+package org.yifeng.spring.boot.blogservice.metrics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+
+import com.zaxxer.hikari.metrics.MetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+@Component
+public class ConnectionPoolPublicMetrics implements PublicMetrics, MetricsTrackerFactory {
+
+	private final Map<String, ConnectionPoolMetricsTracker> metricsTrackersByPoolName = new ConcurrentSkipListMap<>();
+
+	@Override
+	public MetricsTracker create(String poolName, PoolStats poolStats) {
+		ConnectionPoolMetricsTracker metricsTracker = new ConnectionPoolMetricsTracker(poolName, poolStats);
+		metricsTrackersByPoolName.put(poolName, metricsTracker);
+		return metricsTracker;
+	}
+
+	@Override
+	public Collection<Metric<?>> metrics() {
+		List<Metric<?>> metrics = new ArrayList<>();
+		for (ConnectionPoolMetricsTracker metricsTracker : metricsTrackersByPoolName.values()) {
+			PoolStats poolStats = metricsTracker.poolStats;
+			String prefix = "datasource.pool." + metricsTracker.poolName;
+			metrics.add(new Metric<>(prefix + ".total", poolStats.getTotalConnections()));
+			metrics.add(new Metric<>(prefix + ".active", poolStats.getActiveConnections()));
+			metrics.add(new Metric<>(prefix + ".idle", poolStats.getIdleConnections()));
+			metrics.add(new Metric<>(prefix + ".pending", poolStats.getPendingThreads()));
+			metrics.add(new Metric<>(prefix + ".acquire.count", metricsTracker.acquireCount.sum()));
+			metrics.add(new Metric<>(prefix + ".acquire.total-millis",
+					TimeUnit.NANOSECONDS.toMillis(metricsTracker.acquireNanos.sum())));
+			metrics.add(new Metric<>(prefix + ".acquire.max-millis",
+					TimeUnit.NANOSECONDS.toMillis(metricsTracker.getMaxAcquireNanos())));
+			metrics.add(new Metric<>(prefix + ".usage.count", metricsTracker.usageCount.sum()));
+			metrics.add(new Metric<>(prefix + ".usage.total-millis", metricsTracker.usageMillis.sum()));
+			metrics.add(new Metric<>(prefix + ".timeout.count", metricsTracker.timeoutCount.sum()));
+		}
+		return metrics;
+	}
+
+	private class ConnectionPoolMetricsTracker extends MetricsTracker {
+
+		// The max covers the current and the previous window, so every reader sees it and nobody resets it.
+		private static final long MAX_WINDOW_NANOS = 60_000_000_000L;
+
+		private final String poolName;
+		private final PoolStats poolStats;
+		private final LongAdder acquireCount = new LongAdder();
+		private final LongAdder acquireNanos = new LongAdder();
+		private final LongAccumulator[] maxAcquireNanos = {
+				new LongAccumulator(Math::max, 0L), new LongAccumulator(Math::max, 0L) };
+		private final LongAdder usageCount = new LongAdder();
+		private final LongAdder usageMillis = new LongAdder();
+		private final LongAdder timeoutCount = new LongAdder();
+
+		private volatile int maxWindowIndex;
+		private volatile long maxWindowStartNanos = System.nanoTime();
+
+		private ConnectionPoolMetricsTracker(String poolName, PoolStats poolStats) {
+			this.poolName = poolName;
+			this.poolStats = poolStats;
+		}
+
+		private long getMaxAcquireNanos() {
+			rotateMaxWindow();
+			return Math.max(maxAcquireNanos[0].get(), maxAcquireNanos[1].get());
+		}
+
+		@Override
+		public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+			acquireCount.increment();
+			acquireNanos.add(elapsedAcquiredNanos);
+			rotateMaxWindow();
+			maxAcquireNanos[maxWindowIndex].accumulate(elapsedAcquiredNanos);
+		}
+
+		@Override
+		public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+			usageCount.increment();
+			usageMillis.add(elapsedBorrowedMillis);
+		}
+
+		@Override
+		public void recordConnectionTimeout() {
+			timeoutCount.increment();
+		}
+
+		private void rotateMaxWindow() {
+			long nowNanos = System.nanoTime();
+			if (nowNanos - maxWindowStartNanos < MAX_WINDOW_NANOS) {
+				return;
+			}
+			synchronized (this) {
+				long elapsedNanos = nowNanos - maxWindowStartNanos;
+				if (elapsedNanos < MAX_WINDOW_NANOS) {
+					return;
+				}
+				int nextWindowIndex = 1 - maxWindowIndex;
+				maxAcquireNanos[nextWindowIndex].reset();
+				if (elapsedNanos >= 2 * MAX_WINDOW_NANOS) {
+					maxAcquireNanos[maxWindowIndex].reset();
+				}
+				maxWindowIndex = nextWindowIndex;
+				maxWindowStartNanos = nowNanos;
+			}
+		}
+
+		@Override
+		public void close() {
+			metricsTrackersByPoolName.remove(poolName, this);
+		}
+	}
+}
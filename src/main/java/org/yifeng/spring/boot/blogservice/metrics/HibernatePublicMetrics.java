@@ -0,0 +1,54 @@
+package org.yifeng.spring.boot.blogservice.metrics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+
+@Component
+public class HibernatePublicMetrics implements PublicMetrics {
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Override
+	public Collection<Metric<?>> metrics() {
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		List<Metric<?>> metrics = new ArrayList<>();
+		if (!statistics.isStatisticsEnabled()) {
+			return metrics;
+		}
+		metrics.add(new Metric<>("hibernate.query.execution.count", statistics.getQueryExecutionCount()));
+		metrics.add(new Metric<>("hibernate.query.execution.max-millis", statistics.getQueryExecutionMaxTime()));
+		metrics.add(new Metric<>("hibernate.entity.load.count", statistics.getEntityLoadCount()));
+		metrics.add(new Metric<>("hibernate.entity.fetch.count", statistics.getEntityFetchCount()));
+		metrics.add(new Metric<>("hibernate.entity.insert.count", statistics.getEntityInsertCount()));
+		metrics.add(new Metric<>("hibernate.entity.update.count", statistics.getEntityUpdateCount()));
+		metrics.add(new Metric<>("hibernate.entity.delete.count", statistics.getEntityDeleteCount()));
+		metrics.add(new Metric<>("hibernate.flush.count", statistics.getFlushCount()));
+		metrics.add(new Metric<>("hibernate.statement.prepare.count", statistics.getPrepareStatementCount()));
+		metrics.add(new Metric<>("hibernate.transaction.count", statistics.getTransactionCount()));
+		metrics.add(new Metric<>("hibernate.session.open.count", statistics.getSessionOpenCount()));
+		metrics.add(new Metric<>("hibernate.cache.query.hit.count", statistics.getQueryCacheHitCount()));
+		metrics.add(new Metric<>("hibernate.cache.query.miss.count", statistics.getQueryCacheMissCount()));
+		metrics.add(new Metric<>("hibernate.cache.query.put.count", statistics.getQueryCachePutCount()));
+		for (String regionName : statistics.getSecondLevelCacheRegionNames()) {
+			SecondLevelCacheStatistics regionStatistics = statistics.getSecondLevelCacheStatistics(regionName);
+			String prefix = "hibernate.cache.region." + regionName;
+			metrics.add(new Metric<>(prefix + ".hit.count", regionStatistics.getHitCount()));
+			metrics.add(new Metric<>(prefix + ".miss.count", regionStatistics.getMissCount()));
+			metrics.add(new Metric<>(prefix + ".put.count", regionStatistics.getPutCount()));
+			metrics.add(new Metric<>(prefix + ".size", regionStatistics.getElementCountInMemory()));
+		}
+		return metrics;
+	}
+}
@@ -0,0 +1,56 @@
+package org.yifeng.spring.boot.blogservice.metrics;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Histogram;
+
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class LayerMetricsAspect {
+
+	static final double[] LATENCY_BUCKETS = {
+			0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10 };
+
+	private static final Histogram callDuration = Histogram.build()
+			.name("blog_service_call_duration_seconds")
+			.help("Duration of service and repository calls, including the transaction around service calls.")
+			.labelNames("layer", "method")
+			.buckets(LATENCY_BUCKETS)
+			.register();
+
+	private static final Counter callErrors = Counter.build()
+			.name("blog_service_call_errors_total")
+			.help("Service and repository calls that ended with an exception.")
+			.labelNames("layer", "method", "exception")
+			.register();
+
+	@Around("execution(public * org.yifeng.spring.boot.blogservice.services.BlogService.*(..))")
+	public Object timeServiceCall(ProceedingJoinPoint joinPoint) throws Throwable {
+		return time("service", joinPoint);
+	}
+
+	@Around("execution(public * org.springframework.data.repository.Repository+.*(..))")
+	public Object timeRepositoryCall(ProceedingJoinPoint joinPoint) throws Throwable {
+		return time("repository", joinPoint);
+	}
+
+	private Object time(String layer, ProceedingJoinPoint joinPoint) throws Throwable {
+		String method = joinPoint.getSignature().getName();
+		Histogram.Timer timer = callDuration.labels(layer, method).startTimer();
+		try {
+			return joinPoint.proceed();
+		} catch (Throwable e) {
+			callErrors.labels(layer, method, e.getClass().getSimpleName()).inc();
+			throw e;
+		} finally {
+			timer.observeDuration();
+		}
+	}
+}
@@ -0,0 +1,22 @@
+package org.yifeng.spring.boot.blogservice.metrics;
+
+import io.prometheus.client.Histogram;
+
+public class QueueWaitMetrics {
+
+	private static final Histogram queueWaitDuration = Histogram.build()
+			.name("blog_service_executor_queue_wait_seconds")
+			.help("Time blog endpoint tasks wait in the executor queue before a thread picks them up.")
+			.labelNames("executor")
+			.buckets(LayerMetricsAspect.LATENCY_BUCKETS)
+			.register();
+
+	public static Runnable time(String executorName, Runnable runnable) {
+		Histogram.Child executorQueueWaitDuration = queueWaitDuration.labels(executorName);
+		long submittedNanos = System.nanoTime();
+		return () -> {
+			executorQueueWaitDuration.observe((System.nanoTime() - submittedNanos) / 1e9);
+			runnable.run();
+		};
+	}
+}
@@ -0,0 +1,43 @@
+package org.yifeng.spring.boot.blogservice.metrics;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import io.prometheus.client.Histogram;
+
+public class RequestMetricsInterceptor extends HandlerInterceptorAdapter {
+
+	private static final String START_NANOS_ATTRIBUTE = RequestMetricsInterceptor.class.getName() + ".startNanos";
+
+	private static final Histogram requestDuration = Histogram.build()
+			.name("blog_service_http_request_duration_seconds")
+			.help("Duration of HTTP requests from handler selection to completion, including async processing.")
+			.labelNames("handler", "method", "status")
+			.buckets(LayerMetricsAspect.LATENCY_BUCKETS)
+			.register();
+
+	// Async endpoints pass through preHandle twice; keep the start of the first dispatch.
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+		if (request.getAttribute(START_NANOS_ATTRIBUTE) == null) {
+			request.setAttribute(START_NANOS_ATTRIBUTE, System.nanoTime());
+		}
+		return true;
+	}
+
+	@Override
+	public void afterCompletion(
+			HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+		Object startNanos = request.getAttribute(START_NANOS_ATTRIBUTE);
+		if (startNanos == null) {
+			return;
+		}
+		String handlerName = handler instanceof HandlerMethod
+				? ((HandlerMethod) handler).getMethod().getName() : "unmapped";
+		requestDuration.labels(handlerName, request.getMethod(), String.valueOf(response.getStatus()))
+				.observe((System.nanoTime() - (Long) startNanos) / 1e9);
+	}
+}
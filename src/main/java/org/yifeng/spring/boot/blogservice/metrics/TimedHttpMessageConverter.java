@@ -0,0 +1,94 @@
+package org.yifeng.spring.boot.blogservice.metrics;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.List;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.GenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+
+import io.prometheus.client.Histogram;
+
+// Times response serialization on its own, so it can be told apart from the request and service timings. Writes go
+// through the response buffer and compression, so a body larger than the buffer also counts its socket writes.
+public class TimedHttpMessageConverter implements GenericHttpMessageConverter<Object> {
+
+	private static final Histogram serializationDuration = Histogram.build()
+			.name("blog_service_serialization_duration_seconds")
+			.help("Duration of writing response bodies through the message converters.")
+			.labelNames("converter")
+			.buckets(LayerMetricsAspect.LATENCY_BUCKETS)
+			.register();
+
+	private final GenericHttpMessageConverter<Object> httpMessageConverter;
+	private final Histogram.Child converterSerializationDuration;
+
+	public TimedHttpMessageConverter(GenericHttpMessageConverter<Object> httpMessageConverter) {
+		this.httpMessageConverter = httpMessageConverter;
+		this.converterSerializationDuration = serializationDuration.labels(
+				httpMessageConverter.getClass().getSimpleName());
+	}
+
+	@Override
+	public boolean canRead(Class<?> clazz, MediaType mediaType) {
+		return httpMessageConverter.canRead(clazz, mediaType);
+	}
+
+	@Override
+	public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+		return httpMessageConverter.canRead(type, contextClass, mediaType);
+	}
+
+	@Override
+	public boolean canWrite(Class<?> clazz, MediaType mediaType) {
+		return httpMessageConverter.canWrite(clazz, mediaType);
+	}
+
+	@Override
+	public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+		return httpMessageConverter.canWrite(type, clazz, mediaType);
+	}
+
+	@Override
+	public List<MediaType> getSupportedMediaTypes() {
+		return httpMessageConverter.getSupportedMediaTypes();
+	}
+
+	@Override
+	public Object read(Class<? extends Object> clazz, HttpInputMessage inputMessage)
+			throws IOException, HttpMessageNotReadableException {
+		return httpMessageConverter.read(clazz, inputMessage);
+	}
+
+	@Override
+	public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage)
+			throws IOException, HttpMessageNotReadableException {
+		return httpMessageConverter.read(type, contextClass, inputMessage);
+	}
+
+	@Override
+	public void write(Object t, MediaType contentType, HttpOutputMessage outputMessage)
+			throws IOException, HttpMessageNotWritableException {
+		Histogram.Timer timer = converterSerializationDuration.startTimer();
+		try {
+			httpMessageConverter.write(t, contentType, outputMessage);
+		} finally {
+			timer.observeDuration();
+		}
+	}
+
+	@Override
+	public void write(Object t, Type type, MediaType contentType, HttpOutputMessage outputMessage)
+			throws IOException, HttpMessageNotWritableException {
+		Histogram.Timer timer = converterSerializationDuration.startTimer();
+		try {
+			httpMessageConverter.write(t, type, contentType, outputMessage);
+		} finally {
+			timer.observeDuration();
+		}
+	}
+}
@@ -0,0 +1,12 @@
+package org.yifeng.spring.boot.blogservice.metrics.configurations;
+
+import org.springframework.context.annotation.Configuration;
+
+import io.prometheus.client.spring.boot.EnablePrometheusEndpoint;
+import io.prometheus.client.spring.boot.EnableSpringBootMetricsCollector;
+
+@Configuration
+@EnablePrometheusEndpoint
+@EnableSpringBootMetricsCollector
+public class MetricsConfiguration {
+}
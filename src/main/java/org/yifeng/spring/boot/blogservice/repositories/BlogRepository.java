@@ -1,10 +1,71 @@
 package org.yifeng.spring.boot.blogservice.repositories;
 
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.yifeng.spring.boot.blogservice.repositories.records.BlogRecord;
+import org.yifeng.spring.boot.blogservice.repositories.records.BlogSummaryRecord;
+import org.yifeng.spring.boot.blogservice.repositories.records.BlogVersionRecord;
 
 @Repository
-public interface BlogRepository extends JpaRepository<BlogRecord, Long> {
+public interface BlogRepository extends JpaRepository<BlogRecord, Long>, BlogRepositoryCustom {
+
+	String HINT_CACHEABLE = "org.hibernate.cacheable";
+
+	@QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+	List<BlogRecord> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+	@Query("select new org.yifeng.spring.boot.blogservice.repositories.records.BlogSummaryRecord("
+			+ "b.id, b.title, b.createdDate, b.lastModifiedDate) "
+			+ "from BlogRecord b where b.id > :id order by b.id asc")
+	@QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+	List<BlogSummaryRecord> findSummariesByIdGreaterThan(@Param("id") Long id, Pageable pageable);
+
+	@Query("select new org.yifeng.spring.boot.blogservice.repositories.records.BlogVersionRecord("
+			+ "b.version, b.lastModifiedDate) "
+			+ "from BlogRecord b where b.id = :id")
+	BlogVersionRecord findVersionById(@Param("id") Long id);
+
+	@Query("select b from BlogRecord b "
+			+ "where b.lastModifiedDate >= :lastModifiedDate and b.lastModifiedDate <= :untilDate "
+			+ "and (b.lastModifiedDate > :lastModifiedDate or b.id > :id) "
+			+ "order by b.lastModifiedDate asc, b.id asc")
+	List<BlogRecord> findModifiedAfter(
+			@Param("lastModifiedDate") Date lastModifiedDate,
+			@Param("id") Long id,
+			@Param("untilDate") Date untilDate,
+			Pageable pageable);
+
+	@Query("select b.id from BlogRecord b where b.id in :ids")
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	List<Long> findIdsByIdsForUpdate(@Param("ids") Collection<Long> ids);
+
+	@Modifying(clearAutomatically = true)
+	@Query("update BlogRecord b set "
+			+ "b.title = coalesce(:title, b.title), "
+			+ "b.content = coalesce(:content, b.content), "
+			+ "b.version = b.version + 1, "
+			+ "b.lastModifiedDate = :lastModifiedDate "
+			+ "where b.id in :ids")
+	int updateByIds(
+			@Param("ids") Collection<Long> ids,
+			@Param("title") String title,
+			@Param("content") String content,
+			@Param("lastModifiedDate") Date lastModifiedDate);
 
+	@Modifying(clearAutomatically = true)
+	@Query("delete from BlogRecord b where b.id in :ids")
+	int deleteByIds(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,17 @@
+package org.yifeng.spring.boot.blogservice.repositories;
+
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.yifeng.spring.boot.blogservice.repositories.records.BlogRecord;
+
+public interface BlogRepositoryCustom {
+
+	void detach(BlogRecord blogRecord);
+
+	Stream<BlogRecord> streamAll();
+
+	Map<Long, Long> incrementViewCounts(Map<Long, Long> viewCountDeltas);
+
+	void evictFromSecondLevelCache(long blogId);
+}
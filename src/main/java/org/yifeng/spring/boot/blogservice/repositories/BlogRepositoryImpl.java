@@ -0,0 +1,117 @@
+package org.yifeng.spring.boot.blogservice.repositories;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.hibernate.CacheMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.springframework.transaction.annotation.Transactional;
+import org.yifeng.spring.boot.blogservice.repositories.records.BlogRecord;
+
+public class BlogRepositoryImpl implements BlogRepositoryCustom {
+
+	private static final String INCREMENT_VIEW_COUNT_SQL = "update blog set view_count = view_count + ? where id = ?";
+	private static final String SELECT_VIEW_COUNTS_SQL = "select id, view_count from blog where id in (%s)";
+	private static final int VIEW_COUNT_BATCH_SIZE = 500;
+	private static final String STREAM_ALL_QUERY = "select b from BlogRecord b order by b.id asc";
+	private static final int STREAM_FETCH_SIZE = 500;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Override
+	public void detach(BlogRecord blogRecord) {
+		entityManager.detach(blogRecord);
+	}
+
+	// A scroll hydrates its rows under the session's cache mode rather than the query's, so the session ignores the
+	// second-level cache until the stream is closed; otherwise a full export would push the hot set out of the region.
+	@Override
+	public Stream<BlogRecord> streamAll() {
+		Session session = entityManager.unwrap(Session.class);
+		CacheMode cacheMode = session.getCacheMode();
+		session.setCacheMode(CacheMode.IGNORE);
+		ScrollableResults scrollableResults = session.createQuery(STREAM_ALL_QUERY)
+				.setFetchSize(STREAM_FETCH_SIZE)
+				.setReadOnly(true)
+				.setCacheMode(CacheMode.IGNORE)
+				.scroll(ScrollMode.FORWARD_ONLY);
+		return StreamSupport.stream(new Spliterators.AbstractSpliterator<BlogRecord>(Long.MAX_VALUE, 0) {
+			@Override
+			public boolean tryAdvance(Consumer<? super BlogRecord> action) {
+				if (!scrollableResults.next()) {
+					return false;
+				}
+				action.accept((BlogRecord) scrollableResults.get(0));
+				return true;
+			}
+		}, false).onClose(() -> {
+			scrollableResults.close();
+			session.setCacheMode(cacheMode);
+		});
+	}
+
+	// Plain JDBC keeps the increments batched and stops Hibernate from invalidating the whole blog cache region;
+	// ids are written in ascending order so concurrent flushes lock rows in the same order. The cached records keep
+	// their old view counts, which is safe because the column is never written back, so the counts read back in the
+	// same transaction are returned for the caller to serve instead.
+	@Override
+	@Transactional
+	public Map<Long, Long> incrementViewCounts(Map<Long, Long> viewCountDeltas) {
+		Map<Long, Long> sortedViewCountDeltas = new TreeMap<>(viewCountDeltas);
+		Map<Long, Long> viewCounts = new HashMap<>();
+		entityManager.unwrap(Session.class).doWork(connection -> {
+			try (PreparedStatement preparedStatement = connection.prepareStatement(INCREMENT_VIEW_COUNT_SQL)) {
+				int batchCount = 0;
+				for (Map.Entry<Long, Long> viewCountDelta : sortedViewCountDeltas.entrySet()) {
+					preparedStatement.setLong(1, viewCountDelta.getValue());
+					preparedStatement.setLong(2, viewCountDelta.getKey());
+					preparedStatement.addBatch();
+					if (++batchCount % VIEW_COUNT_BATCH_SIZE == 0) {
+						preparedStatement.executeBatch();
+					}
+				}
+				if (batchCount % VIEW_COUNT_BATCH_SIZE != 0) {
+					preparedStatement.executeBatch();
+				}
+			}
+			List<Long> blogIds = new ArrayList<>(sortedViewCountDeltas.keySet());
+			for (int from = 0; from < blogIds.size(); from += VIEW_COUNT_BATCH_SIZE) {
+				List<Long> batchBlogIds = blogIds.subList(from, Math.min(from + VIEW_COUNT_BATCH_SIZE, blogIds.size()));
+				String sql = String.format(SELECT_VIEW_COUNTS_SQL,
+						String.join(", ", Collections.nCopies(batchBlogIds.size(), "?")));
+				try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+					for (int i = 0; i < batchBlogIds.size(); i++) {
+						preparedStatement.setLong(i + 1, batchBlogIds.get(i));
+					}
+					try (ResultSet resultSet = preparedStatement.executeQuery()) {
+						while (resultSet.next()) {
+							viewCounts.put(resultSet.getLong(1), resultSet.getLong(2));
+						}
+					}
+				}
+			}
+		});
+		return viewCounts;
+	}
+
+	@Override
+	public void evictFromSecondLevelCache(long blogId) {
+		entityManager.getEntityManagerFactory().getCache().evict(BlogRecord.class, blogId);
+	}
+}
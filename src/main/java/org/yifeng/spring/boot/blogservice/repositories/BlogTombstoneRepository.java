@@ -0,0 +1,30 @@
+package org.yifeng.spring.boot.blogservice.repositories;
+
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.yifeng.spring.boot.blogservice.repositories.records.BlogTombstoneRecord;
+
+@Repository
+public interface BlogTombstoneRepository extends JpaRepository<BlogTombstoneRecord, Long> {
+
+	@Query("select t from BlogTombstoneRecord t "
+			+ "where t.deletedDate >= :deletedDate and t.deletedDate <= :untilDate "
+			+ "and (t.deletedDate > :deletedDate or t.blogId > :blogId) "
+			+ "order by t.deletedDate asc, t.blogId asc")
+	List<BlogTombstoneRecord> findDeletedAfter(
+			@Param("deletedDate") Date deletedDate,
+			@Param("blogId") Long blogId,
+			@Param("untilDate") Date untilDate,
+			Pageable pageable);
+
+	@Modifying(clearAutomatically = true)
+	@Query("delete from BlogTombstoneRecord t where t.deletedDate < :deletedDate")
+	int deleteByDeletedDateBefore(@Param("deletedDate") Date deletedDate);
+}
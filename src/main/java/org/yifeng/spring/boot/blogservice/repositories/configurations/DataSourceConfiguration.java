@@ -0,0 +1,95 @@
+package org.yifeng.spring.boot.blogservice.repositories.configurations;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.yifeng.spring.boot.blogservice.repositories.datasources.ReplicaRoutingDataSource;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+
+@Configuration
+@EnableScheduling
+public class DataSourceConfiguration {
+
+	public static final String REPLICA_URLS_PROPERTY = "blog-service.datasource.replica-urls";
+
+	private static final String POOL_NAME_PREFIX = "blog-service-";
+
+	@Autowired
+	private DataSourceProperties dataSourceProperties;
+
+	@Autowired(required = false)
+	private MetricsTrackerFactory metricsTrackerFactory;
+
+	@Value("${" + REPLICA_URLS_PROPERTY + ":}")
+	private String[] replicaUrls;
+
+	private ReplicaRoutingDataSource replicaRoutingDataSource;
+
+	@Bean
+	@ConfigurationProperties(prefix = "spring.datasource.hikari")
+	public HikariConfig getHikariConfig() {
+		return new HikariConfig();
+	}
+
+	@Bean
+	@Primary
+	public DataSource getDataSource() {
+		HikariDataSource primaryDataSource = createHikariDataSource("primary", dataSourceProperties.determineUrl());
+		if (replicaUrls.length == 0) {
+			return primaryDataSource;
+		}
+		List<DataSource> replicaDataSources = new ArrayList<>();
+		for (int i = 0; i < replicaUrls.length; i++) {
+			HikariDataSource replicaDataSource = createHikariDataSource("replica-" + i, replicaUrls[i].trim());
+			replicaDataSource.setInitializationFailFast(false);
+			replicaDataSources.add(replicaDataSource);
+		}
+		replicaRoutingDataSource = new ReplicaRoutingDataSource(primaryDataSource, replicaDataSources);
+		return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+	}
+
+	// The lazy proxy has no close method, so the pools behind it are closed with this configuration instead.
+	@PreDestroy
+	public void closeDataSources() {
+		if (replicaRoutingDataSource != null) {
+			replicaRoutingDataSource.close();
+		}
+	}
+
+	@Scheduled(fixedDelayString = "${blog-service.datasource.health-check-interval-millis:5000}")
+	public void checkReplicaHealth() {
+		if (replicaRoutingDataSource != null) {
+			replicaRoutingDataSource.checkReplicaHealth();
+		}
+	}
+
+	private HikariDataSource createHikariDataSource(String poolName, String url) {
+		HikariDataSource hikariDataSource = new HikariDataSource();
+		getHikariConfig().copyState(hikariDataSource);
+		hikariDataSource.setPoolName(POOL_NAME_PREFIX + poolName);
+		hikariDataSource.setJdbcUrl(url);
+		hikariDataSource.setUsername(dataSourceProperties.determineUsername());
+		hikariDataSource.setPassword(dataSourceProperties.determinePassword());
+		hikariDataSource.setDriverClassName(dataSourceProperties.determineDriverClassName());
+		if (metricsTrackerFactory != null) {
+			hikariDataSource.setMetricsTrackerFactory(metricsTrackerFactory);
+		}
+		return hikariDataSource;
+	}
+}
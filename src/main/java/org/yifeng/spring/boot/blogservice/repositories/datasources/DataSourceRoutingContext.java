@@ -0,0 +1,37 @@
+package org.yifeng.spring.boot.blogservice.repositories.datasources;
+
+import org.springframework.core.NamedThreadLocal;
+
+public class DataSourceRoutingContext {
+
+	private static final ThreadLocal<Boolean> primaryRequired = new NamedThreadLocal<>("Primary data source required");
+
+	public static boolean isPrimaryRequired() {
+		return Boolean.TRUE.equals(primaryRequired.get());
+	}
+
+	public static void setPrimaryRequired(boolean required) {
+		if (required) {
+			primaryRequired.set(Boolean.TRUE);
+		} else {
+			primaryRequired.remove();
+		}
+	}
+
+	public static void clear() {
+		primaryRequired.remove();
+	}
+
+	public static Runnable propagate(Runnable runnable) {
+		boolean required = isPrimaryRequired();
+		return () -> {
+			boolean previousRequired = isPrimaryRequired();
+			setPrimaryRequired(required);
+			try {
+				runnable.run();
+			} finally {
+				setPrimaryRequired(previousRequired);
+			}
+		};
+	}
+}
@@ -0,0 +1,139 @@
+package org.yifeng.spring.boot.blogservice.repositories.datasources;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class ReplicaRoutingDataSource extends AbstractDataSource implements Closeable {
+
+	private static final Logger logger = LogManager.getLogger();
+
+	private static final int VALIDATION_TIMEOUT_SECONDS = 1;
+
+	private final DataSource primaryDataSource;
+	private final List<DataSource> replicaDataSources;
+	private final Set<Integer> unhealthyReplicaIndexes = ConcurrentHashMap.newKeySet();
+	private final AtomicInteger nextReplicaIndex = new AtomicInteger();
+
+	public ReplicaRoutingDataSource(DataSource primaryDataSource, List<DataSource> replicaDataSources) {
+		this.primaryDataSource = primaryDataSource;
+		this.replicaDataSources = Collections.unmodifiableList(new ArrayList<>(replicaDataSources));
+	}
+
+	public DataSource getPrimaryDataSource() {
+		return primaryDataSource;
+	}
+
+	public List<DataSource> getReplicaDataSources() {
+		return replicaDataSources;
+	}
+
+	public int getHealthyReplicaCount() {
+		return replicaDataSources.size() - unhealthyReplicaIndexes.size();
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		return routeConnection(dataSource -> dataSource.getConnection());
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		return routeConnection(dataSource -> dataSource.getConnection(username, password));
+	}
+
+	public void checkReplicaHealth() {
+		for (int replicaIndex = 0; replicaIndex < replicaDataSources.size(); replicaIndex++) {
+			try (Connection connection = replicaDataSources.get(replicaIndex).getConnection()) {
+				if (connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+					markHealthy(replicaIndex);
+				} else {
+					markUnhealthy(replicaIndex, null);
+				}
+			} catch (SQLException e) {
+				markUnhealthy(replicaIndex, e);
+			}
+		}
+	}
+
+	@Override
+	public void close() {
+		for (DataSource replicaDataSource : replicaDataSources) {
+			closeDataSource(replicaDataSource);
+		}
+		closeDataSource(primaryDataSource);
+	}
+
+	private void closeDataSource(DataSource dataSource) {
+		if (dataSource instanceof Closeable) {
+			try {
+				((Closeable) dataSource).close();
+			} catch (IOException | RuntimeException e) {
+				logger.warn("Failed to close data source " + dataSource, e);
+			}
+		}
+	}
+
+	private Connection routeConnection(ConnectionFactory connectionFactory) throws SQLException {
+		if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+				&& !DataSourceRoutingContext.isPrimaryRequired()) {
+			int replicaIndex;
+			while ((replicaIndex = nextHealthyReplicaIndex()) >= 0) {
+				try {
+					return connectionFactory.getConnection(replicaDataSources.get(replicaIndex));
+				} catch (SQLException e) {
+					markUnhealthy(replicaIndex, e);
+				}
+			}
+		}
+		return connectionFactory.getConnection(primaryDataSource);
+	}
+
+	private int nextHealthyReplicaIndex() {
+		int replicaCount = replicaDataSources.size();
+		if (replicaCount == 0) {
+			return -1;
+		}
+		int firstReplicaIndex = Math.floorMod(nextReplicaIndex.getAndIncrement(), replicaCount);
+		for (int i = 0; i < replicaCount; i++) {
+			int replicaIndex = (firstReplicaIndex + i) % replicaCount;
+			if (!unhealthyReplicaIndexes.contains(replicaIndex)) {
+				return replicaIndex;
+			}
+		}
+		return -1;
+	}
+
+	private void markHealthy(int replicaIndex) {
+		if (unhealthyReplicaIndexes.remove(replicaIndex)) {
+			logger.info("Replica " + replicaIndex + " is healthy again");
+		}
+	}
+
+	private void markUnhealthy(int replicaIndex, SQLException e) {
+		if (unhealthyReplicaIndexes.add(replicaIndex)) {
+			logger.warn("Replica " + replicaIndex + " is unhealthy, routing its reads to primary"
+					+ (e == null ? "" : ": " + e.getMessage()));
+		}
+	}
+
+	@FunctionalInterface
+	private interface ConnectionFactory {
+
+		Connection getConnection(DataSource dataSource) throws SQLException;
+	}
+}
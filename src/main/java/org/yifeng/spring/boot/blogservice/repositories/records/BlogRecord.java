@@ -2,16 +2,23 @@ package org.yifeng.spring.boot.blogservice.repositories.records;
 
 import java.util.Date;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.EntityListeners;
 import javax.persistence.GeneratedValue;
-import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.Table;
 import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
+import javax.persistence.Version;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 import org.hibernate.validator.constraints.Length;
 import org.hibernate.validator.constraints.NotBlank;
 import org.springframework.data.annotation.CreatedDate;
@@ -19,12 +26,23 @@ import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 @Entity
-@Table(name = "blog")
+@Table(name = "blog", indexes = @Index(
+		name = "idx_blog_last_modified_date_id", columnList = "lastModifiedDate, id"))
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @EntityListeners(AuditingEntityListener.class)
 public class BlogRecord {
 
+	private static final String ID_GENERATOR = "blogIdGenerator";
+	private static final int ID_ALLOCATION_SIZE = 50;
+
 	@Id
-	@GeneratedValue(strategy = GenerationType.AUTO)
+	@GeneratedValue(generator = ID_GENERATOR)
+	@GenericGenerator(name = ID_GENERATOR, strategy = "org.hibernate.id.enhanced.TableGenerator", parameters = {
+			@Parameter(name = "table_name", value = "blog_id_sequence"),
+			@Parameter(name = "segment_value", value = "blog"),
+			@Parameter(name = "increment_size", value = "" + ID_ALLOCATION_SIZE),
+			@Parameter(name = "optimizer", value = "pooled-lo") })
 	private Long id;
 
 	@NotBlank
@@ -35,6 +53,10 @@ public class BlogRecord {
 	@Length(min = 1, max = 10000)
 	private String content;
 
+	@Version
+	@Column(nullable = false)
+	private Long version;
+
 	@CreatedDate
 	@Temporal(TemporalType.TIMESTAMP)
 	@Column(nullable = false, updatable = false)
@@ -45,6 +67,11 @@ public class BlogRecord {
 	@Column(nullable = false)
 	private Date lastModifiedDate;
 
+	// Only ever written by batched view count increments, never by entity updates.
+	@ColumnDefault("0")
+	@Column(nullable = false, updatable = false)
+	private long viewCount;
+
 	public BlogRecord() {
 		
 	}
@@ -66,6 +93,10 @@ public class BlogRecord {
 		return content;
 	}
 
+	public Long getVersion() {
+		return version;
+	}
+
 	public Date getCreatedDate() {
 		return createdDate;
 	}
@@ -74,6 +105,10 @@ public class BlogRecord {
 		return lastModifiedDate;
 	}
 
+	public long getViewCount() {
+		return viewCount;
+	}
+
 	public void setTitle(String title) {
 		this.title = title;
 	}
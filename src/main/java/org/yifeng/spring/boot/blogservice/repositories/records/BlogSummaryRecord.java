@@ -0,0 +1,34 @@
+package org.yifeng.spring.boot.blogservice.repositories.records;
+
+import java.util.Date;
+
+public class BlogSummaryRecord {
+
+	private Long id;
+	private String title;
+	private Date createdDate;
+	private Date lastModifiedDate;
+
+	public BlogSummaryRecord(Long id, String title, Date createdDate, Date lastModifiedDate) {
+		this.id = id;
+		this.title = title;
+		this.createdDate = createdDate;
+		this.lastModifiedDate = lastModifiedDate;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public String getTitle() {
+		return title;
+	}
+
+	public Date getCreatedDate() {
+		return createdDate;
+	}
+
+	public Date getLastModifiedDate() {
+		return lastModifiedDate;
+	}
+}
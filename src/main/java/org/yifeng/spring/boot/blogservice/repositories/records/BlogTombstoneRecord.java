@@ -0,0 +1,54 @@
+package org.yifeng.spring.boot.blogservice.repositories.records;
+
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+
+import org.springframework.data.domain.Persistable;
+
+@Entity
+@Table(name = "blog_tombstone", indexes = @Index(
+		name = "idx_blog_tombstone_deleted_date_blog_id", columnList = "deletedDate, blogId"))
+public class BlogTombstoneRecord implements Persistable<Long> {
+
+	@Id
+	private Long blogId;
+
+	@Temporal(TemporalType.TIMESTAMP)
+	@Column(nullable = false, updatable = false)
+	private Date deletedDate;
+
+	public BlogTombstoneRecord() {
+
+	}
+
+	public BlogTombstoneRecord(Long blogId, Date deletedDate) {
+		this.blogId = blogId;
+		this.deletedDate = deletedDate;
+	}
+
+	public Long getBlogId() {
+		return blogId;
+	}
+
+	public Date getDeletedDate() {
+		return deletedDate;
+	}
+
+	@Override
+	public Long getId() {
+		return blogId;
+	}
+
+	// Blog ids are never reused, so a tombstone is only ever inserted and save() can skip the merge lookup.
+	@Override
+	public boolean isNew() {
+		return true;
+	}
+}
@@ -0,0 +1,22 @@
+package org.yifeng.spring.boot.blogservice.repositories.records;
+
+import java.util.Date;
+
+public class BlogVersionRecord {
+
+	private Long version;
+	private Date lastModifiedDate;
+
+	public BlogVersionRecord(Long version, Date lastModifiedDate) {
+		this.version = version;
+		this.lastModifiedDate = lastModifiedDate;
+	}
+
+	public Long getVersion() {
+		return version;
+	}
+
+	public Date getLastModifiedDate() {
+		return lastModifiedDate;
+	}
+}
@@ -1,72 +1,587 @@
 package org.yifeng.spring.boot.blogservice.services;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.validator.constraints.NotBlank;
+import org.hibernate.validator.constraints.NotEmpty;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.validation.annotation.Validated;
 import org.yifeng.spring.boot.blogservice.repositories.BlogRepository;
+import org.yifeng.spring.boot.blogservice.repositories.BlogTombstoneRepository;
+import org.yifeng.spring.boot.blogservice.repositories.datasources.DataSourceRoutingContext;
 import org.yifeng.spring.boot.blogservice.repositories.records.BlogRecord;
+import org.yifeng.spring.boot.blogservice.repositories.records.BlogSummaryRecord;
+import org.yifeng.spring.boot.blogservice.repositories.records.BlogTombstoneRecord;
+import org.yifeng.spring.boot.blogservice.repositories.records.BlogVersionRecord;
+import org.yifeng.spring.boot.blogservice.services.events.BlogEvent;
+import org.yifeng.spring.boot.blogservice.services.events.BlogEventType;
+import org.yifeng.spring.boot.blogservice.services.exceptions.BlogChangesExpiredException;
+import org.yifeng.spring.boot.blogservice.services.exceptions.BlogNotFoundException;
+import org.yifeng.spring.boot.blogservice.services.loaders.SingleFlightLoader;
 import org.yifeng.spring.boot.blogservice.services.models.Blog;
+import org.yifeng.spring.boot.blogservice.services.models.BlogChangePosition;
+import org.yifeng.spring.boot.blogservice.services.models.BlogChanges;
+import org.yifeng.spring.boot.blogservice.services.models.BlogPatch;
+import org.yifeng.spring.boot.blogservice.services.models.BlogSummary;
+import org.yifeng.spring.boot.blogservice.services.models.BlogVersion;
+import org.yifeng.spring.boot.blogservice.services.models.KeysetPage;
+import org.yifeng.spring.boot.blogservice.services.search.BlogSearchIndex;
+import org.yifeng.spring.boot.blogservice.services.views.BlogViewCounter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 
 @Service
 @Validated
 public class BlogService {
 
+	public static final int MAX_BATCH_SIZE = 1000;
+	public static final int MAX_SEARCH_OFFSET = 10000;
+
+	private static final Logger logger = LogManager.getLogger();
+
 	@Autowired
 	private BlogRepository blogRepository;
 
-	public List<Blog> getBlogs() {
-		return toBlogs(blogRepository.findAll());
+	@Autowired
+	private BlogTombstoneRepository blogTombstoneRepository;
+
+	@Autowired
+	private BlogSearchIndex blogSearchIndex;
+
+	@Autowired
+	private ApplicationEventPublisher applicationEventPublisher;
+
+	@Autowired
+	private TaskScheduler taskScheduler;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Value("${blog-service.cache.enabled:true}")
+	private boolean blogCacheEnabled;
+
+	@Value("${blog-service.cache.maximum-size:10000}")
+	private long blogCacheMaximumSize;
+
+	@Value("${blog-service.cache.expire-after-write-seconds:60}")
+	private long blogCacheExpireAfterWriteSeconds;
+
+	@Value("${blog-service.changes.settle-millis:2000}")
+	private long changesSettleMillis;
+
+	@Value("${blog-service.changes.tombstone-retention-days:30}")
+	private long tombstoneRetentionDays;
+
+	@Value("${blog-service.views.max-pending-blogs:10000}")
+	private int maxPendingBlogViews;
+
+	@Value("${blog-service.views.flushed-count-expire-after-write-seconds:360}")
+	private long flushedViewCountExpireAfterWriteSeconds;
+
+	private TransactionTemplate readOnlyTransactionTemplate;
+	private Cache<Long, Blog> blogCache;
+	private Cache<Long, Long> flushedViewCounts;
+	private BlogViewCounter blogViewCounter;
+	private final AtomicBoolean blogViewFlushScheduled = new AtomicBoolean();
+
+	private final SingleFlightLoader<Long, Blog> blogLoader = new SingleFlightLoader<>();
+	private final SingleFlightLoader<Long, BlogVersionRecord> blogVersionLoader = new SingleFlightLoader<>();
+
+	@PostConstruct
+	public void initReadOnlyTransactionTemplate() {
+		readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+		readOnlyTransactionTemplate.setReadOnly(true);
 	}
 
+	@PostConstruct
+	public void initBlogCache() {
+		if (blogCacheEnabled) {
+			blogCache = Caffeine.newBuilder()
+					.maximumSize(blogCacheMaximumSize)
+					.expireAfterWrite(blogCacheExpireAfterWriteSeconds, TimeUnit.SECONDS)
+					.recordStats()
+					.build();
+		}
+	}
+
+	@PostConstruct
+	public void initBlogViewCounter() {
+		blogViewCounter = new BlogViewCounter(maxPendingBlogViews);
+		// A flushed count must outlive every cached copy read before its flush: those expire by themselves, but a count
+		// pushed out for size takes the copies of its blog with it, so they can not show an older count afterwards.
+		flushedViewCounts = Caffeine.newBuilder()
+				.maximumSize(blogCacheMaximumSize)
+				.expireAfterWrite(flushedViewCountExpireAfterWriteSeconds, TimeUnit.SECONDS)
+				.executor(Runnable::run)
+				.<Long, Long>removalListener((blogId, viewCount, removalCause) -> {
+					if (removalCause == RemovalCause.SIZE) {
+						evictBlogs(Collections.singletonList(blogId));
+						blogRepository.evictFromSecondLevelCache(blogId);
+					}
+				})
+				.build();
+	}
+
+	public CacheStats getBlogCacheStats() {
+		return blogCache == null ? CacheStats.empty() : blogCache.stats();
+	}
+
+	public long getBlogCacheSize() {
+		return blogCache == null ? 0L : blogCache.estimatedSize();
+	}
+
+	public SingleFlightLoader<Long, Blog> getBlogLoader() {
+		return blogLoader;
+	}
+
+	public SingleFlightLoader<Long, BlogVersionRecord> getBlogVersionLoader() {
+		return blogVersionLoader;
+	}
+
+	public BlogViewCounter getBlogViewCounter() {
+		return blogViewCounter;
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	@Transactional(readOnly = true)
+	public void buildSearchIndex() {
+		blogSearchIndex.clear();
+		exportBlogs(blog -> blogSearchIndex.index(blog.getId(), blog.getTitle(), blog.getContent()));
+	}
+
+	@Transactional(readOnly = true)
+	public KeysetPage<Blog> searchBlogs(
+			@NotBlank String query, @Min(0) @Max(MAX_SEARCH_OFFSET) int offset, @Min(1) int limit) {
+		KeysetPage<Long> blogIdPage = blogSearchIndex.search(query, offset, limit);
+		Map<Long, BlogRecord> blogRecordsById = blogRepository.findAll(blogIdPage.getItems()).stream()
+				.collect(Collectors.toMap(BlogRecord::getId, Function.identity()));
+		List<Blog> blogs = blogIdPage.getItems().stream()
+				.map(blogRecordsById::get)
+				.filter(Objects::nonNull)
+				.map(blogRecord -> withViewCounts(toBlog(blogRecord)))
+				.collect(Collectors.toList());
+		return new KeysetPage<>(blogs, blogIdPage.hasNext());
+	}
+
+	@Transactional(readOnly = true)
+	public KeysetPage<Blog> getBlogs(long afterBlogId, @Min(1) int limit) {
+		List<BlogRecord> blogRecords = blogRepository.findByIdGreaterThanOrderByIdAsc(
+				afterBlogId, new PageRequest(0, limit + 1));
+		boolean hasNext = blogRecords.size() > limit;
+		return new KeysetPage<>(withViewCounts(toBlogs(hasNext ? blogRecords.subList(0, limit) : blogRecords)), hasNext);
+	}
+
+	@Transactional(readOnly = true)
+	public KeysetPage<BlogSummary> getBlogSummaries(long afterBlogId, @Min(1) int limit) {
+		List<BlogSummaryRecord> blogSummaryRecords = blogRepository.findSummariesByIdGreaterThan(
+				afterBlogId, new PageRequest(0, limit + 1));
+		boolean hasNext = blogSummaryRecords.size() > limit;
+		return new KeysetPage<>(
+				toBlogSummaries(hasNext ? blogSummaryRecords.subList(0, limit) : blogSummaryRecords), hasNext);
+	}
+
+	// Rows newer than the settle window are held back so that a write committing late with an older
+	// timestamp cannot land behind a position that has already been handed out.
+	@Transactional(readOnly = true)
+	public BlogChanges getBlogChanges(@NotNull BlogChangePosition after, @Min(1) int limit) {
+		long now = System.currentTimeMillis();
+		// Tombstones older than the retention may have been purged, so a position before it would silently miss
+		// deletes. Position 0 is a full sync, which has nothing to delete yet.
+		long retainedSinceEpoch = now - TimeUnit.DAYS.toMillis(tombstoneRetentionDays);
+		if (after.getDeletedEpoch() != 0L && after.getDeletedEpoch() < retainedSinceEpoch) {
+			throw new BlogChangesExpiredException(after.getDeletedEpoch(), retainedSinceEpoch);
+		}
+		Date untilDate = new Date(now - changesSettleMillis);
+		PageRequest pageRequest = new PageRequest(0, limit + 1);
+		List<BlogRecord> blogRecords = blogRepository.findModifiedAfter(
+				new Date(after.getModifiedEpoch()), after.getModifiedBlogId(), untilDate, pageRequest);
+		List<BlogTombstoneRecord> blogTombstoneRecords = blogTombstoneRepository.findDeletedAfter(
+				new Date(after.getDeletedEpoch()), after.getDeletedBlogId(), untilDate, pageRequest);
+		boolean hasNextModified = blogRecords.size() > limit;
+		boolean hasNextDeleted = blogTombstoneRecords.size() > limit;
+		if (hasNextModified) {
+			blogRecords = blogRecords.subList(0, limit);
+		}
+		if (hasNextDeleted) {
+			blogTombstoneRecords = blogTombstoneRecords.subList(0, limit);
+		}
+		long modifiedEpoch = after.getModifiedEpoch();
+		long modifiedBlogId = after.getModifiedBlogId();
+		if (hasNextModified) {
+			BlogRecord lastBlogRecord = blogRecords.get(blogRecords.size() - 1);
+			modifiedEpoch = lastBlogRecord.getLastModifiedDate().getTime();
+			modifiedBlogId = lastBlogRecord.getId();
+		} else if (untilDate.getTime() >= modifiedEpoch) {
+			modifiedEpoch = untilDate.getTime();
+			modifiedBlogId = Long.MAX_VALUE;
+		}
+		long deletedEpoch = after.getDeletedEpoch();
+		long deletedBlogId = after.getDeletedBlogId();
+		if (hasNextDeleted) {
+			BlogTombstoneRecord lastBlogTombstoneRecord = blogTombstoneRecords.get(blogTombstoneRecords.size() - 1);
+			deletedEpoch = lastBlogTombstoneRecord.getDeletedDate().getTime();
+			deletedBlogId = lastBlogTombstoneRecord.getBlogId();
+		} else if (untilDate.getTime() >= deletedEpoch) {
+			deletedEpoch = untilDate.getTime();
+			deletedBlogId = Long.MAX_VALUE;
+		}
+		List<Long> deletedBlogIds = blogTombstoneRecords.stream()
+				.map(BlogTombstoneRecord::getBlogId)
+				.collect(Collectors.toList());
+		return new BlogChanges(withViewCounts(toBlogs(blogRecords)), deletedBlogIds,
+				new BlogChangePosition(modifiedEpoch, modifiedBlogId, deletedEpoch, deletedBlogId),
+				hasNextModified || hasNextDeleted);
+	}
+
+	@Scheduled(fixedDelayString = "${blog-service.changes.tombstone-purge-interval-millis:3600000}")
+	@Transactional
+	public void purgeBlogTombstones() {
+		blogTombstoneRepository.deleteByDeletedDateBefore(
+				new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(tombstoneRetentionDays)));
+	}
+
+	@Transactional(readOnly = true)
+	public void exportBlogs(@NotNull Consumer<Blog> blogConsumer) {
+		try (Stream<BlogRecord> blogRecords = blogRepository.streamAll()) {
+			blogRecords.forEach(blogRecord -> {
+				blogConsumer.accept(toBlog(blogRecord));
+				blogRepository.detach(blogRecord);
+			});
+		}
+	}
+
+	// Only a miss opens the read-only transaction, so a cache hit never takes a pooled connection.
 	public Blog getBlog(long blogId) {
-		return toBlog(getExistBlog(blogId));
+		// Reads pinned to the primary skip the cache, which may still hold a copy loaded before their write.
+		if (DataSourceRoutingContext.isPrimaryRequired()) {
+			return withViewCounts(loadBlog(blogId));
+		}
+		// Caffeine's get coalesces concurrent misses per key, and a write's put or eviction waits for the load. A miss
+		// that gets its blog without running its own load waited on another caller's, so the loader counts it.
+		if (blogCache != null) {
+			boolean cached = blogCache.asMap().containsKey(blogId);
+			AtomicBoolean loaded = new AtomicBoolean();
+			Blog blog = blogCache.get(blogId, id -> {
+				loaded.set(true);
+				return blogLoader.load(id, this::loadBlog);
+			});
+			if (!cached && !loaded.get()) {
+				blogLoader.recordCoalesced();
+			}
+			return withViewCounts(blog);
+		}
+		return withViewCounts(blogLoader.load(blogId, this::loadBlog));
 	}
 
+	// A full counter is flushed on the scheduler straight away, never on the request thread that filled it.
+	public void recordBlogView(long blogId) {
+		if (blogViewCounter.increment(blogId) && blogViewFlushScheduled.compareAndSet(false, true)) {
+			taskScheduler.schedule(() -> {
+				blogViewFlushScheduled.set(false);
+				flushBlogViews();
+			}, new Date());
+		}
+	}
+
+	// Synchronized so a flush of a full counter never overlaps the periodic one.
+	@Scheduled(fixedDelayString = "${blog-service.views.flush-interval-millis:5000}")
+	@PreDestroy
+	public synchronized void flushBlogViews() {
+		Map<Long, Long> viewDeltas = blogViewCounter.drain();
+		if (viewDeltas.isEmpty()) {
+			blogViewCounter.completeDrain();
+			return;
+		}
+		try {
+			flushedViewCounts.putAll(blogRepository.incrementViewCounts(viewDeltas));
+			blogViewCounter.completeDrain();
+		} catch (RuntimeException e) {
+			blogViewCounter.restore(viewDeltas);
+			logger.warn("Failed to flush views of {} blogs, retrying on next flush", viewDeltas.size(), e);
+		}
+	}
+
+	// Misses are not put into the cache: an unconditional put of a row read here could overwrite the entry of a write
+	// that committed in between, so only getBlog's coalesced loads fill the cache.
+	public List<Blog> getBlogsByIds(@NotEmpty @Size(max = MAX_BATCH_SIZE) Collection<Long> blogIds) {
+		List<Long> distinctBlogIds = blogIds.stream().distinct().collect(Collectors.toList());
+		Map<Long, Blog> blogsById = new HashMap<>();
+		if (blogCache != null && !DataSourceRoutingContext.isPrimaryRequired()) {
+			blogsById.putAll(blogCache.getAllPresent(distinctBlogIds));
+		}
+		List<Long> missedBlogIds = distinctBlogIds.stream()
+				.filter(blogId -> !blogsById.containsKey(blogId))
+				.collect(Collectors.toList());
+		if (!missedBlogIds.isEmpty()) {
+			blogsById.putAll(readOnlyTransactionTemplate.execute(status -> loadBlogs(missedBlogIds)));
+		}
+		return distinctBlogIds.stream()
+				.map(blogsById::get)
+				.filter(Objects::nonNull)
+				.map(this::withViewCounts)
+				.collect(Collectors.toList());
+	}
+
+	public BlogVersion getBlogVersion(long blogId) {
+		Blog cachedBlog = blogCache == null || DataSourceRoutingContext.isPrimaryRequired()
+				? null : blogCache.getIfPresent(blogId);
+		if (cachedBlog != null) {
+			return new BlogVersion(cachedBlog.getVersion(), cachedBlog.getLastModifiedEpoch());
+		}
+		BlogVersionRecord blogVersionRecord = loadOnce(blogVersionLoader, blogId,
+				id -> readOnlyTransactionTemplate.execute(status -> blogRepository.findVersionById(id)));
+		if (blogVersionRecord == null) {
+			throw new BlogNotFoundException(blogId);
+		}
+		return toBlogVersion(blogVersionRecord);
+	}
+
+	@Transactional
 	public Blog createBlog(@Valid @NotNull Blog blog) {
 		BlogRecord blogRecord = new BlogRecord(blog.getTitle(), blog.getContent());
-		return toBlog(blogRepository.save(blogRecord));
+		Blog createdBlog = toBlog(blogRepository.save(blogRecord));
+		afterCommit(() -> {
+			cacheBlog(createdBlog);
+			indexBlogs(Collections.singletonList(createdBlog));
+			publishBlogEvents(BlogEventType.CREATED, Collections.singletonList(createdBlog));
+		});
+		return createdBlog;
+	}
+
+	@Transactional
+	public List<Blog> createBlogs(@Valid @NotEmpty @Size(max = MAX_BATCH_SIZE) List<Blog> blogs) {
+		List<BlogRecord> blogRecords = blogs.stream()
+				.map(blog -> new BlogRecord(blog.getTitle(), blog.getContent()))
+				.collect(Collectors.toList());
+		List<Blog> createdBlogs = toBlogs(blogRepository.save(blogRecords));
+		afterCommit(() -> {
+			indexBlogs(createdBlogs);
+			publishBlogEvents(BlogEventType.CREATED, createdBlogs);
+		});
+		return createdBlogs;
 	}
 
-	public Blog updateBlog(long blogId, @Valid @NotNull Blog blog) {
+	@Transactional
+	public Blog updateBlog(long blogId, Long expectedVersion, @Valid @NotNull Blog blog) {
 		BlogRecord blogRecord = getExistBlog(blogId);
+		if (expectedVersion != null && !expectedVersion.equals(blogRecord.getVersion())) {
+			throw new OptimisticLockingFailureException("Blog " + blogId + " is at version "
+					+ blogRecord.getVersion() + ", not " + expectedVersion);
+		}
 		blogRecord.setTitle(blog.getTitle());
 		blogRecord.setContent(blog.getContent());
-		return toBlog(blogRepository.save(blogRecord));
+		Blog updatedBlog = toBlog(blogRepository.saveAndFlush(blogRecord));
+		afterCommit(() -> {
+			cacheBlog(updatedBlog);
+			indexBlogs(Collections.singletonList(updatedBlog));
+			publishBlogEvents(BlogEventType.UPDATED, Collections.singletonList(updatedBlog));
+		});
+		return updatedBlog;
 	}
 
+	@Transactional
+	public int patchBlogs(
+			@NotEmpty @Size(max = MAX_BATCH_SIZE) Collection<Long> blogIds,
+			@Valid @NotNull BlogPatch blogPatch) {
+		int affectedCount = blogRepository.updateByIds(
+				blogIds, blogPatch.getTitle(), blogPatch.getContent(), new Date());
+		List<Blog> patchedBlogs = toBlogs(blogRepository.findAll(blogIds));
+		afterCommit(() -> {
+			evictBlogs(blogIds);
+			indexBlogs(patchedBlogs);
+			publishBlogEvents(BlogEventType.UPDATED, patchedBlogs);
+		});
+		return affectedCount;
+	}
+
+	@Transactional
 	public void deleteBlog(long blogId) {
 		try {
-			blogRepository.delete(blogId);
-		} catch (EmptyResultDataAccessException e) {
-			throw new IllegalArgumentException("No blog with id: " + blogId, e);
+			blogRepository.delete(getExistBlog(blogId));
+			blogRepository.flush();
+			blogTombstoneRepository.save(new BlogTombstoneRecord(blogId, new Date()));
+			afterCommit(() -> {
+				unindexBlogs(Collections.singleton(blogId));
+				publishBlogDeletedEvents(Collections.singleton(blogId));
+			});
+		} finally {
+			afterCommit(() -> evictBlogs(Collections.singleton(blogId)));
 		}
 	}
 
+	@Transactional
+	public int deleteBlogs(@NotEmpty @Size(max = MAX_BATCH_SIZE) Collection<Long> blogIds) {
+		List<Long> deletedBlogIds = blogRepository.findIdsByIdsForUpdate(blogIds);
+		int affectedCount = blogRepository.deleteByIds(blogIds);
+		Date deletedDate = new Date();
+		blogTombstoneRepository.save(deletedBlogIds.stream()
+				.map(blogId -> new BlogTombstoneRecord(blogId, deletedDate))
+				.collect(Collectors.toList()));
+		afterCommit(() -> {
+			evictBlogs(blogIds);
+			unindexBlogs(blogIds);
+			publishBlogDeletedEvents(deletedBlogIds);
+		});
+		return affectedCount;
+	}
+
+	// Cached blogs keep the view count they were loaded with, and flushed counts only ever grow, so the larger of
+	// that and the last flushed count is the current persisted count.
+	private Blog withViewCounts(Blog blog) {
+		long viewCount = Math.max(blog.getViewCount(), flushedViewCounts.asMap().getOrDefault(blog.getId(), 0L))
+				+ blogViewCounter.getPendingViews(blog.getId());
+		if (viewCount == blog.getViewCount()) {
+			return blog;
+		}
+		return new Blog(blog.getId(), blog.getTitle(), blog.getContent(), blog.getVersion(),
+				blog.getCreatedEpoch(), blog.getLastModifiedEpoch(), viewCount);
+	}
+
+	private List<Blog> withViewCounts(List<Blog> blogs) {
+		return blogs.stream().map(this::withViewCounts).collect(Collectors.toList());
+	}
+
+	// Reads pinned to the primary must see their own writes, so they never join a load that may be on a replica.
+	private <V> V loadOnce(SingleFlightLoader<Long, V> loader, long blogId, Function<Long, V> load) {
+		if (DataSourceRoutingContext.isPrimaryRequired()) {
+			return load.apply(blogId);
+		}
+		return loader.load(blogId, load);
+	}
+
+	private Blog loadBlog(long blogId) {
+		return readOnlyTransactionTemplate.execute(status -> toBlog(getExistBlog(blogId)));
+	}
+
+	private Map<Long, Blog> loadBlogs(List<Long> blogIds) {
+		Map<Long, Blog> blogsById = new HashMap<>();
+		for (BlogRecord blogRecord : blogRepository.findAll(blogIds)) {
+			blogsById.put(blogRecord.getId(), toBlog(blogRecord));
+		}
+		return blogsById;
+	}
+
 	private BlogRecord getExistBlog(long blogId) {
 		BlogRecord blogRecord = blogRepository.findOne(blogId);
 		if (blogRecord == null) {
-			throw new IllegalArgumentException("No blog with id: " + blogId);
+			throw new BlogNotFoundException(blogId);
 		}
 		return blogRecord;
 	}
 
-	private List<Blog> toBlogs(List<BlogRecord> blogRecords) {
+	private void cacheBlog(Blog blog) {
+		if (blogCache != null) {
+			blogCache.put(blog.getId(), blog);
+		}
+	}
+
+	private void evictBlogs(Collection<Long> blogIds) {
+		if (blogCache != null) {
+			blogCache.invalidateAll(blogIds);
+		}
+	}
+
+	private void unindexBlogs(Collection<Long> blogIds) {
+		blogIds.forEach(blogId -> blogSearchIndex.remove(blogId));
+	}
+
+	private void indexBlogs(List<Blog> blogs) {
+		blogs.forEach(blog -> blogSearchIndex.index(blog.getId(), blog.getTitle(), blog.getContent()));
+	}
+
+	private void publishBlogEvents(BlogEventType blogEventType, List<Blog> blogs) {
+		blogs.forEach(blog -> applicationEventPublisher.publishEvent(new BlogEvent(blogEventType, blog.getId(), blog)));
+	}
+
+	private void publishBlogDeletedEvents(Collection<Long> blogIds) {
+		blogIds.forEach(blogId -> applicationEventPublisher.publishEvent(
+				new BlogEvent(BlogEventType.DELETED, blogId, null)));
+	}
+
+	private void afterCommit(Runnable action) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCommit() {
+					action.run();
+				}
+			});
+		} else {
+			action.run();
+		}
+	}
+
+	List<Blog> toBlogs(List<BlogRecord> blogRecords) {
 		return blogRecords.stream().map(blogRecord -> toBlog(blogRecord)).collect(Collectors.toList());
 	}
 
-	private Blog toBlog(BlogRecord blogRecord) {
+	private List<BlogSummary> toBlogSummaries(List<BlogSummaryRecord> blogSummaryRecords) {
+		return blogSummaryRecords.stream()
+				.map(blogSummaryRecord -> toBlogSummary(blogSummaryRecord))
+				.collect(Collectors.toList());
+	}
+
+	private BlogSummary toBlogSummary(BlogSummaryRecord blogSummaryRecord) {
+		return new BlogSummary(
+			blogSummaryRecord.getId(),
+			blogSummaryRecord.getTitle(),
+			blogSummaryRecord.getCreatedDate().getTime(),
+			blogSummaryRecord.getLastModifiedDate().getTime());
+	}
+
+	private BlogVersion toBlogVersion(BlogVersionRecord blogVersionRecord) {
+		return new BlogVersion(
+			blogVersionRecord.getVersion(),
+			blogVersionRecord.getLastModifiedDate().getTime());
+	}
+
+	Blog toBlog(BlogRecord blogRecord) {
 		return new Blog(
 			blogRecord.getId(),
 			blogRecord.getTitle(),
 			blogRecord.getContent(),
+			blogRecord.getVersion(),
 			blogRecord.getCreatedDate().getTime(),
-			blogRecord.getLastModifiedDate().getTime());
+			blogRecord.getLastModifiedDate().getTime(),
+			blogRecord.getViewCount());
 	}
 }
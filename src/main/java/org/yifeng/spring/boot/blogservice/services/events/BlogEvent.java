@@ -0,0 +1,28 @@
+package org.yifeng.spring.boot.blogservice.services.events;
+
+import org.yifeng.spring.boot.blogservice.services.models.Blog;
+
+public class BlogEvent {
+
+	private BlogEventType type;
+	private long blogId;
+	private Blog blog;
+
+	public BlogEvent(BlogEventType type, long blogId, Blog blog) {
+		this.type = type;
+		this.blogId = blogId;
+		this.blog = blog;
+	}
+
+	public BlogEventType getType() {
+		return type;
+	}
+
+	public long getBlogId() {
+		return blogId;
+	}
+
+	public Blog getBlog() {
+		return blog;
+	}
+}
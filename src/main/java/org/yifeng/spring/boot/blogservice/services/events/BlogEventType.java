@@ -0,0 +1,6 @@
+package org.yifeng.spring.boot.blogservice.services.events;
+
+public enum BlogEventType {
+
+	CREATED, UPDATED, DELETED
+}
@@ -0,0 +1,11 @@
+package org.yifeng.spring.boot.blogservice.services.exceptions;
+
+public class BlogChangesExpiredException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public BlogChangesExpiredException(long deletedEpoch, long retainedSinceEpoch) {
+		super("Changes after " + deletedEpoch + " are no longer complete, deletions are only retained since "
+				+ retainedSinceEpoch + ", resync from since=0");
+	}
+}
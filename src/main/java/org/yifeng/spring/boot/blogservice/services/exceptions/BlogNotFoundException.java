@@ -0,0 +1,23 @@
+package org.yifeng.spring.boot.blogservice.services.exceptions;
+
+public class BlogNotFoundException extends IllegalArgumentException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final long blogId;
+
+	public BlogNotFoundException(long blogId) {
+		super("No blog with id: " + blogId);
+		this.blogId = blogId;
+	}
+
+	public long getBlogId() {
+		return blogId;
+	}
+
+	// A missing blog is an expected outcome rather than a fault, so skip the stack walk.
+	@Override
+	public synchronized Throwable fillInStackTrace() {
+		return this;
+	}
+}
@@ -0,0 +1,66 @@
+package org.yifeng.spring.boot.blogservice.services.loaders;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+public class SingleFlightLoader<K, V> {
+
+	private final ConcurrentMap<K, CompletableFuture<V>> inFlightLoads = new ConcurrentHashMap<>();
+	private final LongAdder loadCount = new LongAdder();
+	private final LongAdder coalescedCount = new LongAdder();
+
+	public V load(K key, Function<? super K, ? extends V> loader) {
+		CompletableFuture<V> load = new CompletableFuture<>();
+		CompletableFuture<V> inFlightLoad = inFlightLoads.putIfAbsent(key, load);
+		if (inFlightLoad != null) {
+			coalescedCount.increment();
+			return join(inFlightLoad);
+		}
+		loadCount.increment();
+		try {
+			V value = loader.apply(key);
+			load.complete(value);
+			return value;
+		} catch (RuntimeException | Error e) {
+			load.completeExceptionally(e);
+			throw e;
+		} finally {
+			inFlightLoads.remove(key, load);
+		}
+	}
+
+	// For callers that waited on a load coalesced outside this loader, such as a cache's own per-key load.
+	public void recordCoalesced() {
+		coalescedCount.increment();
+	}
+
+	public long getLoadCount() {
+		return loadCount.sum();
+	}
+
+	public long getCoalescedCount() {
+		return coalescedCount.sum();
+	}
+
+	public int getInFlightCount() {
+		return inFlightLoads.size();
+	}
+
+	private V join(CompletableFuture<V> load) {
+		try {
+			return load.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw e;
+		}
+	}
+}
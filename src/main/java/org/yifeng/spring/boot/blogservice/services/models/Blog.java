@@ -7,8 +7,10 @@ import org.hibernate.validator.constraints.NotBlank;
 public class Blog {
 
 	private long id;
+	private long version;
 	private long createdEpoch;
 	private long lastModifiedEpoch;
+	private long viewCount;
 	
 	@NotBlank
 	@Size(min = 1, max = 100)
@@ -18,12 +20,19 @@ public class Blog {
 	@Size(min = 1, max = 10000)
 	private String content;
 
-	public Blog(long id, String title, String content, long createdEpoch, long lastModifiedEpoch) {
+	public Blog(long id, String title, String content, long version, long createdEpoch, long lastModifiedEpoch) {
+		this(id, title, content, version, createdEpoch, lastModifiedEpoch, 0L);
+	}
+
+	public Blog(long id, String title, String content, long version, long createdEpoch, long lastModifiedEpoch,
+			long viewCount) {
 		this.id = id;
 		this.title = title;
 		this.content = content;
+		this.version = version;
 		this.createdEpoch = createdEpoch;
 		this.lastModifiedEpoch = lastModifiedEpoch;
+		this.viewCount = viewCount;
 	}
 
 	public Blog(String title, String content) {
@@ -43,6 +52,10 @@ public class Blog {
 		return content;
 	}
 
+	public long getVersion() {
+		return version;
+	}
+
 	public long getCreatedEpoch() {
 		return createdEpoch;
 	}
@@ -50,4 +63,8 @@ public class Blog {
 	public long getLastModifiedEpoch() {
 		return lastModifiedEpoch;
 	}
+
+	public long getViewCount() {
+		return viewCount;
+	}
 }
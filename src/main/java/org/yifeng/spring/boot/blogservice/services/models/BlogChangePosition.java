@@ -0,0 +1,32 @@
+package org.yifeng.spring.boot.blogservice.services.models;
+
+public class BlogChangePosition {
+
+	private long modifiedEpoch;
+	private long modifiedBlogId;
+	private long deletedEpoch;
+	private long deletedBlogId;
+
+	public BlogChangePosition(long modifiedEpoch, long modifiedBlogId, long deletedEpoch, long deletedBlogId) {
+		this.modifiedEpoch = modifiedEpoch;
+		this.modifiedBlogId = modifiedBlogId;
+		this.deletedEpoch = deletedEpoch;
+		this.deletedBlogId = deletedBlogId;
+	}
+
+	public long getModifiedEpoch() {
+		return modifiedEpoch;
+	}
+
+	public long getModifiedBlogId() {
+		return modifiedBlogId;
+	}
+
+	public long getDeletedEpoch() {
+		return deletedEpoch;
+	}
+
+	public long getDeletedBlogId() {
+		return deletedBlogId;
+	}
+}
@@ -0,0 +1,34 @@
+package org.yifeng.spring.boot.blogservice.services.models;
+
+import java.util.List;
+
+public class BlogChanges {
+
+	private List<Blog> blogs;
+	private List<Long> deletedBlogIds;
+	private BlogChangePosition position;
+	private boolean hasNext;
+
+	public BlogChanges(List<Blog> blogs, List<Long> deletedBlogIds, BlogChangePosition position, boolean hasNext) {
+		this.blogs = blogs;
+		this.deletedBlogIds = deletedBlogIds;
+		this.position = position;
+		this.hasNext = hasNext;
+	}
+
+	public List<Blog> getBlogs() {
+		return blogs;
+	}
+
+	public List<Long> getDeletedBlogIds() {
+		return deletedBlogIds;
+	}
+
+	public BlogChangePosition getPosition() {
+		return position;
+	}
+
+	public boolean hasNext() {
+		return hasNext;
+	}
+}
@@ -0,0 +1,30 @@
+package org.yifeng.spring.boot.blogservice.services.models;
+
+import javax.validation.constraints.Pattern;
+import javax.validation.constraints.Size;
+
+public class BlogPatch {
+
+	private static final String NOT_BLANK_PATTERN = "(?s).*\\S.*";
+
+	@Pattern(regexp = NOT_BLANK_PATTERN)
+	@Size(min = 1, max = 100)
+	private String title;
+
+	@Pattern(regexp = NOT_BLANK_PATTERN)
+	@Size(min = 1, max = 10000)
+	private String content;
+
+	public BlogPatch(String title, String content) {
+		this.title = title;
+		this.content = content;
+	}
+
+	public String getTitle() {
+		return title;
+	}
+
+	public String getContent() {
+		return content;
+	}
+}
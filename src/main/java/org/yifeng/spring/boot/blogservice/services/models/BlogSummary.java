@@ -0,0 +1,32 @@
+package org.yifeng.spring.boot.blogservice.services.models;
+
+public class BlogSummary {
+
+	private long id;
+	private String title;
+	private long createdEpoch;
+	private long lastModifiedEpoch;
+
+	public BlogSummary(long id, String title, long createdEpoch, long lastModifiedEpoch) {
+		this.id = id;
+		this.title = title;
+		this.createdEpoch = createdEpoch;
+		this.lastModifiedEpoch = lastModifiedEpoch;
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	public String getTitle() {
+		return title;
+	}
+
+	public long getCreatedEpoch() {
+		return createdEpoch;
+	}
+
+	public long getLastModifiedEpoch() {
+		return lastModifiedEpoch;
+	}
+}
@@ -0,0 +1,20 @@
+package org.yifeng.spring.boot.blogservice.services.models;
+
+public class BlogVersion {
+
+	private long version;
+	private long lastModifiedEpoch;
+
+	public BlogVersion(long version, long lastModifiedEpoch) {
+		this.version = version;
+		this.lastModifiedEpoch = lastModifiedEpoch;
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	public long getLastModifiedEpoch() {
+		return lastModifiedEpoch;
+	}
+}
@@ -0,0 +1,22 @@
+package org.yifeng.spring.boot.blogservice.services.models;
+
+import java.util.List;
+
+public class KeysetPage<T> {
+
+	private List<T> items;
+	private boolean hasNext;
+
+	public KeysetPage(List<T> items, boolean hasNext) {
+		this.items = items;
+		this.hasNext = hasNext;
+	}
+
+	public List<T> getItems() {
+		return items;
+	}
+
+	public boolean hasNext() {
+		return hasNext;
+	}
+}
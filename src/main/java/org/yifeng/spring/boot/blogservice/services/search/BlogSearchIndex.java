@@ -0,0 +1,345 @@
+package org.yifeng.spring.boot.blogservice.services.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+import org.springframework.stereotype.Component;
+import org.yifeng.spring.boot.blogservice.services.models.KeysetPage;
+
+@Component
+public class BlogSearchIndex {
+
+	private static final float K1 = 1.2f;
+	private static final float B = 0.75f;
+	private static final int TITLE_WEIGHT = 3;
+	private static final int MIN_DEAD_DOCUMENTS_TO_COMPACT = 1024;
+	private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final Map<String, Postings> postingsByTerm = new HashMap<>();
+	private final Map<Long, Integer> ordinalByBlogId = new HashMap<>();
+
+	private long[] blogIds = new long[1024];
+	private int[] lengths = new int[1024];
+	private Postings[][] documentPostings = new Postings[1024][];
+	private int ordinalCount;
+	private int deadCount;
+	private long totalLength;
+
+	public void index(long blogId, String title, String content) {
+		Map<String, Integer> frequencies = new HashMap<>();
+		int length = addTokens(frequencies, title, TITLE_WEIGHT) + addTokens(frequencies, content, 1);
+		lock.writeLock().lock();
+		try {
+			removeLocked(blogId);
+			ensureCapacity(ordinalCount + 1);
+			int ordinal = ordinalCount++;
+			Postings[] postingsOfDocument = new Postings[frequencies.size()];
+			int i = 0;
+			for (Map.Entry<String, Integer> frequency : frequencies.entrySet()) {
+				Postings postings = postingsByTerm.computeIfAbsent(frequency.getKey(), term -> new Postings());
+				postings.add(ordinal, frequency.getValue());
+				postingsOfDocument[i++] = postings;
+			}
+			blogIds[ordinal] = blogId;
+			lengths[ordinal] = length;
+			documentPostings[ordinal] = postingsOfDocument;
+			ordinalByBlogId.put(blogId, ordinal);
+			totalLength += length;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void remove(long blogId) {
+		lock.writeLock().lock();
+		try {
+			removeLocked(blogId);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void clear() {
+		lock.writeLock().lock();
+		try {
+			postingsByTerm.clear();
+			ordinalByBlogId.clear();
+			Arrays.fill(documentPostings, 0, ordinalCount, null);
+			ordinalCount = 0;
+			deadCount = 0;
+			totalLength = 0L;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return ordinalByBlogId.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	public KeysetPage<Long> search(String query, int offset, int limit) {
+		Set<String> terms = new LinkedHashSet<>(tokenize(query));
+		if (terms.isEmpty()) {
+			return new KeysetPage<>(Collections.emptyList(), false);
+		}
+		lock.readLock().lock();
+		try {
+			int liveCount = ordinalByBlogId.size();
+			if (liveCount == 0) {
+				return new KeysetPage<>(Collections.emptyList(), false);
+			}
+			float averageLength = (float) totalLength / liveCount;
+			List<Postings> queryPostings = new ArrayList<>();
+			for (String term : terms) {
+				Postings postings = postingsByTerm.get(term);
+				if (postings != null && postings.documentFrequency > 0) {
+					queryPostings.add(postings);
+				}
+			}
+			queryPostings.sort((left, right) -> Integer.compare(left.documentFrequency, right.documentFrequency));
+			float[] idfs = new float[queryPostings.size()];
+			float[] remainingUpperBounds = new float[queryPostings.size() + 1];
+			for (int i = queryPostings.size() - 1; i >= 0; i--) {
+				int documentFrequency = queryPostings.get(i).documentFrequency;
+				idfs[i] = (float) Math.log(1.0 + (liveCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+				remainingUpperBounds[i] = remainingUpperBounds[i + 1] + idfs[i] * (K1 + 1);
+			}
+
+			int window = offset + limit + 1;
+			// Scores are kept only for matched blogs, so a query costs memory in its matches, not in the index size.
+			MatchScores matchScores = new MatchScores();
+			for (int i = 0; i < queryPostings.size(); i++) {
+				Postings postings = queryPostings.get(i);
+				if (matchScores.size >= window && windowScore(matchScores, window) > remainingUpperBounds[i]) {
+					// No unmatched blog can reach the window any more; only rescore the ones already matched.
+					for (int j = 0; j < matchScores.size; j++) {
+						int ordinal = matchScores.ordinals[j];
+						int index = Arrays.binarySearch(postings.ordinals, 0, postings.size, ordinal);
+						if (index >= 0) {
+							matchScores.scores[j] += score(idfs[i], postings.frequencies[index], ordinal, averageLength);
+						}
+					}
+					continue;
+				}
+				for (int j = 0; j < postings.size; j++) {
+					int ordinal = postings.ordinals[j];
+					if (documentPostings[ordinal] == null) {
+						continue;
+					}
+					matchScores.add(ordinal, score(idfs[i], postings.frequencies[j], ordinal, averageLength));
+				}
+			}
+			return topBlogIds(matchScores, offset, limit);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private float score(float idf, int frequency, int ordinal, float averageLength) {
+		float norm = K1 * (1 - B + B * lengths[ordinal] / averageLength);
+		return idf * frequency * (K1 + 1) / (frequency + norm);
+	}
+
+	private float windowScore(MatchScores matchScores, int window) {
+		float[] sortedScores = Arrays.copyOf(matchScores.scores, matchScores.size);
+		Arrays.sort(sortedScores);
+		return sortedScores[matchScores.size - window];
+	}
+
+	private KeysetPage<Long> topBlogIds(MatchScores matchScores, int offset, int limit) {
+		int window = offset + limit + 1;
+		PriorityQueue<Integer> worstFirst = new PriorityQueue<>(Math.min(window, Math.max(matchScores.size, 1)),
+				(left, right) -> compareRank(matchScores, right, left));
+		for (int i = 0; i < matchScores.size; i++) {
+			worstFirst.offer(i);
+			if (worstFirst.size() > window) {
+				worstFirst.poll();
+			}
+		}
+		List<Integer> ranked = new ArrayList<>(worstFirst);
+		ranked.sort((left, right) -> compareRank(matchScores, left, right));
+		List<Long> pageBlogIds = new ArrayList<>();
+		for (int i = offset; i < Math.min(ranked.size(), offset + limit); i++) {
+			pageBlogIds.add(blogIds[matchScores.ordinals[ranked.get(i)]]);
+		}
+		return new KeysetPage<>(pageBlogIds, ranked.size() > offset + limit);
+	}
+
+	private int compareRank(MatchScores matchScores, int left, int right) {
+		int byScore = Float.compare(matchScores.scores[right], matchScores.scores[left]);
+		return byScore != 0 ? byScore
+				: Long.compare(blogIds[matchScores.ordinals[left]], blogIds[matchScores.ordinals[right]]);
+	}
+
+	private void removeLocked(long blogId) {
+		Integer ordinal = ordinalByBlogId.remove(blogId);
+		if (ordinal == null) {
+			return;
+		}
+		for (Postings postings : documentPostings[ordinal]) {
+			postings.documentFrequency--;
+		}
+		documentPostings[ordinal] = null;
+		totalLength -= lengths[ordinal];
+		deadCount++;
+		if (deadCount >= MIN_DEAD_DOCUMENTS_TO_COMPACT && deadCount > ordinalByBlogId.size()) {
+			compact();
+		}
+	}
+
+	private void compact() {
+		int[] newOrdinals = new int[ordinalCount];
+		int liveCount = 0;
+		for (int ordinal = 0; ordinal < ordinalCount; ordinal++) {
+			if (documentPostings[ordinal] == null) {
+				newOrdinals[ordinal] = -1;
+				continue;
+			}
+			newOrdinals[ordinal] = liveCount;
+			blogIds[liveCount] = blogIds[ordinal];
+			lengths[liveCount] = lengths[ordinal];
+			documentPostings[liveCount] = documentPostings[ordinal];
+			ordinalByBlogId.put(blogIds[liveCount], liveCount);
+			liveCount++;
+		}
+		Arrays.fill(documentPostings, liveCount, ordinalCount, null);
+		for (Iterator<Postings> iterator = postingsByTerm.values().iterator(); iterator.hasNext();) {
+			Postings postings = iterator.next();
+			postings.remap(newOrdinals);
+			if (postings.size == 0) {
+				iterator.remove();
+			}
+		}
+		ordinalCount = liveCount;
+		deadCount = 0;
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity > blogIds.length) {
+			int newCapacity = Math.max(capacity, blogIds.length * 2);
+			blogIds = Arrays.copyOf(blogIds, newCapacity);
+			lengths = Arrays.copyOf(lengths, newCapacity);
+			documentPostings = Arrays.copyOf(documentPostings, newCapacity);
+		}
+	}
+
+	private static int addTokens(Map<String, Integer> frequencies, String text, int weight) {
+		List<String> tokens = tokenize(text);
+		for (String token : tokens) {
+			frequencies.merge(token, weight, Integer::sum);
+		}
+		return tokens.size() * weight;
+	}
+
+	private static List<String> tokenize(String text) {
+		if (text == null) {
+			return Collections.emptyList();
+		}
+		List<String> tokens = new ArrayList<>();
+		for (String token : TOKEN_SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+			if (!token.isEmpty()) {
+				tokens.add(token);
+			}
+		}
+		return tokens;
+	}
+
+	private static class Postings {
+
+		private int[] ordinals = new int[4];
+		private int[] frequencies = new int[4];
+		private int size;
+		private int documentFrequency;
+
+		private void add(int ordinal, int frequency) {
+			if (size == ordinals.length) {
+				ordinals = Arrays.copyOf(ordinals, size * 2);
+				frequencies = Arrays.copyOf(frequencies, size * 2);
+			}
+			ordinals[size] = ordinal;
+			frequencies[size] = frequency;
+			size++;
+			documentFrequency++;
+		}
+
+		private void remap(int[] newOrdinals) {
+			int newSize = 0;
+			for (int i = 0; i < size; i++) {
+				int newOrdinal = newOrdinals[ordinals[i]];
+				if (newOrdinal >= 0) {
+					ordinals[newSize] = newOrdinal;
+					frequencies[newSize] = frequencies[i];
+					newSize++;
+				}
+			}
+			size = newSize;
+		}
+	}
+
+	// Open-addressing map from ordinal to a dense match index, with the matched ordinals and scores kept in order.
+	private static class MatchScores {
+
+		private int[] slots = new int[32];
+		private int[] ordinals = new int[16];
+		private float[] scores = new float[16];
+		private int size;
+
+		private void add(int ordinal, float score) {
+			int mask = slots.length - 1;
+			int slot = mix(ordinal) & mask;
+			while (slots[slot] != 0) {
+				int index = slots[slot] - 1;
+				if (ordinals[index] == ordinal) {
+					scores[index] += score;
+					return;
+				}
+				slot = (slot + 1) & mask;
+			}
+			if (size == ordinals.length) {
+				ordinals = Arrays.copyOf(ordinals, size * 2);
+				scores = Arrays.copyOf(scores, size * 2);
+			}
+			ordinals[size] = ordinal;
+			scores[size] = score;
+			slots[slot] = ++size;
+			if (size * 2 > slots.length) {
+				rehash();
+			}
+		}
+
+		private void rehash() {
+			slots = new int[slots.length * 2];
+			int mask = slots.length - 1;
+			for (int index = 0; index < size; index++) {
+				int slot = mix(ordinals[index]) & mask;
+				while (slots[slot] != 0) {
+					slot = (slot + 1) & mask;
+				}
+				slots[slot] = index + 1;
+			}
+		}
+
+		private static int mix(int ordinal) {
+			int hash = ordinal * 0x9E3779B9;
+			return hash ^ (hash >>> 16);
+		}
+	}
+}
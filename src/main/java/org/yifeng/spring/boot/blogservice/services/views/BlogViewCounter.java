@@ -0,0 +1,160 @@
+package org.yifeng.spring.boot.blogservice.services.views;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Views are counted into one of two generations of counters. A drain switches increments to the other generation,
+// waits until no increment is still in flight on the retired one, and only then reads and clears it, so no view is
+// ever lost. The in-flight counts are striped by thread and padded apart, so increments rarely share a cache line.
+// A generation holds at most maxPendingBlogs blogs: views of pending blogs are always counted, but a view of another
+// blog is dropped and counted as such while the generation is full, e.g. when flushes keep failing.
+public class BlogViewCounter {
+
+	private static final int STRIPE_COUNT = 64;
+	private static final int STRIPE_PADDING = 16;
+
+	private final int maxPendingBlogs;
+	private final ConcurrentMap<Long, LongAdder>[] generations;
+	private final AtomicLongArray inFlightIncrements = new AtomicLongArray(STRIPE_COUNT * 2 * STRIPE_PADDING);
+	private final AtomicIntegerArray pendingBlogCounts = new AtomicIntegerArray(2);
+	private final LongAdder recordedCount = new LongAdder();
+	private final LongAdder drainedCount = new LongAdder();
+	private final LongAdder droppedCount = new LongAdder();
+
+	private volatile int generation;
+	private volatile Map<Long, Long> drainingViewDeltas = Collections.emptyMap();
+
+	@SuppressWarnings("unchecked")
+	public BlogViewCounter(int maxPendingBlogs) {
+		this.maxPendingBlogs = maxPendingBlogs;
+		this.generations = new ConcurrentMap[] { new ConcurrentHashMap<>(), new ConcurrentHashMap<>() };
+	}
+
+	// Returns true when this view's blog fills the pending blogs up to the bound, so the caller should start a drain.
+	public boolean increment(long blogId) {
+		int pendingBlogCount = add(blogId, 1L);
+		if (pendingBlogCount < 0) {
+			droppedCount.increment();
+			return false;
+		}
+		recordedCount.increment();
+		return pendingBlogCount >= maxPendingBlogs;
+	}
+
+	// Views of a drain that has not completed yet are still pending, since they may not have been written.
+	public long getPendingViews(long blogId) {
+		long pendingViews = drainingViewDeltas.getOrDefault(blogId, 0L);
+		for (ConcurrentMap<Long, LongAdder> counters : generations) {
+			LongAdder counter = counters.get(blogId);
+			if (counter != null) {
+				pendingViews += counter.sum();
+			}
+		}
+		return pendingViews;
+	}
+
+	public int getPendingBlogCount() {
+		return generations[0].size() + generations[1].size();
+	}
+
+	public long getRecordedCount() {
+		return recordedCount.sum();
+	}
+
+	public long getDrainedCount() {
+		return drainedCount.sum();
+	}
+
+	public long getDroppedCount() {
+		return droppedCount.sum();
+	}
+
+	// The returned views stay pending until completeDrain() or restore() is called for them.
+	public synchronized Map<Long, Long> drain() {
+		int retiredGeneration = generation;
+		generation = retiredGeneration + 1;
+		for (int stripe = 0; stripe < STRIPE_COUNT; stripe++) {
+			int index = inFlightIndex(stripe, retiredGeneration);
+			while (inFlightIncrements.get(index) != 0L) {
+				Thread.yield();
+			}
+		}
+		ConcurrentMap<Long, LongAdder> counters = generations[retiredGeneration & 1];
+		Map<Long, Long> viewDeltas = new HashMap<>();
+		long views = 0L;
+		for (Map.Entry<Long, LongAdder> counter : counters.entrySet()) {
+			long blogViews = counter.getValue().sum();
+			viewDeltas.put(counter.getKey(), blogViews);
+			views += blogViews;
+		}
+		drainingViewDeltas = viewDeltas;
+		counters.clear();
+		pendingBlogCounts.set(retiredGeneration & 1, 0);
+		drainedCount.add(views);
+		return viewDeltas;
+	}
+
+	public synchronized void completeDrain() {
+		drainingViewDeltas = Collections.emptyMap();
+	}
+
+	// Restored views are bounded like new ones, so views of blogs that no longer fit are dropped.
+	public synchronized void restore(Map<Long, Long> viewDeltas) {
+		viewDeltas.forEach((blogId, views) -> {
+			if (add(blogId, views) < 0) {
+				droppedCount.add(views);
+			}
+		});
+		drainedCount.add(-viewDeltas.values().stream().mapToLong(Long::longValue).sum());
+		drainingViewDeltas = Collections.emptyMap();
+	}
+
+	// Returns the pending blog count if the blog was not pending yet, 0 if it was, or -1 if it did not fit.
+	private int add(long blogId, long views) {
+		int stripe = (int) Thread.currentThread().getId() & (STRIPE_COUNT - 1);
+		while (true) {
+			int currentGeneration = generation;
+			int index = inFlightIndex(stripe, currentGeneration);
+			inFlightIncrements.incrementAndGet(index);
+			try {
+				// Rechecked after announcing the increment: a drain that switched generations in between either
+				// is seen here, or sees this increment in flight and waits for it.
+				if (generation == currentGeneration) {
+					ConcurrentMap<Long, LongAdder> counters = generations[currentGeneration & 1];
+					LongAdder counter = counters.get(blogId);
+					if (counter != null) {
+						counter.add(views);
+						return 0;
+					}
+					// A slot is reserved before inserting, so racing inserts can not push the generation past the bound.
+					int pendingBlogCount = pendingBlogCounts.incrementAndGet(currentGeneration & 1);
+					if (pendingBlogCount > maxPendingBlogs) {
+						pendingBlogCounts.decrementAndGet(currentGeneration & 1);
+						return -1;
+					}
+					LongAdder addedCounter = new LongAdder();
+					addedCounter.add(views);
+					counter = counters.putIfAbsent(blogId, addedCounter);
+					if (counter != null) {
+						pendingBlogCounts.decrementAndGet(currentGeneration & 1);
+						counter.add(views);
+						return 0;
+					}
+					return pendingBlogCount;
+				}
+			} finally {
+				inFlightIncrements.decrementAndGet(index);
+			}
+		}
+	}
+
+	private int inFlightIndex(int stripe, int generation) {
+		return (stripe * 2 + (generation & 1)) * STRIPE_PADDING;
+	}
+}
@@ -0,0 +1,33 @@
+package org.yifeng.spring.boot.blogservice.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+public class CursorUtil {
+
+	private static final String SEPARATOR = ":";
+
+	public static String encode(long... keys) {
+		StringBuilder stringBuilder = new StringBuilder();
+		for (long key : keys) {
+			if (stringBuilder.length() > 0) {
+				stringBuilder.append(SEPARATOR);
+			}
+			stringBuilder.append(key);
+		}
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(
+				stringBuilder.toString().getBytes(StandardCharsets.US_ASCII));
+	}
+
+	public static long[] decode(String cursor, int keyCount) {
+		String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII).split(SEPARATOR);
+		if (parts.length != keyCount) {
+			throw new IllegalArgumentException("Invalid cursor: " + cursor);
+		}
+		long[] keys = new long[keyCount];
+		for (int i = 0; i < keyCount; i++) {
+			keys[i] = Long.parseLong(parts[i]);
+		}
+		return keys;
+	}
+}
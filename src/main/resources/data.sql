@@ -0,0 +1,3 @@
+INSERT INTO blog_id_sequence (sequence_name, next_val)
+SELECT 'blog', COALESCE(MAX(id), 0) + 1 FROM blog
+WHERE NOT EXISTS (SELECT 1 FROM blog_id_sequence WHERE sequence_name = 'blog');
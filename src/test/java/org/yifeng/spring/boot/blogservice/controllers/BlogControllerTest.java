@@ -2,46 +2,94 @@ package org.yifeng.spring.boot.blogservice.controllers;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.validation.beanvalidation.MethodValidationPostProcessor;
+import org.yifeng.spring.boot.blogservice.controllers.configurations.ExecutorConfiguration;
+import org.yifeng.spring.boot.blogservice.controllers.converters.SmileHttpMessageConverter;
+import org.yifeng.spring.boot.blogservice.controllers.events.BlogEventBroadcaster;
 import org.yifeng.spring.boot.blogservice.controllers.requests.CreateBlogRequest;
+import org.yifeng.spring.boot.blogservice.controllers.requests.GetBlogsRequest;
+import org.yifeng.spring.boot.blogservice.controllers.requests.PatchBlogsRequest;
 import org.yifeng.spring.boot.blogservice.controllers.requests.UpdateBlogRequest;
 import org.yifeng.spring.boot.blogservice.services.BlogService;
+import org.yifeng.spring.boot.blogservice.services.events.BlogEvent;
+import org.yifeng.spring.boot.blogservice.services.events.BlogEventType;
+import org.yifeng.spring.boot.blogservice.services.exceptions.BlogChangesExpiredException;
+import org.yifeng.spring.boot.blogservice.services.exceptions.BlogNotFoundException;
 import org.yifeng.spring.boot.blogservice.services.models.Blog;
+import org.yifeng.spring.boot.blogservice.services.models.BlogChangePosition;
+import org.yifeng.spring.boot.blogservice.services.models.BlogChanges;
+import org.yifeng.spring.boot.blogservice.services.models.BlogPatch;
+import org.yifeng.spring.boot.blogservice.services.models.BlogSummary;
+import org.yifeng.spring.boot.blogservice.services.models.BlogVersion;
+import org.yifeng.spring.boot.blogservice.services.models.KeysetPage;
+import org.yifeng.spring.boot.blogservice.utils.CursorUtil;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import io.prometheus.client.CollectorRegistry;
+
 @RunWith(SpringRunner.class)
 @WebMvcTest(BlogController.class)
+@TestPropertySource(properties = {
+		"blog-service.executor.pool-size = 1",
+		"blog-service.executor.queue-capacity = 1" })
 public class BlogControllerTest {
 
 	@Configuration
@@ -61,11 +109,14 @@ public class BlogControllerTest {
  
     @MockBean
     private BlogService blogService;
+
+	@Autowired
+	private BlogEventBroadcaster blogEventBroadcaster;
     
     @Test
     public void whenGetBlogs_inEmptyBlogRepository_returnEmptyBlogResponses() throws Exception {
-    	when(blogService.getBlogs()).thenReturn(Collections.emptyList());
-    	mockMvc.perform(get("/blogs").contentType(MediaType.APPLICATION_JSON))
+    	when(blogService.getBlogs(0L, 20)).thenReturn(new KeysetPage<>(Collections.emptyList(), false));
+    	perform(get("/blogs").contentType(MediaType.APPLICATION_JSON))
     	.andExpect(status().isOk())
     	.andExpect(jsonPath("$", notNullValue()))
     	.andExpect(jsonPath("$", hasSize(0)));
@@ -74,12 +125,13 @@ public class BlogControllerTest {
     @Test
     public void whenGetBlogs_inNonemptyBlogRepository_returnBlogResponses() throws Exception {
     	
-    	Blog expectedBlogA = new Blog(1L, "TitleA", "ContentA", new Date().getTime(), new Date().getTime());
-    	Blog expectedBlogB = new Blog(2L, "TitleB", "ContentB", new Date().getTime(), new Date().getTime());
-    	when(blogService.getBlogs()).thenReturn(Arrays.asList(expectedBlogA, expectedBlogB));
+    	Blog expectedBlogA = new Blog(1L, "TitleA", "ContentA", 1L, new Date().getTime(), new Date().getTime());
+    	Blog expectedBlogB = new Blog(2L, "TitleB", "ContentB", 1L, new Date().getTime(), new Date().getTime());
+    	when(blogService.getBlogs(0L, 20)).thenReturn(new KeysetPage<>(Arrays.asList(expectedBlogA, expectedBlogB), false));
 
-    	mockMvc.perform(get("/blogs").contentType(MediaType.APPLICATION_JSON))
+    	perform(get("/blogs").contentType(MediaType.APPLICATION_JSON))
     	.andExpect(status().isOk())
+    	.andExpect(header().doesNotExist("X-Next-Cursor"))
     	.andExpect(jsonPath("$", notNullValue()))
     	.andExpect(jsonPath("$", hasSize(2)))
     	.andExpect(jsonPath("$[0]", notNullValue()))
@@ -96,26 +148,307 @@ public class BlogControllerTest {
     	.andExpect(jsonPath("$[1].lastModifiedDate", equalTo(expectedBlogB.getLastModifiedEpoch())));
     }
 
+	@Test
+	public void whenGetBlogs_withSmileAccept_returnSmileBlogResponses() throws Exception {
+
+		Blog expectedBlog = new Blog(1L, "Title", "Content", 1L, new Date().getTime(), new Date().getTime());
+		when(blogService.getBlogs(0L, 20)).thenReturn(new KeysetPage<>(Arrays.asList(expectedBlog), false));
+
+		byte[] responseBody = perform(get("/blogs").accept(SmileHttpMessageConverter.APPLICATION_SMILE))
+		.andExpect(status().isOk())
+		.andExpect(content().contentType(SmileHttpMessageConverter.APPLICATION_SMILE))
+		.andReturn().getResponse().getContentAsByteArray();
+
+		JsonNode blogResponses = new SmileHttpMessageConverter().getObjectMapper().readTree(responseBody);
+		assertEquals(1, blogResponses.size());
+		assertEquals(expectedBlog.getTitle(), blogResponses.get(0).get("title").asText());
+		assertEquals(expectedBlog.getContent(), blogResponses.get(0).get("content").asText());
+	}
+
+	@Test
+	public void whenGetBlogs_withoutAccept_returnJsonBlogResponses() throws Exception {
+		when(blogService.getBlogs(0L, 20)).thenReturn(new KeysetPage<>(Collections.emptyList(), false));
+		perform(get("/blogs"))
+		.andExpect(status().isOk())
+		.andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+	}
+
+	@Test
+	public void whenGetBlogs_withMoreBlogsThanLimit_returnNextCursor() throws Exception {
+
+		Blog expectedBlog = new Blog(1L, "Title", "Content", 1L, new Date().getTime(), new Date().getTime());
+		when(blogService.getBlogs(0L, 1)).thenReturn(new KeysetPage<>(Arrays.asList(expectedBlog), true));
+		String expectedCursor = CursorUtil.encode(expectedBlog.getId());
+
+		perform(get("/blogs").param("limit", "1").contentType(MediaType.APPLICATION_JSON))
+		.andExpect(status().isOk())
+		.andExpect(header().string("X-Next-Cursor", expectedCursor))
+		.andExpect(jsonPath("$", hasSize(1)))
+		.andExpect(jsonPath("$[0].id", equalTo(1)));
+	}
+
+	@Test
+	public void whenGetBlogs_withCursor_returnBlogResponsesAfterCursor() throws Exception {
+
+		Blog expectedBlog = new Blog(2L, "Title", "Content", 1L, new Date().getTime(), new Date().getTime());
+		when(blogService.getBlogs(1L, 20)).thenReturn(new KeysetPage<>(Arrays.asList(expectedBlog), false));
+
+		perform(get("/blogs").param("cursor", CursorUtil.encode(1L)).contentType(MediaType.APPLICATION_JSON))
+		.andExpect(status().isOk())
+		.andExpect(header().doesNotExist("X-Next-Cursor"))
+		.andExpect(jsonPath("$", hasSize(1)))
+		.andExpect(jsonPath("$[0].id", equalTo(2)));
+	}
+
+	@Test
+	public void whenGetBlogs_withInvalidCursor_throwBadRequest() throws Exception {
+		perform(get("/blogs").param("cursor", "not a cursor").contentType(MediaType.APPLICATION_JSON))
+		.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	public void whenGetBlogs_withInvalidLimit_throwBadRequest() throws Exception {
+		for (String limit : Arrays.asList("0", "101", "x")) {
+			perform(get("/blogs").param("limit", limit).contentType(MediaType.APPLICATION_JSON))
+			.andExpect(status().isBadRequest());
+		}
+	}
+
+	@Test
+	public void whenGetBlogSummaries_inNonemptyBlogRepository_returnBlogSummaryResponsesWithoutContent() throws Exception {
+
+		BlogSummary expectedBlogSummary = new BlogSummary(1L, "Title", new Date().getTime(), new Date().getTime());
+		when(blogService.getBlogSummaries(0L, 1)).thenReturn(new KeysetPage<>(Arrays.asList(expectedBlogSummary), true));
+
+		perform(get("/blogs").param("view", "summary").param("limit", "1").contentType(MediaType.APPLICATION_JSON))
+		.andExpect(status().isOk())
+		.andExpect(header().string("X-Next-Cursor", CursorUtil.encode(expectedBlogSummary.getId())))
+		.andExpect(jsonPath("$", hasSize(1)))
+		.andExpect(jsonPath("$[0].id", equalTo(1)))
+		.andExpect(jsonPath("$[0].title", equalTo(expectedBlogSummary.getTitle())))
+		.andExpect(jsonPath("$[0].content").doesNotExist())
+		.andExpect(jsonPath("$[0].createdDate", equalTo(expectedBlogSummary.getCreatedEpoch())))
+		.andExpect(jsonPath("$[0].lastModifiedDate", equalTo(expectedBlogSummary.getLastModifiedEpoch())));
+	}
+
+	@Test
+	public void whenSearchBlogs_withQuery_returnBlogResponsesAndNextCursor() throws Exception {
+
+		Blog expectedBlog = new Blog(3L, "Title", "Content", 1L, new Date().getTime(), new Date().getTime());
+		when(blogService.searchBlogs("content", 5, 1)).thenReturn(new KeysetPage<>(Arrays.asList(expectedBlog), true));
+
+		perform(get("/blogs/search").param("q", "content").param("cursor", CursorUtil.encode(5L))
+				.param("limit", "1"))
+		.andExpect(status().isOk())
+		.andExpect(header().string("X-Next-Cursor", CursorUtil.encode(6L)))
+		.andExpect(jsonPath("$", hasSize(1)))
+		.andExpect(jsonPath("$[0].id", equalTo(3)));
+	}
+
+	@Test
+	public void whenSearchBlogs_withNextPageBeyondMaxOffset_omitNextCursor() throws Exception {
+
+		Blog expectedBlog = new Blog(3L, "Title", "Content", 1L, new Date().getTime(), new Date().getTime());
+		int offset = BlogService.MAX_SEARCH_OFFSET - 10;
+		when(blogService.searchBlogs("content", offset, 20)).thenReturn(new KeysetPage<>(Arrays.asList(expectedBlog), true));
+
+		perform(get("/blogs/search").param("q", "content").param("cursor", CursorUtil.encode(offset))
+				.param("limit", "20"))
+		.andExpect(status().isOk())
+		.andExpect(header().doesNotExist("X-Next-Cursor"))
+		.andExpect(jsonPath("$", hasSize(1)));
+	}
+
+	@Test
+	public void whenSearchBlogs_withInvalidParameters_throwBadRequest() throws Exception {
+		perform(get("/blogs/search"))
+		.andExpect(status().isBadRequest());
+		perform(get("/blogs/search").param("q", " "))
+		.andExpect(status().isBadRequest());
+		perform(get("/blogs/search").param("q", "content").param("cursor", CursorUtil.encode(-1L)))
+		.andExpect(status().isBadRequest());
+		perform(get("/blogs/search").param("q", "content").param("cursor", "not a cursor"))
+		.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	public void whenGetBlogChanges_withSince_returnChangesAndNextCursor() throws Exception {
+
+		Blog expectedBlog = new Blog(2L, "Title", "Content", 1L, 1000L, 2000L);
+		BlogChangePosition expectedPosition = new BlogChangePosition(2000L, 2L, 5000L, Long.MAX_VALUE);
+		when(blogService.getBlogChanges(any(BlogChangePosition.class), eq(1))).thenReturn(new BlogChanges(
+				Arrays.asList(expectedBlog), Arrays.asList(3L), expectedPosition, true));
+
+		perform(get("/blogs/changes").param("since", "1000").param("limit", "1"))
+		.andExpect(status().isOk())
+		.andExpect(jsonPath("$.blogs", hasSize(1)))
+		.andExpect(jsonPath("$.blogs[0].id", equalTo(2)))
+		.andExpect(jsonPath("$.deletedIds", contains(3)))
+		.andExpect(jsonPath("$.nextCursor", equalTo(CursorUtil.encode(2000L, 2L, 5000L, Long.MAX_VALUE))))
+		.andExpect(jsonPath("$.hasMore", equalTo(true)));
+
+		ArgumentCaptor<BlogChangePosition> positionCaptor = ArgumentCaptor.forClass(BlogChangePosition.class);
+		verify(blogService).getBlogChanges(positionCaptor.capture(), eq(1));
+		assertEquals(1000L, positionCaptor.getValue().getModifiedEpoch());
+		assertEquals(Long.MAX_VALUE, positionCaptor.getValue().getModifiedBlogId());
+		assertEquals(1000L, positionCaptor.getValue().getDeletedEpoch());
+		assertEquals(Long.MAX_VALUE, positionCaptor.getValue().getDeletedBlogId());
+	}
+
+	@Test
+	public void whenGetBlogChanges_withCursor_resumeFromCursorPosition() throws Exception {
+
+		BlogChangePosition expectedPosition = new BlogChangePosition(3000L, Long.MAX_VALUE, 3000L, Long.MAX_VALUE);
+		when(blogService.getBlogChanges(any(BlogChangePosition.class), eq(20))).thenReturn(new BlogChanges(
+				Collections.emptyList(), Collections.emptyList(), expectedPosition, false));
+
+		perform(get("/blogs/changes").param("since", "0").param("cursor", CursorUtil.encode(2000L, 2L, 1500L, 7L)))
+		.andExpect(status().isOk())
+		.andExpect(jsonPath("$.blogs", hasSize(0)))
+		.andExpect(jsonPath("$.deletedIds", hasSize(0)))
+		.andExpect(jsonPath("$.hasMore", equalTo(false)));
+
+		ArgumentCaptor<BlogChangePosition> positionCaptor = ArgumentCaptor.forClass(BlogChangePosition.class);
+		verify(blogService).getBlogChanges(positionCaptor.capture(), eq(20));
+		assertEquals(2000L, positionCaptor.getValue().getModifiedEpoch());
+		assertEquals(2L, positionCaptor.getValue().getModifiedBlogId());
+		assertEquals(1500L, positionCaptor.getValue().getDeletedEpoch());
+		assertEquals(7L, positionCaptor.getValue().getDeletedBlogId());
+	}
+
+	@Test
+	public void whenGetBlogChanges_withCursorBeforeTombstoneRetention_returnGone() throws Exception {
+		when(blogService.getBlogChanges(any(BlogChangePosition.class), eq(20)))
+				.thenThrow(new BlogChangesExpiredException(1500L, 2000L));
+		perform(get("/blogs/changes").param("cursor", CursorUtil.encode(2000L, 2L, 1500L, 7L)))
+		.andExpect(status().isGone());
+	}
+
+	@Test
+	public void whenGetBlogChanges_withInvalidParameters_throwBadRequest() throws Exception {
+		perform(get("/blogs/changes").param("since", "-1"))
+		.andExpect(status().isBadRequest());
+		perform(get("/blogs/changes").param("cursor", CursorUtil.encode(1L)))
+		.andExpect(status().isBadRequest());
+		perform(get("/blogs/changes").param("cursor", "not a cursor"))
+		.andExpect(status().isBadRequest());
+		perform(get("/blogs/changes").param("limit", "101"))
+		.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	public void whenStreamBlogEvents_afterBlogUpdated_pushUpdatedEvent() throws Exception {
+
+		MvcResult mvcResult = mockMvc.perform(get("/blogs/stream").accept(MediaType.TEXT_EVENT_STREAM))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		Blog blog = new Blog(1L, "Title", "Content", 2L, 1000L, 2000L);
+		blogEventBroadcaster.onBlogEvent(new BlogEvent(BlogEventType.UPDATED, 1L, blog));
+
+		String content = awaitContent(mvcResult, "event:updated");
+		assertTrue(content.contains("data:{\"type\":\"updated\",\"id\":1,\"blog\":{\"id\":1,\"title\":\"Title\""));
+	}
+
+	@Test
+	public void whenStreamBlogEvents_withLastEventId_replayLaterEvents() throws Exception {
+
+		MvcResult mvcResult = mockMvc.perform(get("/blogs/stream")).andReturn();
+		blogEventBroadcaster.onBlogEvent(new BlogEvent(BlogEventType.DELETED, 11L, null));
+		blogEventBroadcaster.onBlogEvent(new BlogEvent(BlogEventType.DELETED, 12L, null));
+		String content = awaitContent(mvcResult, "\"id\":12");
+		String lastEventId = content.substring(content.indexOf("id:") + 3, content.indexOf('\n', content.indexOf("id:")));
+
+		MvcResult resumedMvcResult = mockMvc.perform(get("/blogs/stream").header("Last-Event-ID", lastEventId))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		String resumedContent = awaitContent(resumedMvcResult, "\"id\":12");
+		assertFalse(resumedContent.contains("\"id\":11"));
+		assertTrue(resumedContent.contains("event:deleted"));
+	}
+
+	@Test
+	public void whenStreamBlogEvents_withNegativeLastEventSequence_pushResetEvent() throws Exception {
+
+		MvcResult mvcResult = mockMvc.perform(get("/blogs/stream")).andReturn();
+		blogEventBroadcaster.onBlogEvent(new BlogEvent(BlogEventType.DELETED, 13L, null));
+		String content = awaitContent(mvcResult, "\"id\":13");
+		long epoch = CursorUtil.decode(
+				content.substring(content.indexOf("id:") + 3, content.indexOf('\n', content.indexOf("id:"))), 2)[0];
+
+		for (long afterSequence : new long[] { -1L, -5L }) {
+			MvcResult resumedMvcResult = mockMvc.perform(get("/blogs/stream")
+					.header("Last-Event-ID", CursorUtil.encode(epoch, afterSequence)))
+					.andExpect(request().asyncStarted())
+					.andReturn();
+			awaitContent(resumedMvcResult, "event:reset\ndata:unknown-last-event-id");
+		}
+	}
+
+	@Test
+	public void whenStreamBlogEvents_withUnknownLastEventId_pushResetEvent() throws Exception {
+		MvcResult mvcResult = mockMvc.perform(get("/blogs/stream").header("Last-Event-ID", CursorUtil.encode(1L, 1L)))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		awaitContent(mvcResult, "event:reset\ndata:unknown-last-event-id");
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void whenExportBlogs_inNonemptyBlogRepository_returnNdjsonBlogResponses() throws Exception {
+
+		Blog expectedBlogA = new Blog(1L, "TitleA", "ContentA", 1L, new Date().getTime(), new Date().getTime());
+		Blog expectedBlogB = new Blog(2L, "TitleB", "ContentB", 1L, new Date().getTime(), new Date().getTime());
+		doAnswer(invocation -> {
+			Consumer<Blog> blogConsumer = (Consumer<Blog>) invocation.getArguments()[0];
+			blogConsumer.accept(expectedBlogA);
+			blogConsumer.accept(expectedBlogB);
+			return null;
+		}).when(blogService).exportBlogs(any(Consumer.class));
+
+		String responseBody = perform(get("/blogs/export"))
+		.andExpect(status().isOk())
+		.andExpect(content().contentType("application/x-ndjson"))
+		.andReturn().getResponse().getContentAsString();
+
+		String[] lines = responseBody.split("\n");
+		assertEquals(2, lines.length);
+		assertEquals(expectedBlogA.getTitle(), objectMapper.readTree(lines[0]).get("title").asText());
+		assertEquals(expectedBlogB.getTitle(), objectMapper.readTree(lines[1]).get("title").asText());
+		assertTrue(responseBody.endsWith("\n"));
+	}
+
 	@Test
     public void whenGetBlog_withNonnumericBlogId_throwBadRequest() throws Exception {
-    	mockMvc.perform(get("/blogs/x").contentType(MediaType.APPLICATION_JSON))
+    	perform(get("/blogs/x").contentType(MediaType.APPLICATION_JSON))
     	.andExpect(status().isBadRequest());
     }
     
 	@Test
     public void whenGetBlog_withInvalidBlogId_throwNotFound() throws Exception {
 		doThrow(IllegalArgumentException.class).when(blogService).getBlog(1L);
-    	mockMvc.perform(get("/blogs/1").contentType(MediaType.APPLICATION_JSON))
+    	perform(get("/blogs/1").contentType(MediaType.APPLICATION_JSON))
     	.andExpect(status().isNotFound());
     }
 	
+	@Test
+    public void whenGetBlog_withMissingBlogId_returnNotFoundResponse() throws Exception {
+		doThrow(new BlogNotFoundException(1L)).when(blogService).getBlog(1L);
+    	perform(get("/blogs/1").contentType(MediaType.APPLICATION_JSON))
+    	.andExpect(status().isNotFound())
+    	.andExpect(jsonPath("$.status").value(404))
+    	.andExpect(jsonPath("$.exception").value(BlogNotFoundException.class.getCanonicalName()))
+    	.andExpect(jsonPath("$.message").value("No blog with id: 1"))
+    	.andExpect(jsonPath("$.path").value("/blogs/1"));
+    }
+	
 	@Test
 	public void whenGetBlog_withValidBlogId_returnBlogResponse() throws Exception {
 		
-		Blog expectedBlog = new Blog(1L, "Title", "Content", new Date().getTime(), new Date().getTime());
+		Blog expectedBlog = new Blog(1L, "Title", "Content", 1L, new Date().getTime(), new Date().getTime());
+		when(blogService.getBlogVersion(1L)).thenReturn(new BlogVersion(1L, expectedBlog.getLastModifiedEpoch()));
 		when(blogService.getBlog(1L)).thenReturn(expectedBlog);
 		
-		mockMvc.perform(get("/blogs/1").contentType(MediaType.APPLICATION_JSON))
+		perform(get("/blogs/1").contentType(MediaType.APPLICATION_JSON))
     	.andExpect(status().isOk())
     	.andExpect(jsonPath("$", notNullValue()))
     	.andExpect(jsonPath("$.id", equalTo(1)))
@@ -125,9 +458,141 @@ public class BlogControllerTest {
     	.andExpect(jsonPath("$.lastModifiedDate", equalTo(expectedBlog.getLastModifiedEpoch())));
 	}
 	
+	@Test
+	public void whenGetBlog_withValidBlogId_recordViewAndReturnViewCount() throws Exception {
+
+		Blog expectedBlog = new Blog(1L, "Title", "Content", 1L, new Date().getTime(), new Date().getTime(), 42L);
+		when(blogService.getBlogVersion(1L)).thenReturn(new BlogVersion(1L, expectedBlog.getLastModifiedEpoch()));
+		when(blogService.getBlog(1L)).thenReturn(expectedBlog);
+
+		perform(get("/blogs/1"))
+		.andExpect(status().isOk())
+		.andExpect(jsonPath("$.viewCount", equalTo(42)));
+		verify(blogService).recordBlogView(1L);
+	}
+
+	@Test
+	public void whenGetBlog_withMatchingIfNoneMatch_skipRecordView() throws Exception {
+		when(blogService.getBlogVersion(1L)).thenReturn(new BlogVersion(1L, new Date().getTime()));
+
+		perform(get("/blogs/1").header("If-None-Match", "W/\"1\""))
+		.andExpect(status().isNotModified());
+		verify(blogService, times(0)).recordBlogView(1L);
+	}
+
+	@Test
+	public void whenGetBlog_withValidBlogId_returnETagAndLastModified() throws Exception {
+
+		Blog expectedBlog = new Blog(1L, "Title", "Content", 3L, 1000L, 2000L);
+		when(blogService.getBlogVersion(1L)).thenReturn(new BlogVersion(3L, 2000L));
+		when(blogService.getBlog(1L)).thenReturn(expectedBlog);
+
+		perform(get("/blogs/1").contentType(MediaType.APPLICATION_JSON))
+		.andExpect(status().isOk())
+		.andExpect(header().string("ETag", "W/\"3\""))
+		.andExpect(jsonPath("$.version", equalTo(3)))
+		.andExpect(header().dateValue("Last-Modified", 2000L));
+	}
+
+	@Test
+	public void whenGetBlog_withoutConditionalHeaders_returnETagOfServedBlogWithoutVersionLookup() throws Exception {
+
+		Blog cachedBlog = new Blog(1L, "Title", "Content", 1L, 1000L, 1000L);
+		when(blogService.getBlogVersion(1L)).thenReturn(new BlogVersion(2L, 2000L));
+		when(blogService.getBlog(1L)).thenReturn(cachedBlog);
+
+		perform(get("/blogs/1"))
+		.andExpect(status().isOk())
+		.andExpect(header().string("ETag", "W/\"1\""))
+		.andExpect(header().dateValue("Last-Modified", 1000L))
+		.andExpect(jsonPath("$.version", equalTo(1)));
+		verify(blogService, times(0)).getBlogVersion(1L);
+	}
+
+	@Test
+	public void whenGetBlog_withStaleIfNoneMatchAndCachedBlog_returnETagOfServedBlog() throws Exception {
+
+		Blog cachedBlog = new Blog(1L, "Title", "Content", 1L, 1000L, 1000L);
+		when(blogService.getBlogVersion(1L)).thenReturn(new BlogVersion(2L, 2000L));
+		when(blogService.getBlog(1L)).thenReturn(cachedBlog);
+
+		perform(get("/blogs/1").header("If-None-Match", "W/\"0\""))
+		.andExpect(status().isOk())
+		.andExpect(header().string("ETag", "W/\"1\""))
+		.andExpect(jsonPath("$.version", equalTo(1)));
+	}
+
+	@Test
+	public void whenGetBlog_withMatchingIfNoneMatch_returnNotModifiedWithoutLoadingBlog() throws Exception {
+
+		when(blogService.getBlogVersion(1L)).thenReturn(new BlogVersion(3L, 2000L));
+
+		perform(get("/blogs/1").header("If-None-Match", "\"3\""))
+		.andExpect(status().isNotModified())
+		.andExpect(content().string(""));
+		verify(blogService, times(0)).getBlog(1L);
+	}
+
+	@Test
+	public void whenGetBlog_withIfNoneMatchList_returnNotModifiedWithETag() throws Exception {
+
+		when(blogService.getBlogVersion(1L)).thenReturn(new BlogVersion(3L, 2000L));
+
+		perform(get("/blogs/1").header("If-None-Match", "\"2\", W/\"3\""))
+		.andExpect(status().isNotModified())
+		.andExpect(header().string("ETag", "W/\"3\""))
+		.andExpect(header().dateValue("Last-Modified", 2000L));
+		verify(blogService, times(0)).getBlog(1L);
+	}
+
+	@Test
+	public void whenGetBlog_withStaleIfNoneMatch_returnBlogResponse() throws Exception {
+
+		Blog expectedBlog = new Blog(1L, "Title", "Content", 4L, 1000L, 3000L);
+		when(blogService.getBlogVersion(1L)).thenReturn(new BlogVersion(4L, 3000L));
+		when(blogService.getBlog(1L)).thenReturn(expectedBlog);
+
+		perform(get("/blogs/1").header("If-None-Match", "\"3\""))
+		.andExpect(status().isOk())
+		.andExpect(header().string("ETag", "W/\"4\""))
+		.andExpect(jsonPath("$.title", equalTo(expectedBlog.getTitle())));
+	}
+
+	@Test
+	public void whenGetBlog_withUnmodifiedIfModifiedSince_returnNotModified() throws Exception {
+
+		when(blogService.getBlogVersion(1L)).thenReturn(new BlogVersion(3L, 2000L));
+
+		perform(get("/blogs/1").header("If-Modified-Since", new Date(2000L)))
+		.andExpect(status().isNotModified());
+		verify(blogService, times(0)).getBlog(1L);
+	}
+
+	@Test
+	public void whenGetBlogs_withMatchingIfNoneMatch_returnNotModified() throws Exception {
+
+		Blog expectedBlog = new Blog(1L, "Title", "Content", 1L, 1000L, 2000L);
+		when(blogService.getBlogs(0L, 20)).thenReturn(new KeysetPage<>(Arrays.asList(expectedBlog), false));
+
+		String eTag = perform(get("/blogs"))
+		.andExpect(status().isOk())
+		.andExpect(header().string("ETag", startsWith("W/")))
+		.andReturn().getResponse().getHeader("ETag");
+
+		perform(get("/blogs").header("If-None-Match", eTag))
+		.andExpect(status().isNotModified())
+		.andExpect(content().string(""));
+
+		Blog modifiedBlog = new Blog(1L, "Title", "Modified", 1L, 1000L, 3000L);
+		when(blogService.getBlogs(0L, 20)).thenReturn(new KeysetPage<>(Arrays.asList(modifiedBlog), false));
+		perform(get("/blogs").header("If-None-Match", eTag))
+		.andExpect(status().isOk())
+		.andExpect(jsonPath("$[0].content", equalTo(modifiedBlog.getContent())));
+	}
+
 	@Test
 	public void whenCreateBlog_withNullCreateBlogRequest_throwBadRequest() throws Exception {
-		mockMvc.perform(post("/blogs").contentType(MediaType.APPLICATION_JSON).content((byte[]) null))
+		perform(post("/blogs").contentType(MediaType.APPLICATION_JSON).content((byte[]) null))
 		.andExpect(status().isBadRequest());
 	}
 	
@@ -147,7 +612,7 @@ public class BlogControllerTest {
 				if (!validTitle.equals(title) || !validContent.equals(content)) {
 					CreateBlogRequest createBlogRequest = new CreateBlogRequest(title, content);
 					String requestBody = objectMapper.writeValueAsString(createBlogRequest);
-					mockMvc.perform(post("/blogs").contentType(MediaType.APPLICATION_JSON).content(requestBody))
+					perform(post("/blogs").contentType(MediaType.APPLICATION_JSON).content(requestBody))
 					.andExpect(status().isBadRequest());
 				}
 			}
@@ -157,12 +622,12 @@ public class BlogControllerTest {
 	@Test
 	public void whenCreateBlog_withValidCreateBlogRequest_returnBlogResponse() throws Exception {
 		
-		Blog expectedBlog = new Blog(1L, "Title", "Content", new Date().getTime(), new Date().getTime());
+		Blog expectedBlog = new Blog(1L, "Title", "Content", 1L, new Date().getTime(), new Date().getTime());
 		when(blogService.createBlog(any(Blog.class))).thenReturn(expectedBlog);
 		
 		CreateBlogRequest createBlogRequest = new CreateBlogRequest(expectedBlog.getTitle(), expectedBlog.getContent());
 		String requestBody = objectMapper.writeValueAsString(createBlogRequest);
-		mockMvc.perform(post("/blogs").contentType(MediaType.APPLICATION_JSON).content(requestBody))
+		perform(post("/blogs").contentType(MediaType.APPLICATION_JSON).content(requestBody))
     	.andExpect(status().isOk())
     	.andExpect(jsonPath("$", notNullValue()))
     	.andExpect(jsonPath("$.id", equalTo(1)))
@@ -172,9 +637,47 @@ public class BlogControllerTest {
     	.andExpect(jsonPath("$.lastModifiedDate", equalTo(expectedBlog.getLastModifiedEpoch())));
 	}
 	
+	@Test
+	public void whenCreateBlogs_withEmptyCreateBlogRequests_throwBadRequest() throws Exception {
+		perform(post("/blogs/batch").contentType(MediaType.APPLICATION_JSON).content("[]"))
+		.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	public void whenCreateBlogs_withInvalidCreateBlogRequest_throwBadRequest() throws Exception {
+		for (String title : getInvalidTitles()) {
+			List<CreateBlogRequest> createBlogRequests = Arrays.asList(
+					new CreateBlogRequest("Title", "Content"), new CreateBlogRequest(title, "Content"));
+			String requestBody = objectMapper.writeValueAsString(createBlogRequests);
+			perform(post("/blogs/batch").contentType(MediaType.APPLICATION_JSON).content(requestBody))
+			.andExpect(status().isBadRequest());
+		}
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void whenCreateBlogs_withValidCreateBlogRequests_returnBlogResponses() throws Exception {
+
+		Blog expectedBlogA = new Blog(1L, "TitleA", "ContentA", 1L, new Date().getTime(), new Date().getTime());
+		Blog expectedBlogB = new Blog(2L, "TitleB", "ContentB", 1L, new Date().getTime(), new Date().getTime());
+		when(blogService.createBlogs(any(List.class))).thenReturn(Arrays.asList(expectedBlogA, expectedBlogB));
+
+		List<CreateBlogRequest> createBlogRequests = Arrays.asList(
+				new CreateBlogRequest(expectedBlogA.getTitle(), expectedBlogA.getContent()),
+				new CreateBlogRequest(expectedBlogB.getTitle(), expectedBlogB.getContent()));
+		String requestBody = objectMapper.writeValueAsString(createBlogRequests);
+		perform(post("/blogs/batch").contentType(MediaType.APPLICATION_JSON).content(requestBody))
+		.andExpect(status().isOk())
+		.andExpect(jsonPath("$", hasSize(2)))
+		.andExpect(jsonPath("$[0].id", equalTo(1)))
+		.andExpect(jsonPath("$[0].title", equalTo(expectedBlogA.getTitle())))
+		.andExpect(jsonPath("$[1].id", equalTo(2)))
+		.andExpect(jsonPath("$[1].title", equalTo(expectedBlogB.getTitle())));
+	}
+
 	@Test
 	public void whenUpdateBlog_withNonnumericBlogIdAndNullUpdateBlogRequest_throwBadReqeust() throws Exception {
-		mockMvc.perform(put("/blogs/x").contentType(MediaType.APPLICATION_JSON).content((byte[]) null))
+		perform(put("/blogs/x").contentType(MediaType.APPLICATION_JSON).content((byte[]) null))
 		.andExpect(status().isBadRequest());
 	}
 	
@@ -192,7 +695,7 @@ public class BlogControllerTest {
 		for (String title : getInvalidTitles()) {
 			for (String content : getInvalidContents()) {
 				if (!validTitle.equals(title) || !validContent.equals(content)) {
-					mockMvc.perform(put("/blogs/x").contentType(MediaType.APPLICATION_JSON).content((byte[]) null))
+					perform(put("/blogs/x").contentType(MediaType.APPLICATION_JSON).content((byte[]) null))
 					.andExpect(status().isBadRequest());
 				}
 			}
@@ -203,21 +706,21 @@ public class BlogControllerTest {
 	public void whenUpdateBlog_withNonnumericBlogIdAndValidUpdateBlogRequest_throwBadReqeust() throws Exception {
 		UpdateBlogRequest updateBlogRequest = new UpdateBlogRequest("Title", "Content");
 		String requestBody = objectMapper.writeValueAsString(updateBlogRequest);
-		mockMvc.perform(put("/blogs/x").contentType(MediaType.APPLICATION_JSON).content(requestBody))
+		perform(put("/blogs/x").contentType(MediaType.APPLICATION_JSON).content(requestBody))
 		.andExpect(status().isBadRequest());
 	}
 	
 	@Test
 	public void whenUpdateBlog_withInvalidBlogIdAndNullUpdateBlogRequest_throwBadReqeust() throws Exception {
-		doThrow(IllegalArgumentException.class).when(blogService).updateBlog(eq(1L), any(Blog.class));
-		mockMvc.perform(put("/blogs/1").contentType(MediaType.APPLICATION_JSON).content((byte[]) null))
+		doThrow(IllegalArgumentException.class).when(blogService).updateBlog(eq(1L), any(Long.class), any(Blog.class));
+		perform(put("/blogs/1").contentType(MediaType.APPLICATION_JSON).content((byte[]) null))
 		.andExpect(status().isBadRequest());
 	}
 	
 	@Test
 	public void whenUpdateBlog_withInvalidBlogIdAndInvalidUpdateBlogRequest_throwBadReqeust() throws Exception {
 		
-		doThrow(IllegalArgumentException.class).when(blogService).updateBlog(eq(1L), any(Blog.class));
+		doThrow(IllegalArgumentException.class).when(blogService).updateBlog(eq(1L), any(Long.class), any(Blog.class));
 		
 		String validTitle = "Title";
 		Set<String> titles = getInvalidTitles();
@@ -232,7 +735,7 @@ public class BlogControllerTest {
 				if (!validTitle.equals(title) || !validContent.equals(content)) {
 					UpdateBlogRequest updateBlogRequest = new UpdateBlogRequest(title, content);
 					String requestBody = objectMapper.writeValueAsString(updateBlogRequest);
-					mockMvc.perform(put("/blogs/1").contentType(MediaType.APPLICATION_JSON).content(requestBody))
+					perform(put("/blogs/1").contentType(MediaType.APPLICATION_JSON).content(requestBody))
 					.andExpect(status().isBadRequest());
 				}
 			}
@@ -241,26 +744,26 @@ public class BlogControllerTest {
 	
 	@Test
 	public void whenUpdateBlog_withInvalidBlogIdAndValidUpdateBlogRequest_throwNotFound() throws Exception {
-		doThrow(IllegalArgumentException.class).when(blogService).updateBlog(eq(1L), any(Blog.class));
+		doThrow(IllegalArgumentException.class).when(blogService).updateBlog(eq(1L), any(Long.class), any(Blog.class));
 		UpdateBlogRequest updateBlogRequest = new UpdateBlogRequest("Title", "Content");
 		String requestBody = objectMapper.writeValueAsString(updateBlogRequest);
-		mockMvc.perform(put("/blogs/1").contentType(MediaType.APPLICATION_JSON).content(requestBody))
+		perform(put("/blogs/1").contentType(MediaType.APPLICATION_JSON).content(requestBody))
 		.andExpect(status().isNotFound());
 	}
 	
 	@Test
 	public void whenUpdateBlog_withValidBlogIdAndNullUpdateBlogRequest_throwBadReqeust() throws Exception {
-		Blog expectedblog = new Blog(1L, "New Title", "New Content", new Date().getTime(), new Date().getTime());
-		when(blogService.updateBlog(eq(1L), any(Blog.class))).thenReturn(expectedblog);
-		mockMvc.perform(put("/blogs/1").contentType(MediaType.APPLICATION_JSON).content((byte[]) null))
+		Blog expectedblog = new Blog(1L, "New Title", "New Content", 1L, new Date().getTime(), new Date().getTime());
+		when(blogService.updateBlog(eq(1L), any(Long.class), any(Blog.class))).thenReturn(expectedblog);
+		perform(put("/blogs/1").contentType(MediaType.APPLICATION_JSON).content((byte[]) null))
 		.andExpect(status().isBadRequest());
 	}
 	
 	@Test
 	public void whenUpdateBlog_withValidBlogIdAndInvalidUpdateBlogRequest_throwBadReqeust() throws Exception {
 		
-		Blog expectedblog = new Blog(1L, "New Title", "New Content", new Date().getTime(), new Date().getTime());
-		when(blogService.updateBlog(eq(1L), any(Blog.class))).thenReturn(expectedblog);
+		Blog expectedblog = new Blog(1L, "New Title", "New Content", 1L, new Date().getTime(), new Date().getTime());
+		when(blogService.updateBlog(eq(1L), any(Long.class), any(Blog.class))).thenReturn(expectedblog);
 		
 		String validTitle = "Title";
 		Set<String> titles = getInvalidTitles();
@@ -275,7 +778,7 @@ public class BlogControllerTest {
 				if (!validTitle.equals(title) || !validContent.equals(content)) {
 					UpdateBlogRequest updateBlogRequest = new UpdateBlogRequest(title, content);
 					String requestBody = objectMapper.writeValueAsString(updateBlogRequest);
-					mockMvc.perform(put("/blogs/1").contentType(MediaType.APPLICATION_JSON).content(requestBody))
+					perform(put("/blogs/1").contentType(MediaType.APPLICATION_JSON).content(requestBody))
 					.andExpect(status().isBadRequest());
 				}
 			}
@@ -285,12 +788,12 @@ public class BlogControllerTest {
 	@Test
 	public void whenUpdateBlog_withValidBlogIdAndValidUpdateBlogRequest_returnUpdatedBlogResponse() throws Exception {
 		
-		Blog expectedblog = new Blog(1L, "New Title", "New Content", new Date().getTime(), new Date().getTime());
-		when(blogService.updateBlog(eq(1L), any(Blog.class))).thenReturn(expectedblog);
+		Blog expectedblog = new Blog(1L, "New Title", "New Content", 1L, new Date().getTime(), new Date().getTime());
+		when(blogService.updateBlog(eq(1L), any(Long.class), any(Blog.class))).thenReturn(expectedblog);
 		
 		UpdateBlogRequest updateBlogRequest = new UpdateBlogRequest("New Title", "New Content");
 		String requestBody = objectMapper.writeValueAsString(updateBlogRequest);
-		mockMvc.perform(put("/blogs/1").contentType(MediaType.APPLICATION_JSON).content(requestBody))
+		perform(put("/blogs/1").contentType(MediaType.APPLICATION_JSON).content(requestBody))
 		.andExpect(status().isOk())
     	.andExpect(jsonPath("$", notNullValue()))
     	.andExpect(jsonPath("$.id", equalTo(1)))
@@ -299,27 +802,278 @@ public class BlogControllerTest {
     	.andExpect(jsonPath("$.createdDate", equalTo(expectedblog.getCreatedEpoch())))
     	.andExpect(jsonPath("$.lastModifiedDate", equalTo(expectedblog.getLastModifiedEpoch())));
 	}
+
+	@Test
+	public void whenUpdateBlog_withMatchingIfMatch_returnUpdatedBlogResponseWithETag() throws Exception {
+
+		Blog expectedBlog = new Blog(1L, "New Title", "New Content", 4L, new Date().getTime(), new Date().getTime());
+		when(blogService.updateBlog(eq(1L), eq(3L), any(Blog.class))).thenReturn(expectedBlog);
+
+		String requestBody = objectMapper.writeValueAsString(new UpdateBlogRequest("New Title", "New Content"));
+		perform(put("/blogs/1").header("If-Match", "\"3\"")
+				.contentType(MediaType.APPLICATION_JSON).content(requestBody))
+		.andExpect(status().isOk())
+		.andExpect(header().string("ETag", "W/\"4\""))
+		.andExpect(jsonPath("$.version", equalTo(4)));
+	}
+
+	@Test
+	public void whenUpdateBlog_withWeakIfMatch_updateExpectedVersion() throws Exception {
+
+		Blog expectedBlog = new Blog(1L, "New Title", "New Content", 4L, new Date().getTime(), new Date().getTime());
+		when(blogService.updateBlog(eq(1L), eq(3L), any(Blog.class))).thenReturn(expectedBlog);
+
+		String requestBody = objectMapper.writeValueAsString(new UpdateBlogRequest("New Title", "New Content"));
+		perform(put("/blogs/1").header("If-Match", "W/\"3\"")
+				.contentType(MediaType.APPLICATION_JSON).content(requestBody))
+		.andExpect(status().isOk())
+		.andExpect(jsonPath("$.version", equalTo(4)));
+	}
+
+	@Test
+	public void whenUpdateBlog_withStaleIfMatch_throwPreconditionFailed() throws Exception {
+
+		doThrow(OptimisticLockingFailureException.class).when(blogService).updateBlog(eq(1L), eq(3L), any(Blog.class));
+
+		String requestBody = objectMapper.writeValueAsString(new UpdateBlogRequest("New Title", "New Content"));
+		perform(put("/blogs/1").header("If-Match", "\"3\"")
+				.contentType(MediaType.APPLICATION_JSON).content(requestBody))
+		.andExpect(status().isPreconditionFailed());
+	}
+
+	@Test
+	public void whenUpdateBlog_withUnparsableIfMatch_throwPreconditionFailed() throws Exception {
+
+		String requestBody = objectMapper.writeValueAsString(new UpdateBlogRequest("New Title", "New Content"));
+		for (String ifMatch : Arrays.asList("3", "W/3", "\"x\"")) {
+			perform(put("/blogs/1").header("If-Match", ifMatch)
+					.contentType(MediaType.APPLICATION_JSON).content(requestBody))
+			.andExpect(status().isPreconditionFailed());
+		}
+		verify(blogService, times(0)).updateBlog(eq(1L), any(Long.class), any(Blog.class));
+	}
 	
+	@Test
+	public void whenGetBlog_withValidBlogId_runOnBlogServiceExecutor() throws Exception {
+		Blog expectedBlog = new Blog(1L, "Title", "Content", 1L, new Date().getTime(), new Date().getTime());
+		when(blogService.getBlogVersion(1L)).thenReturn(new BlogVersion(1L, expectedBlog.getLastModifiedEpoch()));
+		List<String> threadNames = new ArrayList<>();
+		doAnswer(invocation -> {
+			threadNames.add(Thread.currentThread().getName());
+			return expectedBlog;
+		}).when(blogService).getBlog(1L);
+
+		MvcResult mvcResult = mockMvc.perform(get("/blogs/1")).andReturn();
+		assertTrue(mvcResult.getRequest().isAsyncStarted());
+		mockMvc.perform(asyncDispatch(mvcResult))
+		.andExpect(status().isOk())
+		.andExpect(jsonPath("$.title", equalTo(expectedBlog.getTitle())));
+		assertEquals(1, threadNames.size());
+		assertTrue(threadNames.get(0).startsWith("blog-service-"));
+	}
+
+	@Test
+	public void whenGetBlog_withValidBlogId_recordRequestDuration() throws Exception {
+		Blog expectedBlog = new Blog(1L, "Title", "Content", 1L, new Date().getTime(), new Date().getTime());
+		when(blogService.getBlogVersion(1L)).thenReturn(new BlogVersion(1L, expectedBlog.getLastModifiedEpoch()));
+		when(blogService.getBlog(1L)).thenReturn(expectedBlog);
+		String[] labelNames = { "handler", "method", "status" };
+		String[] labelValues = { "getBlog", "GET", "200" };
+		Double countBefore = CollectorRegistry.defaultRegistry.getSampleValue(
+				"blog_service_http_request_duration_seconds_count", labelNames, labelValues);
+
+		perform(get("/blogs/1")).andExpect(status().isOk());
+		assertEquals((countBefore == null ? 0.0 : countBefore) + 1.0, CollectorRegistry.defaultRegistry.getSampleValue(
+				"blog_service_http_request_duration_seconds_count", labelNames, labelValues), 0.0);
+	}
+
+	@Test
+	public void whenGetBlog_withValidBlogId_recordSerializationAndQueueWaitDurations() throws Exception {
+		Blog expectedBlog = new Blog(1L, "Title", "Content", 1L, new Date().getTime(), new Date().getTime());
+		when(blogService.getBlog(1L)).thenReturn(expectedBlog);
+		String[] converterLabelNames = { "converter" };
+		String[] converterLabelValues = { MappingJackson2HttpMessageConverter.class.getSimpleName() };
+		String[] executorLabelNames = { "executor" };
+		String[] executorLabelValues = { ExecutorConfiguration.BLOG_SERVICE_EXECUTOR };
+		Double serializationCountBefore = CollectorRegistry.defaultRegistry.getSampleValue(
+				"blog_service_serialization_duration_seconds_count", converterLabelNames, converterLabelValues);
+		Double queueWaitCountBefore = CollectorRegistry.defaultRegistry.getSampleValue(
+				"blog_service_executor_queue_wait_seconds_count", executorLabelNames, executorLabelValues);
+
+		perform(get("/blogs/1")).andExpect(status().isOk());
+		assertEquals((serializationCountBefore == null ? 0.0 : serializationCountBefore) + 1.0,
+				CollectorRegistry.defaultRegistry.getSampleValue("blog_service_serialization_duration_seconds_count",
+						converterLabelNames, converterLabelValues), 0.0);
+		assertEquals((queueWaitCountBefore == null ? 0.0 : queueWaitCountBefore) + 1.0,
+				CollectorRegistry.defaultRegistry.getSampleValue("blog_service_executor_queue_wait_seconds_count",
+						executorLabelNames, executorLabelValues), 0.0);
+	}
+
+	@Test
+	public void whenGetBlog_withFullBlogServiceExecutor_throwServiceUnavailable() throws Exception {
+		Blog expectedBlog = new Blog(1L, "Title", "Content", 1L, new Date().getTime(), new Date().getTime());
+		when(blogService.getBlogVersion(1L)).thenReturn(new BlogVersion(1L, expectedBlog.getLastModifiedEpoch()));
+		CountDownLatch startedLatch = new CountDownLatch(1);
+		CountDownLatch releaseLatch = new CountDownLatch(1);
+		doAnswer(invocation -> {
+			startedLatch.countDown();
+			releaseLatch.await(10, TimeUnit.SECONDS);
+			return expectedBlog;
+		}).when(blogService).getBlog(1L);
+
+		try {
+			MvcResult runningResult = mockMvc.perform(get("/blogs/1")).andReturn();
+			assertTrue(startedLatch.await(10, TimeUnit.SECONDS));
+			MvcResult queuedResult = mockMvc.perform(get("/blogs/1")).andReturn();
+			mockMvc.perform(get("/blogs/1"))
+			.andExpect(status().isServiceUnavailable());
+			releaseLatch.countDown();
+			mockMvc.perform(asyncDispatch(runningResult)).andExpect(status().isOk());
+			mockMvc.perform(asyncDispatch(queuedResult)).andExpect(status().isOk());
+		} finally {
+			releaseLatch.countDown();
+		}
+	}
+
 	@Test
     public void whenDeleteBlog_withNonnumericBlogId_throwBadRequest() throws Exception {
-    	mockMvc.perform(delete("/blogs/x").contentType(MediaType.APPLICATION_JSON))
+    	perform(delete("/blogs/x").contentType(MediaType.APPLICATION_JSON))
     	.andExpect(status().isBadRequest());
     }
     
 	@Test
     public void whenDeleteBlog_withInvalidBlogId_throwNotFound() throws Exception {
 		doThrow(IllegalArgumentException.class).when(blogService).deleteBlog(1L);
-    	mockMvc.perform(delete("/blogs/1").contentType(MediaType.APPLICATION_JSON))
+    	perform(delete("/blogs/1").contentType(MediaType.APPLICATION_JSON))
     	.andExpect(status().isNotFound());
     }
 	
 	@Test
 	public void whenDeleteBlog_withValidBlogId_returnOk() throws Exception {
 		doNothing().when(blogService).deleteBlog(1L);
-		mockMvc.perform(delete("/blogs/1").contentType(MediaType.APPLICATION_JSON))
+		perform(delete("/blogs/1").contentType(MediaType.APPLICATION_JSON))
     	.andExpect(status().isOk());
 	}
 	
+	@Test
+	public void whenDeleteBlogs_withEmptyIds_throwBadRequest() throws Exception {
+		perform(delete("/blogs").param("ids", "").contentType(MediaType.APPLICATION_JSON))
+		.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	public void whenDeleteBlogs_withNonnumericIds_throwBadRequest() throws Exception {
+		perform(delete("/blogs").param("ids", "1,x").contentType(MediaType.APPLICATION_JSON))
+		.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	public void whenDeleteBlogs_withValidIds_returnAffectedCount() throws Exception {
+		when(blogService.deleteBlogs(Arrays.asList(1L, 2L, 3L))).thenReturn(2);
+		perform(delete("/blogs").param("ids", "1,2,3").contentType(MediaType.APPLICATION_JSON))
+		.andExpect(status().isOk())
+		.andExpect(jsonPath("$.affectedCount", equalTo(2)));
+	}
+
+	@Test
+	public void whenGetBlogsByIds_withEmptyIds_throwBadRequest() throws Exception {
+		perform(get("/blogs").param("ids", "").contentType(MediaType.APPLICATION_JSON))
+		.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	public void whenGetBlogsByIds_withValidIds_returnBlogsAndMissingIds() throws Exception {
+		long epoch = new Date().getTime();
+		when(blogService.getBlogsByIds(Arrays.asList(3L, 2L, 1L))).thenReturn(Arrays.asList(
+				new Blog(3L, "Title 3", "Content", 0L, epoch, epoch),
+				new Blog(1L, "Title 1", "Content", 0L, epoch, epoch)));
+		perform(get("/blogs").param("ids", "3,2,1").contentType(MediaType.APPLICATION_JSON))
+		.andExpect(status().isOk())
+		.andExpect(jsonPath("$.blogs", hasSize(2)))
+		.andExpect(jsonPath("$.blogs[0].id", equalTo(3)))
+		.andExpect(jsonPath("$.blogs[1].id", equalTo(1)))
+		.andExpect(jsonPath("$.missingIds", contains(2)));
+	}
+
+	@Test
+	public void whenGetBlogsByIds_withView_throwBadRequest() throws Exception {
+		perform(get("/blogs").param("ids", "1,2").param("view", "summary").contentType(MediaType.APPLICATION_JSON))
+		.andExpect(status().isBadRequest());
+		verifyZeroInteractions(blogService);
+	}
+
+	@Test
+	public void whenLookupBlogs_withEmptyIds_throwBadRequest() throws Exception {
+		String requestBody = objectMapper.writeValueAsString(new GetBlogsRequest(Collections.emptyList()));
+		perform(post("/blogs/lookup").contentType(MediaType.APPLICATION_JSON).content(requestBody))
+		.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	public void whenLookupBlogs_withValidIds_returnBlogsAndMissingIds() throws Exception {
+		long epoch = new Date().getTime();
+		when(blogService.getBlogsByIds(Arrays.asList(1L, 2L))).thenReturn(Arrays.asList(
+				new Blog(1L, "Title 1", "Content", 0L, epoch, epoch)));
+		String requestBody = objectMapper.writeValueAsString(new GetBlogsRequest(Arrays.asList(1L, 2L)));
+		perform(post("/blogs/lookup").contentType(MediaType.APPLICATION_JSON).content(requestBody))
+		.andExpect(status().isOk())
+		.andExpect(jsonPath("$.blogs", hasSize(1)))
+		.andExpect(jsonPath("$.blogs[0].id", equalTo(1)))
+		.andExpect(jsonPath("$.missingIds", contains(2)));
+	}
+
+	@Test
+	public void whenPatchBlogs_withInvalidPatchBlogsRequest_throwBadRequest() throws Exception {
+		List<PatchBlogsRequest> patchBlogsRequests = new ArrayList<>();
+		patchBlogsRequests.add(new PatchBlogsRequest(Collections.emptyList(), "Title", "Content"));
+		patchBlogsRequests.add(new PatchBlogsRequest(Arrays.asList(1L), null, null));
+		for (String title : getInvalidTitles()) {
+			if (title != null) {
+				patchBlogsRequests.add(new PatchBlogsRequest(Arrays.asList(1L), title, null));
+			}
+		}
+		for (String content : getInvalidContents()) {
+			if (content != null) {
+				patchBlogsRequests.add(new PatchBlogsRequest(Arrays.asList(1L), null, content));
+			}
+		}
+		for (PatchBlogsRequest patchBlogsRequest : patchBlogsRequests) {
+			String requestBody = objectMapper.writeValueAsString(patchBlogsRequest);
+			perform(patch("/blogs/batch").contentType(MediaType.APPLICATION_JSON).content(requestBody))
+			.andExpect(status().isBadRequest());
+		}
+	}
+
+	@Test
+	public void whenPatchBlogs_withValidPatchBlogsRequest_returnAffectedCount() throws Exception {
+		when(blogService.patchBlogs(eq(Arrays.asList(1L, 2L)), any(BlogPatch.class))).thenReturn(2);
+		PatchBlogsRequest patchBlogsRequest = new PatchBlogsRequest(Arrays.asList(1L, 2L), null, "[removed]");
+		String requestBody = objectMapper.writeValueAsString(patchBlogsRequest);
+		perform(patch("/blogs/batch").contentType(MediaType.APPLICATION_JSON).content(requestBody))
+		.andExpect(status().isOk())
+		.andExpect(jsonPath("$.affectedCount", equalTo(2)));
+	}
+
+	private String awaitContent(MvcResult mvcResult, String expectedContent) throws Exception {
+		long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+		String content = mvcResult.getResponse().getContentAsString();
+		while (!content.contains(expectedContent) && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+			content = mvcResult.getResponse().getContentAsString();
+		}
+		assertTrue(content, content.contains(expectedContent));
+		return content;
+	}
+
+	private ResultActions perform(RequestBuilder requestBuilder) throws Exception {
+		ResultActions resultActions = mockMvc.perform(requestBuilder);
+		MvcResult mvcResult = resultActions.andReturn();
+		if (mvcResult.getRequest().isAsyncStarted()) {
+			return mockMvc.perform(asyncDispatch(mvcResult));
+		}
+		return resultActions;
+	}
+
 	private Set<String> getInvalidTitles() {
 		String nullTitle = null;
 		String emptyTitle = "";
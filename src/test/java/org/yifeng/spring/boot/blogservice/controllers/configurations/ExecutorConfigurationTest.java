@@ -0,0 +1,45 @@
+package org.yifeng.spring.boot.blogservice.controllers.configurations;
+
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.yifeng.spring.boot.blogservice.services.BlogService;
+
+public class ExecutorConfigurationTest {
+
+	@Test
+	public void whenDestroyBlogServiceExecutor_withRunningTask_flushBlogViewsAfterTaskCompletes() throws Exception {
+		ExecutorConfiguration executorConfiguration = new ExecutorConfiguration();
+		ReflectionTestUtils.setField(executorConfiguration, "blogServiceExecutorEnabled", true);
+		ReflectionTestUtils.setField(executorConfiguration, "blogServiceExecutorPoolSize", 1);
+		ReflectionTestUtils.setField(executorConfiguration, "blogServiceExecutorQueueCapacity", 1);
+		ReflectionTestUtils.setField(executorConfiguration, "blogServiceExecutorAwaitTerminationSeconds", 5);
+		BlogService blogService = mock(BlogService.class);
+		ThreadPoolTaskExecutor blogServiceExecutor =
+				(ThreadPoolTaskExecutor) executorConfiguration.getBlogServiceExecutor(blogService);
+		blogServiceExecutor.initialize();
+		CountDownLatch taskStarted = new CountDownLatch(1);
+		// The task only records its view once shutdown has begun, like a request still running at that point.
+		blogServiceExecutor.execute(() -> {
+			taskStarted.countDown();
+			while (!blogServiceExecutor.getThreadPoolExecutor().isShutdown()) {
+				Thread.yield();
+			}
+			blogService.recordBlogView(1L);
+		});
+		assertTrue(taskStarted.await(5, TimeUnit.SECONDS));
+
+		blogServiceExecutor.destroy();
+		InOrder inOrder = inOrder(blogService);
+		inOrder.verify(blogService).recordBlogView(1L);
+		inOrder.verify(blogService).flushBlogViews();
+	}
+}
@@ -0,0 +1,171 @@
+package org.yifeng.spring.boot.blogservice.controllers.events;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.junit.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+public class BlogEventSubscriberTest {
+
+	private final List<Runnable> drainTasks = new ArrayList<>();
+	private final LongAdder coalescedCount = new LongAdder();
+	private final LongAdder resetCount = new LongAdder();
+
+	@Test
+	public void whenOffer_withUpdatesOfSameBlog_coalesceIntoLatestEvent() {
+		RecordingSseEmitter sseEmitter = new RecordingSseEmitter();
+		BlogEventSubscriber subscriber = new BlogEventSubscriber(sseEmitter, 10, drainTasks::add, coalescedCount, resetCount);
+
+		subscriber.offer(newEvent(1L, 1L, "v1"));
+		subscriber.offer(newEvent(2L, 2L, "v1"));
+		subscriber.offer(newEvent(3L, 1L, "v2"));
+		assertEquals(1, drainTasks.size());
+		assertEquals(2, subscriber.getPendingCount());
+		runDrainTasks();
+
+		assertEquals(Arrays.asList("id:2 event:updated data:v1", "id:3 event:updated data:v2"), sseEmitter.getEvents());
+		assertEquals(1, coalescedCount.sum());
+	}
+
+	@Test
+	public void whenOffer_withMoreBlogsThanBufferCapacity_sendResetBeforeLatestEvent() {
+		RecordingSseEmitter sseEmitter = new RecordingSseEmitter();
+		BlogEventSubscriber subscriber = new BlogEventSubscriber(sseEmitter, 2, drainTasks::add, coalescedCount, resetCount);
+
+		subscriber.offer(newEvent(1L, 1L, "v1"));
+		subscriber.offer(newEvent(2L, 2L, "v1"));
+		subscriber.offer(newEvent(3L, 3L, "v1"));
+		runDrainTasks();
+
+		assertEquals(Arrays.asList("event:reset data:overflow", "id:3 event:updated data:v1"), sseEmitter.getEvents());
+		assertEquals(1, resetCount.sum());
+	}
+
+	@Test
+	public void whenHeartbeat_withPendingEvents_sendEventsWithoutHeartbeat() {
+		RecordingSseEmitter sseEmitter = new RecordingSseEmitter();
+		BlogEventSubscriber subscriber = new BlogEventSubscriber(sseEmitter, 10, drainTasks::add, coalescedCount, resetCount);
+
+		subscriber.heartbeat();
+		runDrainTasks();
+		subscriber.offer(newEvent(1L, 1L, "v1"));
+		subscriber.heartbeat();
+		runDrainTasks();
+
+		assertEquals(Arrays.asList(":heartbeat", "id:1 event:updated data:v1"), sseEmitter.getEvents());
+	}
+
+	@Test
+	public void whenSend_withFailedEmitter_stopDraining() {
+		RecordingSseEmitter sseEmitter = new RecordingSseEmitter();
+		sseEmitter.failing = true;
+		BlogEventSubscriber subscriber = new BlogEventSubscriber(sseEmitter, 10, drainTasks::add, coalescedCount, resetCount);
+
+		subscriber.offer(newEvent(1L, 1L, "v1"));
+		subscriber.offer(newEvent(2L, 2L, "v1"));
+		runDrainTasks();
+		subscriber.offer(newEvent(3L, 3L, "v1"));
+
+		assertTrue(drainTasks.isEmpty());
+		assertEquals(0, subscriber.getPendingCount());
+		assertTrue(sseEmitter.getEvents().isEmpty());
+	}
+
+	@Test
+	public void whenAbort_duringStalledSend_completeEmitterAfterSendReturns() throws Exception {
+		RecordingSseEmitter sseEmitter = new RecordingSseEmitter();
+		sseEmitter.sendStarted = new CountDownLatch(1);
+		sseEmitter.sendReleased = new CountDownLatch(1);
+		BlogEventSubscriber subscriber = new BlogEventSubscriber(sseEmitter, 10, drainTasks::add, coalescedCount, resetCount);
+
+		subscriber.offer(newEvent(1L, 1L, "v1"));
+		subscriber.offer(newEvent(2L, 2L, "v1"));
+		Thread drainThread = new Thread(this::runDrainTasks);
+		drainThread.start();
+		assertTrue(sseEmitter.sendStarted.await(5, TimeUnit.SECONDS));
+		long now = System.currentTimeMillis();
+		assertFalse(subscriber.isSendStalled(now, 10000L));
+		assertTrue(subscriber.isSendStalled(now + 10001L, 10000L));
+
+		subscriber.abort();
+		assertFalse(sseEmitter.completed);
+		sseEmitter.sendReleased.countDown();
+		drainThread.join(5000);
+		subscriber.offer(newEvent(3L, 3L, "v1"));
+
+		assertTrue(sseEmitter.completed);
+		assertEquals(Arrays.asList("id:1 event:updated data:v1"), sseEmitter.getEvents());
+		assertFalse(subscriber.isSendStalled(now + 10001L, 10000L));
+		assertTrue(drainTasks.isEmpty());
+	}
+
+	@Test
+	public void whenAbort_withoutSend_completeEmitter() {
+		RecordingSseEmitter sseEmitter = new RecordingSseEmitter();
+		BlogEventSubscriber subscriber = new BlogEventSubscriber(sseEmitter, 10, drainTasks::add, coalescedCount, resetCount);
+
+		subscriber.abort();
+
+		assertTrue(sseEmitter.completed);
+		assertFalse(subscriber.isSendStalled(System.currentTimeMillis(), 0L));
+	}
+
+	private BlogStreamEvent newEvent(long sequence, long blogId, String data) {
+		return new BlogStreamEvent(sequence, blogId, Long.toString(sequence), "updated", data);
+	}
+
+	private void runDrainTasks() {
+		List<Runnable> tasks = new ArrayList<>(drainTasks);
+		drainTasks.clear();
+		tasks.forEach(Runnable::run);
+	}
+
+	private static class RecordingSseEmitter extends SseEmitter {
+
+		private final List<String> events = new ArrayList<>();
+		private boolean failing;
+		private CountDownLatch sendStarted;
+		private CountDownLatch sendReleased;
+		private volatile boolean completed;
+
+		@Override
+		public void send(SseEventBuilder builder) throws IOException {
+			if (failing) {
+				throw new IOException("Broken pipe");
+			}
+			if (sendStarted != null) {
+				sendStarted.countDown();
+				try {
+					sendReleased.await(5, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					throw new IOException(e);
+				}
+			}
+			StringBuilder event = new StringBuilder();
+			for (DataWithMediaType dataWithMediaType : builder.build()) {
+				event.append(dataWithMediaType.getData());
+			}
+			events.add(event.toString().trim().replace("\n", " "));
+		}
+
+		public List<String> getEvents() {
+			return events;
+		}
+
+		@Override
+		public void complete() {
+			completed = true;
+		}
+	}
+}
@@ -0,0 +1,54 @@
+package org.yifeng.spring.boot.blogservice.controllers.filters;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.servlet.FilterChain;
+import javax.servlet.http.Cookie;
+
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.yifeng.spring.boot.blogservice.repositories.datasources.DataSourceRoutingContext;
+
+public class ReadYourWritesFilterTest {
+
+	@Test
+	public void whenFilter_withWrite_setLastWriteCookie() throws Exception {
+		MockHttpServletResponse response = filter(new MockHttpServletRequest("POST", "/blogs"), new AtomicBoolean());
+		assertNotNull(response.getCookie(ReadYourWritesFilter.LAST_WRITE_COOKIE));
+	}
+
+	@Test
+	public void whenFilter_withLookup_neitherSetLastWriteCookieNorRequirePrimary() throws Exception {
+		AtomicBoolean primaryRequired = new AtomicBoolean();
+		MockHttpServletResponse response = filter(new MockHttpServletRequest("POST", "/blogs/lookup"), primaryRequired);
+		assertNull(response.getCookie(ReadYourWritesFilter.LAST_WRITE_COOKIE));
+		assertFalse(primaryRequired.get());
+	}
+
+	@Test
+	public void whenFilter_withLookupAfterRecentWrite_requirePrimary() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", "/blogs/lookup");
+		request.setCookies(new Cookie(ReadYourWritesFilter.LAST_WRITE_COOKIE, Long.toString(System.currentTimeMillis())));
+		AtomicBoolean primaryRequired = new AtomicBoolean();
+		filter(request, primaryRequired);
+		assertTrue(primaryRequired.get());
+	}
+
+	private MockHttpServletResponse filter(MockHttpServletRequest request, AtomicBoolean primaryRequired)
+			throws Exception {
+		ReadYourWritesFilter readYourWritesFilter = new ReadYourWritesFilter();
+		ReflectionTestUtils.setField(readYourWritesFilter, "readYourWritesWindowSeconds", 5);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		FilterChain filterChain = (servletRequest, servletResponse) ->
+				primaryRequired.set(DataSourceRoutingContext.isPrimaryRequired());
+		readYourWritesFilter.doFilter(request, response, filterChain);
+		return response;
+	}
+}
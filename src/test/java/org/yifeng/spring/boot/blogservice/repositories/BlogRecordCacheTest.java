@@ -0,0 +1,166 @@
+package org.yifeng.spring.boot.blogservice.repositories;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.yifeng.spring.boot.blogservice.metrics.HibernatePublicMetrics;
+import org.yifeng.spring.boot.blogservice.repositories.records.BlogRecord;
+
+import net.sf.ehcache.CacheManager;
+
+// The second-level and query caches are only filled on commit, so every repository call runs in its own transaction.
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class BlogRecordCacheTest {
+
+	private static final String BLOG_RECORD_REGION = BlogRecord.class.getName();
+
+	@Autowired
+	private BlogRepository blogRepository;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Value("${blog-service.views.flushed-count-expire-after-write-seconds}")
+	private long flushedViewCountExpireAfterWriteSeconds;
+
+	@Value("${blog-service.cache.expire-after-write-seconds}")
+	private long blogCacheExpireAfterWriteSeconds;
+
+	private Statistics statistics;
+
+	@Before
+	public void setUp() {
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		entityManagerFactory.getCache().evictAll();
+		statistics.clear();
+	}
+
+	@After
+	public void tearDown() {
+		blogRepository.deleteAllInBatch();
+		entityManagerFactory.getCache().evictAll();
+	}
+
+	@Test
+	public void whenFindOne_afterFirstFindOne_serveFromSecondLevelCache() {
+		long blogId = blogRepository.save(new BlogRecord("Title", "Content")).getId();
+		entityManagerFactory.getCache().evictAll();
+		statistics.clear();
+
+		assertEquals("Title", blogRepository.findOne(blogId).getTitle());
+		assertEquals("Title", blogRepository.findOne(blogId).getTitle());
+		assertEquals(1L, statistics.getSecondLevelCacheStatistics(BLOG_RECORD_REGION).getMissCount());
+		assertEquals(1L, statistics.getSecondLevelCacheStatistics(BLOG_RECORD_REGION).getHitCount());
+		assertEquals(1L, statistics.getPrepareStatementCount());
+	}
+
+	@Test
+	public void whenUpdateByIds_afterFindOne_evictSecondLevelCacheEntry() {
+		long blogId = blogRepository.save(new BlogRecord("Title", "Content")).getId();
+		blogRepository.findOne(blogId);
+		assertTrue(entityManagerFactory.getCache().contains(BlogRecord.class, blogId));
+
+		new TransactionTemplate(transactionManager).execute(status -> blogRepository.updateByIds(
+				Collections.singletonList(blogId), "Updated title", null, new Date()));
+		assertFalse(entityManagerFactory.getCache().contains(BlogRecord.class, blogId));
+		assertEquals("Updated title", blogRepository.findOne(blogId).getTitle());
+	}
+
+	@Test
+	public void whenEvictFromSecondLevelCache_afterFindOne_removeSecondLevelCacheEntry() {
+		long blogId = blogRepository.save(new BlogRecord("Title", "Content")).getId();
+		blogRepository.findOne(blogId);
+		assertTrue(entityManagerFactory.getCache().contains(BlogRecord.class, blogId));
+
+		blogRepository.evictFromSecondLevelCache(blogId);
+		assertFalse(entityManagerFactory.getCache().contains(BlogRecord.class, blogId));
+	}
+
+	@Test
+	public void whenFlushedViewCountsExpire_withDefaultProperties_outliveCachedCopiesReadBeforeFlush() {
+		long recordTimeToLiveSeconds = CacheManager.getInstance().getCache(BLOG_RECORD_REGION)
+				.getCacheConfiguration().getTimeToLiveSeconds();
+		assertTrue(flushedViewCountExpireAfterWriteSeconds >= recordTimeToLiveSeconds + blogCacheExpireAfterWriteSeconds);
+	}
+
+	@Test
+	public void whenFindByIdGreaterThan_afterWrite_invalidateQueryCache() {
+		blogRepository.save(new BlogRecord("TitleA", "ContentA"));
+		statistics.clear();
+
+		blogRepository.findByIdGreaterThanOrderByIdAsc(0L, new PageRequest(0, 10));
+		assertEquals(1, blogRepository.findByIdGreaterThanOrderByIdAsc(0L, new PageRequest(0, 10)).size());
+		assertEquals(1L, statistics.getQueryCacheMissCount());
+		assertEquals(1L, statistics.getQueryCacheHitCount());
+
+		blogRepository.save(new BlogRecord("TitleB", "ContentB"));
+		assertEquals(2, blogRepository.findByIdGreaterThanOrderByIdAsc(0L, new PageRequest(0, 10)).size());
+		assertEquals(2L, statistics.getQueryCacheMissCount());
+		assertEquals(1L, statistics.getQueryCacheHitCount());
+	}
+
+	@Test
+	public void whenStreamAll_afterEvictAll_leaveSecondLevelCacheEmpty() {
+		long blogId = blogRepository.save(new BlogRecord("Title", "Content")).getId();
+		entityManagerFactory.getCache().evictAll();
+
+		long streamedCount = new TransactionTemplate(transactionManager).execute(status -> {
+			try (Stream<BlogRecord> blogRecords = blogRepository.streamAll()) {
+				return blogRecords.count();
+			}
+		});
+		assertEquals(1L, streamedCount);
+		assertFalse(entityManagerFactory.getCache().contains(BlogRecord.class, blogId));
+	}
+
+	@Test
+	public void whenMetrics_withDefaultProperties_exposeQueryEntityAndCacheRegionStatistics() {
+		HibernatePublicMetrics hibernatePublicMetrics = new HibernatePublicMetrics();
+		ReflectionTestUtils.setField(hibernatePublicMetrics, "entityManagerFactory", entityManagerFactory);
+		long blogId = blogRepository.save(new BlogRecord("Title", "Content")).getId();
+		blogRepository.findOne(blogId);
+
+		Collection<Metric<?>> metrics = hibernatePublicMetrics.metrics();
+		Set<String> metricNames = metrics.stream().map(Metric::getName).collect(Collectors.toSet());
+		assertTrue(metricNames.contains("hibernate.query.execution.count"));
+		assertTrue(metricNames.contains("hibernate.entity.load.count"));
+		assertTrue(metricNames.contains("hibernate.flush.count"));
+		assertTrue(metricNames.contains("hibernate.cache.query.hit.count"));
+		assertTrue(metricNames.contains("hibernate.cache.region." + BLOG_RECORD_REGION + ".hit.count"));
+	}
+}
@@ -1,13 +1,21 @@
 package org.yifeng.spring.boot.blogservice.repositories;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import javax.validation.ConstraintViolationException;
 
@@ -20,8 +28,11 @@ import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.yifeng.spring.boot.blogservice.repositories.records.BlogRecord;
+import org.yifeng.spring.boot.blogservice.repositories.records.BlogSummaryRecord;
+import org.yifeng.spring.boot.blogservice.repositories.records.BlogVersionRecord;
 
 @RunWith(SpringRunner.class)
 @DataJpaTest
@@ -62,6 +73,57 @@ public class BlogRepositoryTest {
 		assertEquals(expectedBlogRecordB.getLastModifiedDate(), actualBlogRecords.get(1).getLastModifiedDate());
 	}
 
+	@Test
+	public void whenFindByIdGreaterThan_inNonemptyBlogTable_returnBlogRecordsAfterId() {
+		BlogRecord blogRecordA = testEntityManager.persist(new BlogRecord("TitleA", "ContentA"));
+		BlogRecord blogRecordB = testEntityManager.persist(new BlogRecord("TitleB", "ContentB"));
+		BlogRecord blogRecordC = testEntityManager.persist(new BlogRecord("TitleC", "ContentC"));
+		List<BlogRecord> actualBlogRecords = blogRepository.findByIdGreaterThanOrderByIdAsc(
+				blogRecordA.getId(), new PageRequest(0, 1));
+		assertNotNull(actualBlogRecords);
+		assertEquals(1, actualBlogRecords.size());
+		assertEquals(blogRecordB.getId(), actualBlogRecords.get(0).getId());
+		actualBlogRecords = blogRepository.findByIdGreaterThanOrderByIdAsc(
+				blogRecordB.getId(), new PageRequest(0, 2));
+		assertEquals(1, actualBlogRecords.size());
+		assertEquals(blogRecordC.getId(), actualBlogRecords.get(0).getId());
+	}
+
+	@Test
+	public void whenFindSummariesByIdGreaterThan_inNonemptyBlogTable_returnBlogSummaryRecordsAfterId() {
+		BlogRecord blogRecordA = testEntityManager.persist(new BlogRecord("TitleA", "ContentA"));
+		BlogRecord expectedBlogRecord = testEntityManager.persist(new BlogRecord("TitleB", "ContentB"));
+		testEntityManager.persist(new BlogRecord("TitleC", "ContentC"));
+		List<BlogSummaryRecord> actualBlogSummaryRecords = blogRepository.findSummariesByIdGreaterThan(
+				blogRecordA.getId(), new PageRequest(0, 1));
+		assertNotNull(actualBlogSummaryRecords);
+		assertEquals(1, actualBlogSummaryRecords.size());
+		assertEquals(expectedBlogRecord.getId(), actualBlogSummaryRecords.get(0).getId());
+		assertEquals(expectedBlogRecord.getTitle(), actualBlogSummaryRecords.get(0).getTitle());
+		assertEquals(expectedBlogRecord.getCreatedDate(), actualBlogSummaryRecords.get(0).getCreatedDate());
+		assertEquals(expectedBlogRecord.getLastModifiedDate(), actualBlogSummaryRecords.get(0).getLastModifiedDate());
+	}
+
+	@Test
+	public void whenStreamAll_inNonemptyBlogTable_streamBlogRecordsInIdOrder() {
+		BlogRecord expectedBlogRecordA = testEntityManager.persist(new BlogRecord("TitleA", "ContentA"));
+		BlogRecord expectedBlogRecordB = testEntityManager.persist(new BlogRecord("TitleB", "ContentB"));
+		testEntityManager.flush();
+		testEntityManager.clear();
+		try (Stream<BlogRecord> blogRecords = blogRepository.streamAll()) {
+			List<Long> actualIds = blogRecords.peek(blogRepository::detach)
+					.map(BlogRecord::getId).collect(Collectors.toList());
+			assertEquals(Arrays.asList(expectedBlogRecordA.getId(), expectedBlogRecordB.getId()), actualIds);
+		}
+	}
+
+	@Test
+	public void whenDetach_withManagedBlogRecord_detachBlogRecord() {
+		BlogRecord blogRecord = testEntityManager.persist(new BlogRecord("Title", "Content"));
+		blogRepository.detach(blogRecord);
+		assertFalse(testEntityManager.getEntityManager().contains(blogRecord));
+	}
+
 	@Test(expected = InvalidDataAccessApiUsageException.class)
 	public void whenFindOne_withNullId_throwInvalidDataAccessApiUsageException() {
 		blogRepository.findOne((Long) null);
@@ -84,6 +146,31 @@ public class BlogRepositoryTest {
 		assertEquals(expectedBlogRecord.getLastModifiedDate(), actualBlogRecord.getLastModifiedDate());
 	}
 
+	@Test
+	public void whenFindVersionById_withInvalidId_returnNull() {
+		assertNull(blogRepository.findVersionById(1L));
+	}
+
+	@Test
+	public void whenFindVersionById_withValidId_returnBlogVersionRecord() {
+		BlogRecord expectedBlogRecord = testEntityManager.persist(new BlogRecord("Title", "Content"));
+		BlogVersionRecord actualBlogVersionRecord = blogRepository.findVersionById(expectedBlogRecord.getId());
+		assertEquals(expectedBlogRecord.getVersion(), actualBlogVersionRecord.getVersion());
+		assertEquals(
+				expectedBlogRecord.getLastModifiedDate().getTime(),
+				actualBlogVersionRecord.getLastModifiedDate().getTime());
+	}
+
+	@Test
+	public void whenSave_withModifiedBlogRecord_incrementVersion() {
+		BlogRecord blogRecord = testEntityManager.persistFlushFind(new BlogRecord("Title", "Content"));
+		long originalVersion = blogRecord.getVersion();
+		blogRecord.setContent("New Content");
+		blogRepository.save(blogRecord);
+		testEntityManager.flush();
+		assertEquals(originalVersion + 1, blogRecord.getVersion().longValue());
+	}
+
 	@Test(expected = InvalidDataAccessApiUsageException.class)
 	public void whenSave_withNullBlogRecord_throwInvalidDataAccessApiUsageException() {
 		blogRepository.save((BlogRecord) null);
@@ -104,6 +191,7 @@ public class BlogRepositoryTest {
 			for (String content : contents) {
 				if (!validTitle.equals(title) || !validContent.equals(content)) {
 					blogRepository.save(new BlogRecord(title, content));
+					testEntityManager.flush();
 				}
 			}
 		}
@@ -121,6 +209,19 @@ public class BlogRepositoryTest {
 		assertEquals(expectedBlogRecord.getLastModifiedDate(), actualBlogRecord.getLastModifiedDate());
 	}
 
+	@Test
+	public void whenSave_withValidBlogRecords_assignDistinctIds() {
+		List<BlogRecord> blogRecords = new ArrayList<>();
+		for (int i = 0; i < 120; i++) {
+			blogRecords.add(new BlogRecord("Title" + i, "Content" + i));
+		}
+		List<BlogRecord> actualBlogRecords = blogRepository.save(blogRecords);
+		testEntityManager.flush();
+		assertEquals(blogRecords.size(), actualBlogRecords.size());
+		assertEquals(blogRecords.size(), actualBlogRecords.stream().map(BlogRecord::getId).distinct().count());
+		assertEquals(blogRecords.size(), blogRepository.count());
+	}
+
 	@Test(expected = InvalidDataAccessApiUsageException.class)
 	public void whenDelete_withNullId_throwInvalidDataAccessApiUsageException() {
 		blogRepository.delete((Long) null);
@@ -138,6 +239,107 @@ public class BlogRepositoryTest {
 		assertNull(testEntityManager.find(BlogRecord.class, blogRecord.getId()));
 	}
 
+	@Test
+	public void whenUpdateByIds_withValidIds_updateBlogRecordsInPlace() {
+		BlogRecord blogRecordA = testEntityManager.persist(new BlogRecord("TitleA", "ContentA"));
+		BlogRecord blogRecordB = testEntityManager.persist(new BlogRecord("TitleB", "ContentB"));
+		BlogRecord blogRecordC = testEntityManager.persist(new BlogRecord("TitleC", "ContentC"));
+		testEntityManager.flush();
+		Date lastModifiedDate = new Date(blogRecordA.getLastModifiedDate().getTime() + 1000L);
+		int affectedCount = blogRepository.updateByIds(
+				Arrays.asList(blogRecordA.getId(), blogRecordB.getId(), -1L), null, "[removed]", lastModifiedDate);
+		assertEquals(2, affectedCount);
+		BlogRecord actualBlogRecordA = testEntityManager.find(BlogRecord.class, blogRecordA.getId());
+		assertEquals("TitleA", actualBlogRecordA.getTitle());
+		assertEquals("[removed]", actualBlogRecordA.getContent());
+		assertEquals(lastModifiedDate.getTime(), actualBlogRecordA.getLastModifiedDate().getTime());
+		assertEquals(blogRecordA.getVersion() + 1, actualBlogRecordA.getVersion().longValue());
+		BlogRecord actualBlogRecordC = testEntityManager.find(BlogRecord.class, blogRecordC.getId());
+		assertEquals("ContentC", actualBlogRecordC.getContent());
+	}
+
+	@Test
+	public void whenDeleteByIds_withValidIds_deleteBlogRecords() {
+		BlogRecord blogRecordA = testEntityManager.persist(new BlogRecord("TitleA", "ContentA"));
+		BlogRecord blogRecordB = testEntityManager.persist(new BlogRecord("TitleB", "ContentB"));
+		BlogRecord blogRecordC = testEntityManager.persist(new BlogRecord("TitleC", "ContentC"));
+		testEntityManager.flush();
+		int affectedCount = blogRepository.deleteByIds(Arrays.asList(blogRecordA.getId(), blogRecordB.getId(), -1L));
+		assertEquals(2, affectedCount);
+		assertNull(testEntityManager.find(BlogRecord.class, blogRecordA.getId()));
+		assertNull(testEntityManager.find(BlogRecord.class, blogRecordB.getId()));
+		assertNotNull(testEntityManager.find(BlogRecord.class, blogRecordC.getId()));
+	}
+
+	@Test
+	public void whenFindModifiedAfter_withPosition_returnBlogRecordsInModifiedOrder() {
+		BlogRecord blogRecordA = testEntityManager.persist(new BlogRecord("TitleA", "ContentA"));
+		BlogRecord blogRecordB = testEntityManager.persist(new BlogRecord("TitleB", "ContentB"));
+		BlogRecord blogRecordC = testEntityManager.persist(new BlogRecord("TitleC", "ContentC"));
+		testEntityManager.flush();
+		blogRepository.updateByIds(Arrays.asList(blogRecordA.getId()), null, null, new Date(30000L));
+		blogRepository.updateByIds(Arrays.asList(blogRecordB.getId(), blogRecordC.getId()), null, null, new Date(20000L));
+
+		List<Long> actualBlogIds = blogRepository.findModifiedAfter(
+				new Date(10000L), Long.MAX_VALUE, new Date(40000L), new PageRequest(0, 10)).stream()
+				.map(BlogRecord::getId)
+				.collect(Collectors.toList());
+		assertEquals(Arrays.asList(blogRecordB.getId(), blogRecordC.getId(), blogRecordA.getId()), actualBlogIds);
+
+		actualBlogIds = blogRepository.findModifiedAfter(
+				new Date(20000L), blogRecordB.getId(), new Date(40000L), new PageRequest(0, 10)).stream()
+				.map(BlogRecord::getId)
+				.collect(Collectors.toList());
+		assertEquals(Arrays.asList(blogRecordC.getId(), blogRecordA.getId()), actualBlogIds);
+
+		actualBlogIds = blogRepository.findModifiedAfter(
+				new Date(20000L), Long.MAX_VALUE, new Date(25000L), new PageRequest(0, 10)).stream()
+				.map(BlogRecord::getId)
+				.collect(Collectors.toList());
+		assertEquals(0, actualBlogIds.size());
+	}
+
+	@Test
+	public void whenIncrementViewCounts_withViewCountDeltas_addViewsWithoutBumpingVersion() {
+		BlogRecord blogRecordA = testEntityManager.persist(new BlogRecord("TitleA", "ContentA"));
+		BlogRecord blogRecordB = testEntityManager.persist(new BlogRecord("TitleB", "ContentB"));
+		testEntityManager.flush();
+		Map<Long, Long> viewCountDeltas = new HashMap<>();
+		viewCountDeltas.put(blogRecordA.getId(), 3L);
+		viewCountDeltas.put(blogRecordB.getId(), 1L);
+		assertEquals(viewCountDeltas, blogRepository.incrementViewCounts(viewCountDeltas));
+		assertEquals(Collections.singletonMap(blogRecordA.getId(), 5L),
+				blogRepository.incrementViewCounts(Collections.singletonMap(blogRecordA.getId(), 2L)));
+		testEntityManager.clear();
+
+		BlogRecord actualBlogRecordA = blogRepository.findOne(blogRecordA.getId());
+		assertEquals(5L, actualBlogRecordA.getViewCount());
+		assertEquals(blogRecordA.getVersion(), actualBlogRecordA.getVersion());
+		assertEquals(1L, blogRepository.findOne(blogRecordB.getId()).getViewCount());
+	}
+
+	@Test
+	public void whenSaveAndFlush_afterIncrementViewCounts_keepViewCount() {
+		BlogRecord blogRecord = testEntityManager.persist(new BlogRecord("Title", "Content"));
+		testEntityManager.flush();
+		blogRepository.incrementViewCounts(Collections.singletonMap(blogRecord.getId(), 7L));
+
+		blogRecord.setTitle("Updated title");
+		blogRepository.saveAndFlush(blogRecord);
+		testEntityManager.clear();
+		assertEquals(7L, blogRepository.findOne(blogRecord.getId()).getViewCount());
+	}
+
+	@Test
+	public void whenFindIdsByIdsForUpdate_withValidIds_returnExistingIds() {
+		BlogRecord blogRecordA = testEntityManager.persist(new BlogRecord("TitleA", "ContentA"));
+		BlogRecord blogRecordB = testEntityManager.persist(new BlogRecord("TitleB", "ContentB"));
+		testEntityManager.flush();
+		List<Long> actualBlogIds = blogRepository.findIdsByIdsForUpdate(Arrays.asList(blogRecordA.getId(), -1L));
+		assertEquals(Arrays.asList(blogRecordA.getId()), actualBlogIds);
+		assertNotNull(blogRecordB.getId());
+	}
+
 	private Set<String> getInvalidTitles() {
 		String nullTitle = null;
 		String emptyTitle = "";
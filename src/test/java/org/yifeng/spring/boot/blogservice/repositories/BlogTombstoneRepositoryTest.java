@@ -0,0 +1,80 @@
+package org.yifeng.spring.boot.blogservice.repositories;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.yifeng.spring.boot.blogservice.repositories.records.BlogTombstoneRecord;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+public class BlogTombstoneRepositoryTest {
+
+	@Autowired
+	private BlogTombstoneRepository blogTombstoneRepository;
+
+	@Autowired
+	private TestEntityManager testEntityManager;
+
+	@Test
+	public void whenSave_withNewTombstones_persistTombstones() {
+		blogTombstoneRepository.save(Arrays.asList(
+				new BlogTombstoneRecord(1L, new Date(10000L)), new BlogTombstoneRecord(2L, new Date(10000L))));
+		testEntityManager.flush();
+		testEntityManager.clear();
+		BlogTombstoneRecord actualBlogTombstoneRecord = testEntityManager.find(BlogTombstoneRecord.class, 2L);
+		assertNotNull(actualBlogTombstoneRecord);
+		assertEquals(10000L, actualBlogTombstoneRecord.getDeletedDate().getTime());
+	}
+
+	@Test
+	public void whenFindDeletedAfter_withPosition_returnTombstonesInDeletedOrder() {
+		testEntityManager.persist(new BlogTombstoneRecord(3L, new Date(10000L)));
+		testEntityManager.persist(new BlogTombstoneRecord(2L, new Date(20000L)));
+		testEntityManager.persist(new BlogTombstoneRecord(1L, new Date(20000L)));
+		testEntityManager.flush();
+
+		List<Long> actualBlogIds = blogTombstoneRepository.findDeletedAfter(
+				new Date(0L), Long.MAX_VALUE, new Date(30000L), new PageRequest(0, 10)).stream()
+				.map(BlogTombstoneRecord::getBlogId)
+				.collect(Collectors.toList());
+		assertEquals(Arrays.asList(3L, 1L, 2L), actualBlogIds);
+
+		actualBlogIds = blogTombstoneRepository.findDeletedAfter(
+				new Date(20000L), 1L, new Date(30000L), new PageRequest(0, 10)).stream()
+				.map(BlogTombstoneRecord::getBlogId)
+				.collect(Collectors.toList());
+		assertEquals(Arrays.asList(2L), actualBlogIds);
+
+		actualBlogIds = blogTombstoneRepository.findDeletedAfter(
+				new Date(0L), Long.MAX_VALUE, new Date(15000L), new PageRequest(0, 10)).stream()
+				.map(BlogTombstoneRecord::getBlogId)
+				.collect(Collectors.toList());
+		assertEquals(Arrays.asList(3L), actualBlogIds);
+	}
+
+	@Test
+	public void whenDeleteByDeletedDateBefore_withOldTombstones_deleteOldTombstones() {
+		testEntityManager.persist(new BlogTombstoneRecord(1L, new Date(10000L)));
+		testEntityManager.persist(new BlogTombstoneRecord(2L, new Date(20000L)));
+		testEntityManager.flush();
+		assertEquals(1, blogTombstoneRepository.deleteByDeletedDateBefore(new Date(15000L)));
+		assertNull(testEntityManager.find(BlogTombstoneRecord.class, 1L));
+		assertNotNull(testEntityManager.find(BlogTombstoneRecord.class, 2L));
+	}
+}
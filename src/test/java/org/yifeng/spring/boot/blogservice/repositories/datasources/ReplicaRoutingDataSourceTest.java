@@ -0,0 +1,177 @@
+package org.yifeng.spring.boot.blogservice.repositories.datasources;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+public class ReplicaRoutingDataSourceTest {
+
+	private EmbeddedDatabase primaryDatabase;
+	private EmbeddedDatabase replicaDatabaseA;
+	private EmbeddedDatabase replicaDatabaseB;
+
+	@Before
+	public void setUp() {
+		primaryDatabase = createDatabase("primary");
+		replicaDatabaseA = createDatabase("replicaA");
+		replicaDatabaseB = createDatabase("replicaB");
+	}
+
+	@After
+	public void tearDown() {
+		DataSourceRoutingContext.clear();
+		primaryDatabase.shutdown();
+		replicaDatabaseA.shutdown();
+		replicaDatabaseB.shutdown();
+	}
+
+	@Test
+	public void whenQuery_inReadWriteTransaction_routeToPrimary() {
+		ReplicaRoutingDataSource replicaRoutingDataSource = new ReplicaRoutingDataSource(
+				primaryDatabase, Collections.singletonList(replicaDatabaseA));
+		assertEquals("primary", queryDatabaseName(replicaRoutingDataSource, false));
+	}
+
+	@Test
+	public void whenQuery_inReadOnlyTransaction_routeToReplica() {
+		ReplicaRoutingDataSource replicaRoutingDataSource = new ReplicaRoutingDataSource(
+				primaryDatabase, Collections.singletonList(replicaDatabaseA));
+		assertEquals("replicaA", queryDatabaseName(replicaRoutingDataSource, true));
+	}
+
+	@Test
+	public void whenQuery_inReadOnlyTransactionWithoutReplicas_routeToPrimary() {
+		ReplicaRoutingDataSource replicaRoutingDataSource = new ReplicaRoutingDataSource(
+				primaryDatabase, Collections.emptyList());
+		assertEquals("primary", queryDatabaseName(replicaRoutingDataSource, true));
+	}
+
+	@Test
+	public void whenQuery_inReadOnlyTransactionsWithReplicas_routeRoundRobin() {
+		ReplicaRoutingDataSource replicaRoutingDataSource = new ReplicaRoutingDataSource(
+				primaryDatabase, Arrays.asList(replicaDatabaseA, replicaDatabaseB));
+		List<String> databaseNames = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			databaseNames.add(queryDatabaseName(replicaRoutingDataSource, true));
+		}
+		assertEquals(Arrays.asList("replicaA", "replicaB", "replicaA", "replicaB"), databaseNames);
+	}
+
+	@Test
+	public void whenQuery_inReadOnlyTransactionWithPrimaryRequired_routeToPrimary() {
+		ReplicaRoutingDataSource replicaRoutingDataSource = new ReplicaRoutingDataSource(
+				primaryDatabase, Collections.singletonList(replicaDatabaseA));
+		DataSourceRoutingContext.setPrimaryRequired(true);
+		assertEquals("primary", queryDatabaseName(replicaRoutingDataSource, true));
+	}
+
+	@Test
+	public void whenQuery_inPropagatedTaskWithPrimaryRequired_routeToPrimary() throws Exception {
+		ReplicaRoutingDataSource replicaRoutingDataSource = new ReplicaRoutingDataSource(
+				primaryDatabase, Collections.singletonList(replicaDatabaseA));
+		DataSourceRoutingContext.setPrimaryRequired(true);
+		List<String> databaseNames = new ArrayList<>();
+		Thread thread = new Thread(DataSourceRoutingContext.propagate(
+				() -> databaseNames.add(queryDatabaseName(replicaRoutingDataSource, true))));
+		thread.start();
+		thread.join();
+		assertEquals(Collections.singletonList("primary"), databaseNames);
+	}
+
+	@Test
+	public void whenQuery_withUnreachableReplica_routeToHealthyReplica() {
+		DataSource unreachableReplica = new DriverManagerDataSource("jdbc:h2:tcp://localhost:1/unreachable");
+		ReplicaRoutingDataSource replicaRoutingDataSource = new ReplicaRoutingDataSource(
+				primaryDatabase, Arrays.asList(unreachableReplica, replicaDatabaseB));
+		assertEquals("replicaB", queryDatabaseName(replicaRoutingDataSource, true));
+		assertEquals(1, replicaRoutingDataSource.getHealthyReplicaCount());
+		assertEquals("replicaB", queryDatabaseName(replicaRoutingDataSource, true));
+		assertEquals("replicaB", queryDatabaseName(replicaRoutingDataSource, true));
+	}
+
+	@Test
+	public void whenCheckReplicaHealth_withUnreachableReplica_routeToPrimary() {
+		DataSource unreachableReplica = new DriverManagerDataSource("jdbc:h2:tcp://localhost:1/unreachable");
+		ReplicaRoutingDataSource replicaRoutingDataSource = new ReplicaRoutingDataSource(
+				primaryDatabase, Collections.singletonList(unreachableReplica));
+		replicaRoutingDataSource.checkReplicaHealth();
+		assertEquals(0, replicaRoutingDataSource.getHealthyReplicaCount());
+		assertEquals("primary", queryDatabaseName(replicaRoutingDataSource, true));
+	}
+
+	@Test
+	public void whenCheckReplicaHealth_withRecoveredReplica_routeToReplica() {
+		DelegatingDataSource recoveringReplica = new DelegatingDataSource(
+				new DriverManagerDataSource("jdbc:h2:tcp://localhost:1/unreachable"));
+		ReplicaRoutingDataSource replicaRoutingDataSource = new ReplicaRoutingDataSource(
+				primaryDatabase, Collections.singletonList(recoveringReplica));
+		replicaRoutingDataSource.checkReplicaHealth();
+		assertEquals("primary", queryDatabaseName(replicaRoutingDataSource, true));
+
+		recoveringReplica.setTargetDataSource(replicaDatabaseA);
+		replicaRoutingDataSource.checkReplicaHealth();
+		assertEquals(1, replicaRoutingDataSource.getHealthyReplicaCount());
+		assertEquals("replicaA", queryDatabaseName(replicaRoutingDataSource, true));
+	}
+
+	@Test
+	public void whenClose_withPooledDataSources_closePrimaryAndReplicaPools() {
+		HikariDataSource primaryPool = createPool("primary");
+		HikariDataSource replicaPool = createPool("replicaA");
+		ReplicaRoutingDataSource replicaRoutingDataSource = new ReplicaRoutingDataSource(
+				primaryPool, Arrays.asList(replicaPool, replicaDatabaseB));
+		assertEquals("replicaA", queryDatabaseName(replicaRoutingDataSource, true));
+
+		replicaRoutingDataSource.close();
+		assertTrue(primaryPool.isClosed());
+		assertTrue(replicaPool.isClosed());
+	}
+
+	private HikariDataSource createPool(String name) {
+		HikariDataSource hikariDataSource = new HikariDataSource();
+		hikariDataSource.setJdbcUrl("jdbc:h2:mem:" + name);
+		hikariDataSource.setUsername("sa");
+		return hikariDataSource;
+	}
+
+	private String queryDatabaseName(DataSource routingDataSource, boolean readOnly) {
+		DataSource dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+		TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+		transactionTemplate.setReadOnly(readOnly);
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+		return transactionTemplate.execute(
+				status -> jdbcTemplate.queryForObject("select name from database_name", String.class));
+	}
+
+	private EmbeddedDatabase createDatabase(String name) {
+		EmbeddedDatabase embeddedDatabase = new EmbeddedDatabaseBuilder()
+				.setType(EmbeddedDatabaseType.H2)
+				.setName(name)
+				.build();
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(embeddedDatabase);
+		jdbcTemplate.execute("create table database_name (name varchar(20))");
+		jdbcTemplate.update("insert into database_name (name) values (?)", name);
+		return embeddedDatabase;
+	}
+}
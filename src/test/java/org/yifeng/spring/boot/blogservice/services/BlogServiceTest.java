@@ -1,36 +1,87 @@
 package org.yifeng.spring.boot.blogservice.services;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 import javax.validation.ConstraintViolationException;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ConcurrentTaskScheduler;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.validation.beanvalidation.MethodValidationPostProcessor;
 import org.yifeng.spring.boot.blogservice.repositories.BlogRepository;
+import org.yifeng.spring.boot.blogservice.repositories.BlogTombstoneRepository;
+import org.yifeng.spring.boot.blogservice.repositories.datasources.DataSourceRoutingContext;
 import org.yifeng.spring.boot.blogservice.repositories.records.BlogRecord;
+import org.yifeng.spring.boot.blogservice.repositories.records.BlogSummaryRecord;
+import org.yifeng.spring.boot.blogservice.repositories.records.BlogTombstoneRecord;
+import org.yifeng.spring.boot.blogservice.repositories.records.BlogVersionRecord;
+import org.yifeng.spring.boot.blogservice.services.events.BlogEvent;
+import org.yifeng.spring.boot.blogservice.services.events.BlogEventType;
+import org.yifeng.spring.boot.blogservice.services.exceptions.BlogChangesExpiredException;
+import org.yifeng.spring.boot.blogservice.services.exceptions.BlogNotFoundException;
 import org.yifeng.spring.boot.blogservice.services.models.Blog;
+import org.yifeng.spring.boot.blogservice.services.models.BlogChangePosition;
+import org.yifeng.spring.boot.blogservice.services.models.BlogChanges;
+import org.yifeng.spring.boot.blogservice.services.models.BlogPatch;
+import org.yifeng.spring.boot.blogservice.services.models.BlogSummary;
+import org.yifeng.spring.boot.blogservice.services.models.BlogVersion;
+import org.yifeng.spring.boot.blogservice.services.models.KeysetPage;
+import org.yifeng.spring.boot.blogservice.services.search.BlogSearchIndex;
 
 @RunWith(SpringRunner.class)
+@DirtiesContext(classMode = ClassMode.AFTER_EACH_TEST_METHOD)
 public class BlogServiceTest {
 
 	@Configuration
@@ -41,10 +92,35 @@ public class BlogServiceTest {
 			return new BlogService();
 		}
 
+		@Bean
+		public BlogSearchIndex getBlogSearchIndex() {
+			return new BlogSearchIndex();
+		}
+
 		@Bean
 		public MethodValidationPostProcessor getMethodValidationPostProcessor() {
 			return new MethodValidationPostProcessor();
 		}
+
+		@Bean
+		public BlogEventRecorder getBlogEventRecorder() {
+			return new BlogEventRecorder();
+		}
+
+		@Bean
+		public TaskScheduler getTaskScheduler() {
+			return new ConcurrentTaskScheduler();
+		}
+	}
+
+	public static class BlogEventRecorder {
+
+		private final List<BlogEvent> blogEvents = new ArrayList<>();
+
+		@EventListener
+		public void onBlogEvent(BlogEvent blogEvent) {
+			blogEvents.add(blogEvent);
+		}
 	}
 
 	@Autowired
@@ -53,12 +129,22 @@ public class BlogServiceTest {
 	@MockBean
 	private BlogRepository blogRepository;
 
+	@MockBean
+	private BlogTombstoneRepository blogTombstoneRepository;
+
+	@MockBean
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private BlogEventRecorder blogEventRecorder;
+
 	@Test
 	public void whenGetBlogs_inEmptyBlogRepository_returnEmptyBlogs() {
-		when(blogRepository.findAll()).thenReturn(Collections.emptyList());
-		List<Blog> blogs = blogService.getBlogs();
-		assertNotNull(blogs);
-		assertEquals(blogs.size(), 0);
+		when(blogRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Pageable.class))).thenReturn(Collections.emptyList());
+		KeysetPage<Blog> blogPage = blogService.getBlogs(0L, 20);
+		assertNotNull(blogPage);
+		assertEquals(blogPage.getItems().size(), 0);
+		assertFalse(blogPage.hasNext());
 	}
 
 	@Test
@@ -68,17 +154,23 @@ public class BlogServiceTest {
 		when(expectedBlogRecordA.getId()).thenReturn(1L);
 		when(expectedBlogRecordA.getTitle()).thenReturn("TitleA");
 		when(expectedBlogRecordA.getContent()).thenReturn("ContentA");
+		when(expectedBlogRecordA.getVersion()).thenReturn(0L);
 		when(expectedBlogRecordA.getCreatedDate()).thenReturn(new Date());
 		when(expectedBlogRecordA.getLastModifiedDate()).thenReturn(new Date());
 		BlogRecord expectedBlogRecordB = mock(BlogRecord.class);
 		when(expectedBlogRecordB.getId()).thenReturn(2L);
 		when(expectedBlogRecordB.getTitle()).thenReturn("TitleB");
 		when(expectedBlogRecordB.getContent()).thenReturn("ContentB");
+		when(expectedBlogRecordB.getVersion()).thenReturn(0L);
 		when(expectedBlogRecordB.getCreatedDate()).thenReturn(new Date());
 		when(expectedBlogRecordB.getLastModifiedDate()).thenReturn(new Date());
-		when(blogRepository.findAll()).thenReturn(Arrays.asList(expectedBlogRecordA, expectedBlogRecordB));
+		when(blogRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Pageable.class)))
+				.thenReturn(Arrays.asList(expectedBlogRecordA, expectedBlogRecordB));
 
-		List<Blog> actualBlogs = blogService.getBlogs();
+		KeysetPage<Blog> blogPage = blogService.getBlogs(0L, 20);
+		assertNotNull(blogPage);
+		assertFalse(blogPage.hasNext());
+		List<Blog> actualBlogs = blogPage.getItems();
 		assertNotNull(actualBlogs);
 		assertEquals(2, actualBlogs.size());
 		assertNotNull(actualBlogs.get(0));
@@ -95,6 +187,134 @@ public class BlogServiceTest {
 		assertEquals(expectedBlogRecordB.getLastModifiedDate().getTime(), actualBlogs.get(1).getLastModifiedEpoch());
 	}
 
+	@Test
+	public void whenGetBlogs_withMoreBlogsThanLimit_returnFirstPageWithNext() {
+
+		BlogRecord expectedBlogRecordA = mock(BlogRecord.class);
+		when(expectedBlogRecordA.getId()).thenReturn(1L);
+		when(expectedBlogRecordA.getVersion()).thenReturn(0L);
+		when(expectedBlogRecordA.getCreatedDate()).thenReturn(new Date());
+		when(expectedBlogRecordA.getLastModifiedDate()).thenReturn(new Date());
+		BlogRecord expectedBlogRecordB = mock(BlogRecord.class);
+		when(expectedBlogRecordB.getId()).thenReturn(2L);
+		when(expectedBlogRecordB.getVersion()).thenReturn(0L);
+		when(expectedBlogRecordB.getCreatedDate()).thenReturn(new Date());
+		when(expectedBlogRecordB.getLastModifiedDate()).thenReturn(new Date());
+		when(blogRepository.findByIdGreaterThanOrderByIdAsc(0L, new PageRequest(0, 2)))
+				.thenReturn(Arrays.asList(expectedBlogRecordA, expectedBlogRecordB));
+
+		KeysetPage<Blog> blogPage = blogService.getBlogs(0L, 1);
+		assertNotNull(blogPage);
+		assertTrue(blogPage.hasNext());
+		assertEquals(1, blogPage.getItems().size());
+		assertEquals(expectedBlogRecordA.getId().longValue(), blogPage.getItems().get(0).getId());
+	}
+
+	@Test(expected = ConstraintViolationException.class)
+	public void whenGetBlogs_withInvalidLimit_throwConstraintViolationException() {
+		blogService.getBlogs(0L, 0);
+	}
+
+	@Test
+	public void whenGetBlogSummaries_inNonemptyBlogRepository_returnBlogSummaries() {
+
+		BlogSummaryRecord expectedBlogSummaryRecordA = new BlogSummaryRecord(1L, "TitleA", new Date(), new Date());
+		BlogSummaryRecord expectedBlogSummaryRecordB = new BlogSummaryRecord(2L, "TitleB", new Date(), new Date());
+		when(blogRepository.findSummariesByIdGreaterThan(0L, new PageRequest(0, 2)))
+				.thenReturn(Arrays.asList(expectedBlogSummaryRecordA, expectedBlogSummaryRecordB));
+
+		KeysetPage<BlogSummary> blogSummaryPage = blogService.getBlogSummaries(0L, 1);
+		assertNotNull(blogSummaryPage);
+		assertTrue(blogSummaryPage.hasNext());
+		assertEquals(1, blogSummaryPage.getItems().size());
+		BlogSummary actualBlogSummary = blogSummaryPage.getItems().get(0);
+		assertEquals(expectedBlogSummaryRecordA.getId().longValue(), actualBlogSummary.getId());
+		assertEquals(expectedBlogSummaryRecordA.getTitle(), actualBlogSummary.getTitle());
+		assertEquals(expectedBlogSummaryRecordA.getCreatedDate().getTime(), actualBlogSummary.getCreatedEpoch());
+		assertEquals(expectedBlogSummaryRecordA.getLastModifiedDate().getTime(), actualBlogSummary.getLastModifiedEpoch());
+	}
+
+	@Test
+	public void whenExportBlogs_inNonemptyBlogRepository_consumeAndDetachBlogs() {
+
+		BlogRecord expectedBlogRecordA = mock(BlogRecord.class);
+		when(expectedBlogRecordA.getId()).thenReturn(1L);
+		when(expectedBlogRecordA.getVersion()).thenReturn(0L);
+		when(expectedBlogRecordA.getCreatedDate()).thenReturn(new Date());
+		when(expectedBlogRecordA.getLastModifiedDate()).thenReturn(new Date());
+		BlogRecord expectedBlogRecordB = mock(BlogRecord.class);
+		when(expectedBlogRecordB.getId()).thenReturn(2L);
+		when(expectedBlogRecordB.getVersion()).thenReturn(0L);
+		when(expectedBlogRecordB.getCreatedDate()).thenReturn(new Date());
+		when(expectedBlogRecordB.getLastModifiedDate()).thenReturn(new Date());
+		when(blogRepository.streamAll()).thenReturn(Stream.of(expectedBlogRecordA, expectedBlogRecordB));
+
+		List<Blog> actualBlogs = new ArrayList<>();
+		blogService.exportBlogs(actualBlogs::add);
+		assertEquals(2, actualBlogs.size());
+		assertEquals(expectedBlogRecordA.getId().longValue(), actualBlogs.get(0).getId());
+		assertEquals(expectedBlogRecordB.getId().longValue(), actualBlogs.get(1).getId());
+		verify(blogRepository).detach(expectedBlogRecordA);
+		verify(blogRepository).detach(expectedBlogRecordB);
+	}
+
+	@Test
+	public void whenBuildSearchIndex_inNonemptyBlogRepository_indexBlogs() {
+
+		BlogRecord expectedBlogRecord = mock(BlogRecord.class);
+		when(expectedBlogRecord.getId()).thenReturn(1L);
+		when(expectedBlogRecord.getTitle()).thenReturn("Caching");
+		when(expectedBlogRecord.getContent()).thenReturn("Caffeine cache");
+		when(expectedBlogRecord.getVersion()).thenReturn(0L);
+		when(expectedBlogRecord.getCreatedDate()).thenReturn(new Date());
+		when(expectedBlogRecord.getLastModifiedDate()).thenReturn(new Date());
+		when(blogRepository.streamAll()).thenReturn(Stream.of(expectedBlogRecord));
+		when(blogRepository.findAll(Arrays.asList(1L))).thenReturn(Arrays.asList(expectedBlogRecord));
+
+		blogService.buildSearchIndex();
+		KeysetPage<Blog> actualBlogPage = blogService.searchBlogs("caffeine", 0, 20);
+		assertEquals(1, actualBlogPage.getItems().size());
+		assertEquals(1L, actualBlogPage.getItems().get(0).getId());
+		assertFalse(actualBlogPage.hasNext());
+	}
+
+	@Test
+	public void whenSearchBlogs_afterCreateAndDeleteBlog_returnOnlyExistingBlogs() {
+
+		BlogRecord expectedBlogRecord = mock(BlogRecord.class);
+		when(expectedBlogRecord.getId()).thenReturn(1L);
+		when(expectedBlogRecord.getTitle()).thenReturn("Title");
+		when(expectedBlogRecord.getContent()).thenReturn("Searchable content");
+		when(expectedBlogRecord.getVersion()).thenReturn(0L);
+		when(expectedBlogRecord.getCreatedDate()).thenReturn(new Date());
+		when(expectedBlogRecord.getLastModifiedDate()).thenReturn(new Date());
+		when(blogRepository.save(any(BlogRecord.class))).thenReturn(expectedBlogRecord);
+		when(blogRepository.findAll(Arrays.asList(1L))).thenReturn(Arrays.asList(expectedBlogRecord));
+
+		blogService.createBlog(new Blog("Title", "Searchable content"));
+		assertEquals(1, blogService.searchBlogs("searchable", 0, 20).getItems().size());
+
+		when(blogRepository.findOne(1L)).thenReturn(expectedBlogRecord);
+		doNothing().when(blogRepository).delete(expectedBlogRecord);
+		blogService.deleteBlog(1L);
+		assertTrue(blogService.searchBlogs("searchable", 0, 20).getItems().isEmpty());
+	}
+
+	@Test
+	public void whenSearchBlogs_withInvalidArguments_throwConstraintViolationException() {
+		for (Runnable search : Arrays.<Runnable>asList(
+				() -> blogService.searchBlogs(" ", 0, 20),
+				() -> blogService.searchBlogs("query", -1, 20),
+				() -> blogService.searchBlogs("query", BlogService.MAX_SEARCH_OFFSET + 1, 20),
+				() -> blogService.searchBlogs("query", 0, 0))) {
+			try {
+				search.run();
+				fail();
+			} catch (ConstraintViolationException e) {
+			}
+		}
+	}
+
 	@Test(expected = IllegalArgumentException.class)
 	public void whenGetBlog_withInvalidBlogId_throwIllegalArgumentException() {
 		when(blogRepository.findOne(1L)).thenReturn(null);
@@ -108,6 +328,7 @@ public class BlogServiceTest {
 		when(expectedBlogRecord.getId()).thenReturn(1L);
 		when(expectedBlogRecord.getTitle()).thenReturn("Title");
 		when(expectedBlogRecord.getContent()).thenReturn("Content");
+		when(expectedBlogRecord.getVersion()).thenReturn(0L);
 		when(expectedBlogRecord.getCreatedDate()).thenReturn(new Date());
 		when(expectedBlogRecord.getLastModifiedDate()).thenReturn(new Date());
 		when(blogRepository.findOne(expectedBlogRecord.getId())).thenReturn(expectedBlogRecord);
@@ -121,6 +342,374 @@ public class BlogServiceTest {
 		assertEquals(expectedBlogRecord.getLastModifiedDate().getTime(), actualBlog.getLastModifiedEpoch());
 	}
 
+	@Test
+	public void whenGetBlog_withCachedBlogId_returnBlogWithoutRepository() {
+
+		BlogRecord expectedBlogRecord = mock(BlogRecord.class);
+		when(expectedBlogRecord.getId()).thenReturn(1L);
+		when(expectedBlogRecord.getTitle()).thenReturn("Title");
+		when(expectedBlogRecord.getContent()).thenReturn("Content");
+		when(expectedBlogRecord.getVersion()).thenReturn(0L);
+		when(expectedBlogRecord.getCreatedDate()).thenReturn(new Date());
+		when(expectedBlogRecord.getLastModifiedDate()).thenReturn(new Date());
+		when(blogRepository.findOne(1L)).thenReturn(expectedBlogRecord);
+
+		Blog firstBlog = blogService.getBlog(1L);
+		Blog secondBlog = blogService.getBlog(1L);
+		assertEquals(firstBlog.getTitle(), secondBlog.getTitle());
+		verify(blogRepository, times(1)).findOne(1L);
+		assertEquals(1L, blogService.getBlogCacheStats().hitCount());
+		assertEquals(1L, blogService.getBlogCacheStats().missCount());
+		ArgumentCaptor<TransactionDefinition> transactionDefinitionCaptor =
+				ArgumentCaptor.forClass(TransactionDefinition.class);
+		verify(transactionManager, times(1)).getTransaction(transactionDefinitionCaptor.capture());
+		assertTrue(transactionDefinitionCaptor.getValue().isReadOnly());
+	}
+
+	@Test
+	public void whenGetBlog_withConcurrentMisses_loadBlogOnce() throws Exception {
+		BlogRecord expectedBlogRecord = mockBlogRecord(1L);
+		CountDownLatch loadStarted = new CountDownLatch(1);
+		CountDownLatch loadReleased = new CountDownLatch(1);
+		when(blogRepository.findOne(1L)).thenAnswer(invocation -> {
+			loadStarted.countDown();
+			loadReleased.await(5, TimeUnit.SECONDS);
+			return expectedBlogRecord;
+		});
+		List<FutureTask<Blog>> futures = new ArrayList<>();
+		futures.add(startThread(() -> blogService.getBlog(1L)).getKey());
+		assertTrue(loadStarted.await(5, TimeUnit.SECONDS));
+		List<Thread> waitingThreads = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			Map.Entry<FutureTask<Blog>, Thread> waitingRead = startThread(() -> blogService.getBlog(1L));
+			futures.add(waitingRead.getKey());
+			waitingThreads.add(waitingRead.getValue());
+		}
+		for (Thread waitingThread : waitingThreads) {
+			awaitBlocked(waitingThread);
+		}
+		assertEquals(1, blogService.getBlogLoader().getInFlightCount());
+		loadReleased.countDown();
+		for (FutureTask<Blog> future : futures) {
+			assertEquals(1L, future.get(5, TimeUnit.SECONDS).getId());
+		}
+		verify(blogRepository, times(1)).findOne(1L);
+		assertEquals(1L, blogService.getBlogLoader().getLoadCount());
+		assertEquals(3L, blogService.getBlogLoader().getCoalescedCount());
+	}
+
+	@Test
+	public void whenUpdateBlog_duringCachedLoad_keepUpdatedBlogInCache() throws Exception {
+		BlogRecord staleBlogRecord = mockBlogRecord(1L);
+		BlogRecord updatedBlogRecord = mockBlogRecord(1L);
+		when(updatedBlogRecord.getVersion()).thenReturn(1L);
+		CountDownLatch loadStarted = new CountDownLatch(1);
+		CountDownLatch loadReleased = new CountDownLatch(1);
+		when(blogRepository.findOne(1L)).thenAnswer(invocation -> {
+			if (loadStarted.getCount() == 0) {
+				return staleBlogRecord;
+			}
+			loadStarted.countDown();
+			loadReleased.await(5, TimeUnit.SECONDS);
+			return staleBlogRecord;
+		});
+		CountDownLatch updateSaved = new CountDownLatch(1);
+		when(blogRepository.saveAndFlush(staleBlogRecord)).thenAnswer(invocation -> {
+			updateSaved.countDown();
+			return updatedBlogRecord;
+		});
+		FutureTask<Blog> staleRead = startThread(() -> blogService.getBlog(1L)).getKey();
+		assertTrue(loadStarted.await(5, TimeUnit.SECONDS));
+		Map.Entry<FutureTask<Blog>, Thread> update =
+				startThread(() -> blogService.updateBlog(1L, null, new Blog("Title", "Content")));
+		assertTrue(updateSaved.await(5, TimeUnit.SECONDS));
+		// The update's put blocks on the key until the stale load completes.
+		awaitBlocked(update.getValue());
+		loadReleased.countDown();
+		assertEquals(0L, staleRead.get(5, TimeUnit.SECONDS).getVersion());
+		assertEquals(1L, update.getKey().get(5, TimeUnit.SECONDS).getVersion());
+		assertEquals(1L, blogService.getBlog(1L).getVersion());
+	}
+
+	@Test
+	public void whenGetBlog_withPrimaryRequired_bypassCachedBlog() {
+		BlogRecord expectedBlogRecord = mockBlogRecord(1L);
+		when(blogRepository.findOne(1L)).thenReturn(expectedBlogRecord);
+		blogService.getBlog(1L);
+		DataSourceRoutingContext.setPrimaryRequired(true);
+		try {
+			blogService.getBlog(1L);
+		} finally {
+			DataSourceRoutingContext.clear();
+		}
+		verify(blogRepository, times(2)).findOne(1L);
+	}
+
+	@Test
+	public void whenGetBlog_afterRecordBlogViews_returnBlogWithPendingViews() {
+		BlogRecord expectedBlogRecord = mockBlogRecord(1L);
+		when(blogRepository.findOne(1L)).thenReturn(expectedBlogRecord);
+		blogService.recordBlogView(1L);
+		blogService.recordBlogView(1L);
+		assertEquals(2L, blogService.getBlog(1L).getViewCount());
+		assertEquals(2L, blogService.getBlog(1L).getViewCount());
+		verify(blogRepository, times(1)).findOne(1L);
+	}
+
+	@Test
+	public void whenFlushBlogViews_afterRecordBlogViews_incrementViewCountsAndKeepCachedBlogs() {
+		BlogRecord expectedBlogRecord = mockBlogRecord(1L);
+		when(blogRepository.findOne(1L)).thenReturn(expectedBlogRecord);
+		blogService.getBlog(1L);
+		blogService.recordBlogView(1L);
+		blogService.recordBlogView(1L);
+		blogService.recordBlogView(2L);
+		Map<Long, Long> expectedViewCountDeltas = new HashMap<>();
+		expectedViewCountDeltas.put(1L, 2L);
+		expectedViewCountDeltas.put(2L, 1L);
+		Map<Long, Long> viewCounts = new HashMap<>();
+		viewCounts.put(1L, 5L);
+		viewCounts.put(2L, 1L);
+		when(blogRepository.incrementViewCounts(expectedViewCountDeltas)).thenReturn(viewCounts);
+
+		blogService.flushBlogViews();
+		verify(blogRepository).incrementViewCounts(expectedViewCountDeltas);
+		assertEquals(0L, blogService.getBlogViewCounter().getPendingViews(1L));
+		assertEquals(5L, blogService.getBlog(1L).getViewCount());
+		verify(blogRepository, times(1)).findOne(1L);
+	}
+
+	@Test
+	public void whenFlushBlogViews_withMoreFlushedBlogsThanCacheSize_evictCachedCopiesOfDroppedCount() {
+		BlogService targetBlogService = AopTestUtils.getUltimateTargetObject(blogService);
+		ReflectionTestUtils.setField(targetBlogService, "blogCacheMaximumSize", 1L);
+		blogService.initBlogViewCounter();
+		blogService.recordBlogView(1L);
+		blogService.recordBlogView(2L);
+		Map<Long, Long> viewCounts = new HashMap<>();
+		viewCounts.put(1L, 5L);
+		viewCounts.put(2L, 7L);
+		when(blogRepository.incrementViewCounts(any())).thenReturn(viewCounts);
+
+		blogService.flushBlogViews();
+		verify(blogRepository, times(1)).evictFromSecondLevelCache(any(Long.class));
+	}
+
+	@Test
+	public void whenFlushBlogViews_withFailedRepository_retryViewsOnNextFlush() {
+		blogService.recordBlogView(1L);
+		doThrow(new QueryTimeoutException("timeout")).when(blogRepository).incrementViewCounts(any());
+		blogService.flushBlogViews();
+		assertEquals(1L, blogService.getBlogViewCounter().getPendingViews(1L));
+
+		doReturn(Collections.singletonMap(1L, 1L)).when(blogRepository).incrementViewCounts(any());
+		blogService.flushBlogViews();
+		verify(blogRepository, times(2)).incrementViewCounts(Collections.singletonMap(1L, 1L));
+		assertEquals(0L, blogService.getBlogViewCounter().getPendingViews(1L));
+	}
+
+	@Test
+	public void whenRecordBlogView_withMaxPendingBlogsReached_flushBlogViewsOnScheduler() {
+		BlogService targetBlogService = AopTestUtils.getUltimateTargetObject(blogService);
+		ReflectionTestUtils.setField(targetBlogService, "maxPendingBlogViews", 2);
+		blogService.initBlogViewCounter();
+		List<String> threadNames = Collections.synchronizedList(new ArrayList<>());
+		doAnswer(invocation -> {
+			threadNames.add(Thread.currentThread().getName());
+			return Collections.emptyMap();
+		}).when(blogRepository).incrementViewCounts(any());
+
+		blogService.recordBlogView(1L);
+		blogService.recordBlogView(2L);
+		Map<Long, Long> expectedViewCountDeltas = new HashMap<>();
+		expectedViewCountDeltas.put(1L, 1L);
+		expectedViewCountDeltas.put(2L, 1L);
+		verify(blogRepository, timeout(1000)).incrementViewCounts(expectedViewCountDeltas);
+		assertFalse(threadNames.contains(Thread.currentThread().getName()));
+	}
+
+	@Test
+	public void whenGetBlogsByIds_afterRecordBlogViews_returnBlogsWithPendingViews() {
+		BlogRecord blogRecord = mockBlogRecord(1L);
+		when(blogRepository.findOne(1L)).thenReturn(blogRecord);
+		blogService.getBlog(1L);
+		blogService.recordBlogView(1L);
+
+		assertEquals(1L, blogService.getBlogsByIds(Collections.singletonList(1L)).get(0).getViewCount());
+		verify(blogRepository, never()).findAll(Collections.singletonList(1L));
+	}
+
+	@Test(expected = ConstraintViolationException.class)
+	public void whenGetBlogsByIds_withEmptyBlogIds_throwConstraintViolationException() {
+		blogService.getBlogsByIds(Collections.emptyList());
+	}
+
+	@Test
+	public void whenGetBlogsByIds_withMissingBlogIds_returnExistingBlogsInRequestOrder() {
+		BlogRecord firstBlogRecord = mockBlogRecord(1L);
+		BlogRecord thirdBlogRecord = mockBlogRecord(3L);
+		when(blogRepository.findAll(Arrays.asList(3L, 2L, 1L))).thenReturn(Arrays.asList(firstBlogRecord, thirdBlogRecord));
+
+		List<Blog> actualBlogs = blogService.getBlogsByIds(Arrays.asList(3L, 2L, 1L, 3L));
+		assertEquals(2, actualBlogs.size());
+		assertEquals(3L, actualBlogs.get(0).getId());
+		assertEquals(1L, actualBlogs.get(1).getId());
+	}
+
+	@Test
+	public void whenGetBlogsByIds_withCachedBlogIds_loadOnlyMissedBlogsFromRepository() {
+		BlogRecord firstBlogRecord = mockBlogRecord(1L);
+		BlogRecord secondBlogRecord = mockBlogRecord(2L);
+		when(blogRepository.findOne(1L)).thenReturn(firstBlogRecord);
+		when(blogRepository.findAll(Arrays.asList(2L))).thenReturn(Arrays.asList(secondBlogRecord));
+		blogService.getBlog(1L);
+
+		List<Blog> actualBlogs = blogService.getBlogsByIds(Arrays.asList(1L, 2L));
+		assertEquals(2, actualBlogs.size());
+		assertEquals(1L, actualBlogs.get(0).getId());
+		assertEquals(2L, actualBlogs.get(1).getId());
+		verify(blogRepository, times(1)).findAll(Arrays.asList(2L));
+		assertEquals(1L, blogService.getBlogCacheSize());
+	}
+
+	@Test
+	public void whenGetBlogsByIds_afterUpdateBlog_neverCacheBlogReadBeforeUpdate() {
+		BlogRecord staleBlogRecord = mockBlogRecord(1L);
+		when(blogRepository.findAll(Arrays.asList(1L))).thenReturn(Arrays.asList(staleBlogRecord));
+		BlogRecord updatedBlogRecord = mockBlogRecord(1L);
+		when(updatedBlogRecord.getVersion()).thenReturn(1L);
+		when(blogRepository.findOne(1L)).thenReturn(updatedBlogRecord);
+
+		blogService.getBlogsByIds(Arrays.asList(1L));
+		assertEquals(0L, blogService.getBlogCacheSize());
+		assertEquals(1L, blogService.getBlog(1L).getVersion());
+	}
+
+	@Test
+	public void whenGetBlogsByIds_withPrimaryRequired_bypassCachedBlogs() {
+		BlogRecord blogRecord = mockBlogRecord(1L);
+		when(blogRepository.findOne(1L)).thenReturn(blogRecord);
+		when(blogRepository.findAll(Arrays.asList(1L))).thenReturn(Arrays.asList(blogRecord));
+		blogService.getBlog(1L);
+		DataSourceRoutingContext.setPrimaryRequired(true);
+		try {
+			assertEquals(1, blogService.getBlogsByIds(Arrays.asList(1L)).size());
+		} finally {
+			DataSourceRoutingContext.clear();
+		}
+		verify(blogRepository, times(1)).findAll(Arrays.asList(1L));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void whenGetBlogVersion_withInvalidBlogId_throwIllegalArgumentException() {
+		when(blogRepository.findVersionById(1L)).thenReturn(null);
+		blogService.getBlogVersion(1L);
+	}
+
+	@Test
+	public void whenGetBlogVersion_withInvalidBlogId_throwBlogNotFoundExceptionWithoutStackTrace() {
+		when(blogRepository.findVersionById(1L)).thenReturn(null);
+		try {
+			blogService.getBlogVersion(1L);
+			fail();
+		} catch (BlogNotFoundException e) {
+			assertEquals(1L, e.getBlogId());
+			assertEquals("No blog with id: 1", e.getMessage());
+			assertEquals(0, e.getStackTrace().length);
+		}
+	}
+
+	@Test
+	public void whenGetBlogVersion_withValidBlogId_returnBlogVersionWithoutLoadingBlog() {
+		Date lastModifiedDate = new Date();
+		when(blogRepository.findVersionById(1L)).thenReturn(new BlogVersionRecord(3L, lastModifiedDate));
+		BlogVersion actualBlogVersion = blogService.getBlogVersion(1L);
+		assertEquals(3L, actualBlogVersion.getVersion());
+		assertEquals(lastModifiedDate.getTime(), actualBlogVersion.getLastModifiedEpoch());
+		verify(blogRepository, times(0)).findOne(1L);
+	}
+
+	@Test
+	public void whenGetBlogVersion_withCachedBlogId_returnBlogVersionWithoutRepository() {
+
+		BlogRecord expectedBlogRecord = mock(BlogRecord.class);
+		when(expectedBlogRecord.getId()).thenReturn(1L);
+		when(expectedBlogRecord.getTitle()).thenReturn("Title");
+		when(expectedBlogRecord.getContent()).thenReturn("Content");
+		when(expectedBlogRecord.getVersion()).thenReturn(0L);
+		when(expectedBlogRecord.getCreatedDate()).thenReturn(new Date());
+		when(expectedBlogRecord.getLastModifiedDate()).thenReturn(new Date());
+		when(blogRepository.findOne(1L)).thenReturn(expectedBlogRecord);
+
+		Blog cachedBlog = blogService.getBlog(1L);
+		BlogVersion actualBlogVersion = blogService.getBlogVersion(1L);
+		assertEquals(cachedBlog.getVersion(), actualBlogVersion.getVersion());
+		assertEquals(cachedBlog.getLastModifiedEpoch(), actualBlogVersion.getLastModifiedEpoch());
+		verify(blogRepository, times(0)).findVersionById(1L);
+		verify(transactionManager, times(1)).getTransaction(any(TransactionDefinition.class));
+	}
+
+	@Test
+	public void whenGetBlog_afterUpdateBlog_returnUpdatedBlogWithoutRepository() {
+
+		BlogRecord originalBlogRecord = mock(BlogRecord.class);
+		when(originalBlogRecord.getId()).thenReturn(1L);
+		when(originalBlogRecord.getTitle()).thenReturn("Title");
+		when(originalBlogRecord.getContent()).thenReturn("Content");
+		when(originalBlogRecord.getVersion()).thenReturn(0L);
+		when(originalBlogRecord.getCreatedDate()).thenReturn(new Date());
+		when(originalBlogRecord.getLastModifiedDate()).thenReturn(new Date());
+		BlogRecord updatedBlogRecord = mock(BlogRecord.class);
+		when(updatedBlogRecord.getId()).thenReturn(1L);
+		when(updatedBlogRecord.getTitle()).thenReturn("New Title");
+		when(updatedBlogRecord.getContent()).thenReturn("New Content");
+		when(updatedBlogRecord.getVersion()).thenReturn(0L);
+		when(updatedBlogRecord.getCreatedDate()).thenReturn(new Date());
+		when(updatedBlogRecord.getLastModifiedDate()).thenReturn(new Date());
+		when(blogRepository.findOne(1L)).thenReturn(originalBlogRecord);
+		when(blogRepository.saveAndFlush(any(BlogRecord.class))).thenReturn(updatedBlogRecord);
+
+		blogService.getBlog(1L);
+		blogService.updateBlog(1L, null, new Blog("New Title", "New Content"));
+		Blog actualBlog = blogService.getBlog(1L);
+		assertEquals(updatedBlogRecord.getTitle(), actualBlog.getTitle());
+		assertEquals(updatedBlogRecord.getContent(), actualBlog.getContent());
+		verify(blogRepository, times(2)).findOne(1L);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void whenGetBlog_afterDeleteBlog_throwIllegalArgumentException() {
+
+		BlogRecord expectedBlogRecord = mock(BlogRecord.class);
+		when(expectedBlogRecord.getId()).thenReturn(1L);
+		when(expectedBlogRecord.getVersion()).thenReturn(0L);
+		when(expectedBlogRecord.getCreatedDate()).thenReturn(new Date());
+		when(expectedBlogRecord.getLastModifiedDate()).thenReturn(new Date());
+		when(blogRepository.findOne(1L)).thenReturn(expectedBlogRecord);
+		blogService.getBlog(1L);
+
+		doNothing().when(blogRepository).delete(expectedBlogRecord);
+		blogService.deleteBlog(1L);
+		when(blogRepository.findOne(1L)).thenReturn(null);
+		blogService.getBlog(1L);
+	}
+
+	@Test
+	public void whenGetBlog_afterDeleteBlogs_loadBlogFromRepository() {
+
+		BlogRecord expectedBlogRecord = mock(BlogRecord.class);
+		when(expectedBlogRecord.getId()).thenReturn(1L);
+		when(expectedBlogRecord.getVersion()).thenReturn(0L);
+		when(expectedBlogRecord.getCreatedDate()).thenReturn(new Date());
+		when(expectedBlogRecord.getLastModifiedDate()).thenReturn(new Date());
+		when(blogRepository.findOne(1L)).thenReturn(expectedBlogRecord);
+		blogService.getBlog(1L);
+
+		blogService.deleteBlogs(Arrays.asList(1L));
+		blogService.getBlog(1L);
+		verify(blogRepository, times(2)).findOne(1L);
+	}
+
 	@Test(expected = ConstraintViolationException.class)
 	public void whenCreateBlog_withNullBlog_throwConstraintViolationException() {
 		blogService.createBlog(null);
@@ -153,6 +742,7 @@ public class BlogServiceTest {
 		when(expectedBlogRecord.getId()).thenReturn(1L);
 		when(expectedBlogRecord.getTitle()).thenReturn("Title");
 		when(expectedBlogRecord.getContent()).thenReturn("Content");
+		when(expectedBlogRecord.getVersion()).thenReturn(0L);
 		when(expectedBlogRecord.getCreatedDate()).thenReturn(new Date());
 		when(expectedBlogRecord.getLastModifiedDate()).thenReturn(new Date());
 		when(blogRepository.save(any(BlogRecord.class))).thenReturn(expectedBlogRecord);
@@ -166,10 +756,50 @@ public class BlogServiceTest {
 		assertEquals(expectedBlogRecord.getLastModifiedDate().getTime(), actualBlog.getLastModifiedEpoch());
 	}
 
+	@Test(expected = ConstraintViolationException.class)
+	public void whenCreateBlogs_withEmptyBlogs_throwConstraintViolationException() {
+		blogService.createBlogs(Collections.emptyList());
+	}
+
+	@Test(expected = ConstraintViolationException.class)
+	public void whenCreateBlogs_withInvalidBlog_throwConstraintViolationException() {
+		blogService.createBlogs(Arrays.asList(new Blog("Title", "Content"), new Blog(" ", "Content")));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void whenCreateBlogs_withValidBlogs_returnBlogs() {
+
+		BlogRecord expectedBlogRecordA = mock(BlogRecord.class);
+		when(expectedBlogRecordA.getId()).thenReturn(1L);
+		when(expectedBlogRecordA.getTitle()).thenReturn("TitleA");
+		when(expectedBlogRecordA.getContent()).thenReturn("ContentA");
+		when(expectedBlogRecordA.getVersion()).thenReturn(0L);
+		when(expectedBlogRecordA.getCreatedDate()).thenReturn(new Date());
+		when(expectedBlogRecordA.getLastModifiedDate()).thenReturn(new Date());
+		BlogRecord expectedBlogRecordB = mock(BlogRecord.class);
+		when(expectedBlogRecordB.getId()).thenReturn(2L);
+		when(expectedBlogRecordB.getTitle()).thenReturn("TitleB");
+		when(expectedBlogRecordB.getContent()).thenReturn("ContentB");
+		when(expectedBlogRecordB.getVersion()).thenReturn(0L);
+		when(expectedBlogRecordB.getCreatedDate()).thenReturn(new Date());
+		when(expectedBlogRecordB.getLastModifiedDate()).thenReturn(new Date());
+		when(blogRepository.save(any(Iterable.class))).thenReturn(Arrays.asList(expectedBlogRecordA, expectedBlogRecordB));
+
+		List<Blog> actualBlogs = blogService.createBlogs(
+				Arrays.asList(new Blog("TitleA", "ContentA"), new Blog("TitleB", "ContentB")));
+		assertNotNull(actualBlogs);
+		assertEquals(2, actualBlogs.size());
+		assertEquals(expectedBlogRecordA.getId().longValue(), actualBlogs.get(0).getId());
+		assertEquals(expectedBlogRecordA.getTitle(), actualBlogs.get(0).getTitle());
+		assertEquals(expectedBlogRecordB.getId().longValue(), actualBlogs.get(1).getId());
+		assertEquals(expectedBlogRecordB.getTitle(), actualBlogs.get(1).getTitle());
+	}
+
 	@Test(expected = ConstraintViolationException.class)
 	public void whenUpdateBlog_withInvalidBlogIdAndNullBlog_throwConstraintViolationException() {
 		when(blogRepository.findOne(1L)).thenReturn(null);
-		blogService.updateBlog(1L, null);
+		blogService.updateBlog(1L, null, null);
 	}
 
 	@Test(expected = ConstraintViolationException.class)
@@ -188,7 +818,7 @@ public class BlogServiceTest {
 		for (String title : titles) {
 			for (String content : contents) {
 				if (!validTitle.equals(title) || !validContent.equals(content)) {
-					blogService.updateBlog(1L, new Blog(title, content));
+					blogService.updateBlog(1L, null, new Blog(title, content));
 				}
 			}
 		}
@@ -197,7 +827,7 @@ public class BlogServiceTest {
 	@Test(expected = IllegalArgumentException.class)
 	public void whenUpdateBlog_withInvalidBlogIdAndValidBlog_throwIllegalArgumentException() {
 		when(blogRepository.findOne(1L)).thenReturn(null);
-		blogService.updateBlog(1L, new Blog("Title", "Content"));
+		blogService.updateBlog(1L, null, new Blog("Title", "Content"));
 	}
 
 	@Test(expected = ConstraintViolationException.class)
@@ -206,10 +836,11 @@ public class BlogServiceTest {
 		when(expectedBlogRecord.getId()).thenReturn(1L);
 		when(expectedBlogRecord.getTitle()).thenReturn("Title");
 		when(expectedBlogRecord.getContent()).thenReturn("Content");
+		when(expectedBlogRecord.getVersion()).thenReturn(0L);
 		when(expectedBlogRecord.getCreatedDate()).thenReturn(new Date());
 		when(expectedBlogRecord.getLastModifiedDate()).thenReturn(new Date());
 		when(blogRepository.findOne(1L)).thenReturn(expectedBlogRecord);
-		blogService.updateBlog(1L, null);
+		blogService.updateBlog(1L, null, null);
 	}
 
 	@Test(expected = ConstraintViolationException.class)
@@ -222,6 +853,7 @@ public class BlogServiceTest {
 		when(expectedBlogRecord.getId()).thenReturn(1L);
 		when(expectedBlogRecord.getTitle()).thenReturn(validContent);
 		when(expectedBlogRecord.getContent()).thenReturn(validContent);
+		when(expectedBlogRecord.getVersion()).thenReturn(0L);
 		when(expectedBlogRecord.getCreatedDate()).thenReturn(new Date());
 		when(expectedBlogRecord.getLastModifiedDate()).thenReturn(new Date());
 		when(blogRepository.findOne(1L)).thenReturn(expectedBlogRecord);
@@ -234,7 +866,7 @@ public class BlogServiceTest {
 		for (String title : titles) {
 			for (String content : contents) {
 				if (!validTitle.equals(title) || !validContent.equals(content)) {
-					blogService.updateBlog(1L, new Blog(title, content));
+					blogService.updateBlog(1L, null, new Blog(title, content));
 				}
 			}
 		}
@@ -247,18 +879,20 @@ public class BlogServiceTest {
 		when(originalBlogRecord.getId()).thenReturn(1L);
 		when(originalBlogRecord.getTitle()).thenReturn("Title");
 		when(originalBlogRecord.getContent()).thenReturn("Content");
+		when(originalBlogRecord.getVersion()).thenReturn(0L);
 		when(originalBlogRecord.getCreatedDate()).thenReturn(new Date());
 		when(originalBlogRecord.getLastModifiedDate()).thenReturn(new Date());
 		BlogRecord updatedBlogRecord = mock(BlogRecord.class);
 		when(updatedBlogRecord.getId()).thenReturn(1L);
 		when(updatedBlogRecord.getTitle()).thenReturn("New Title");
 		when(updatedBlogRecord.getContent()).thenReturn("New Content");
+		when(updatedBlogRecord.getVersion()).thenReturn(0L);
 		when(updatedBlogRecord.getCreatedDate()).thenReturn(new Date());
 		when(updatedBlogRecord.getLastModifiedDate()).thenReturn(new Date());
 		when(blogRepository.findOne(1L)).thenReturn(originalBlogRecord);
-		when(blogRepository.save(any(BlogRecord.class))).thenReturn(updatedBlogRecord);
+		when(blogRepository.saveAndFlush(any(BlogRecord.class))).thenReturn(updatedBlogRecord);
 
-		Blog actualBlog = blogService.updateBlog(1L, new Blog("New Title", "New Content"));
+		Blog actualBlog = blogService.updateBlog(1L, null, new Blog("New Title", "New Content"));
 		assertNotNull(actualBlog);
 		assertEquals(updatedBlogRecord.getId().longValue(), actualBlog.getId());
 		assertEquals(updatedBlogRecord.getTitle(), actualBlog.getTitle());
@@ -267,16 +901,200 @@ public class BlogServiceTest {
 		assertEquals(updatedBlogRecord.getLastModifiedDate().getTime(), actualBlog.getLastModifiedEpoch());
 	}
 
+	@Test
+	public void whenUpdateBlog_withStaleExpectedVersion_throwOptimisticLockingFailureException() {
+
+		BlogRecord originalBlogRecord = mock(BlogRecord.class);
+		when(originalBlogRecord.getVersion()).thenReturn(4L);
+		when(blogRepository.findOne(1L)).thenReturn(originalBlogRecord);
+
+		try {
+			blogService.updateBlog(1L, 3L, new Blog("New Title", "New Content"));
+			fail();
+		} catch (OptimisticLockingFailureException e) {
+			verify(blogRepository, times(0)).saveAndFlush(any(BlogRecord.class));
+		}
+	}
+
+	@Test
+	public void whenUpdateBlog_withMatchingExpectedVersion_returnUpdatedBlog() {
+
+		BlogRecord originalBlogRecord = mock(BlogRecord.class);
+		when(originalBlogRecord.getVersion()).thenReturn(3L);
+		BlogRecord updatedBlogRecord = mock(BlogRecord.class);
+		when(updatedBlogRecord.getId()).thenReturn(1L);
+		when(updatedBlogRecord.getTitle()).thenReturn("New Title");
+		when(updatedBlogRecord.getContent()).thenReturn("New Content");
+		when(updatedBlogRecord.getVersion()).thenReturn(4L);
+		when(updatedBlogRecord.getCreatedDate()).thenReturn(new Date());
+		when(updatedBlogRecord.getLastModifiedDate()).thenReturn(new Date());
+		when(blogRepository.findOne(1L)).thenReturn(originalBlogRecord);
+		when(blogRepository.saveAndFlush(any(BlogRecord.class))).thenReturn(updatedBlogRecord);
+
+		Blog actualBlog = blogService.updateBlog(1L, 3L, new Blog("New Title", "New Content"));
+		assertEquals(4L, actualBlog.getVersion());
+	}
+
 	@Test(expected = IllegalArgumentException.class)
 	public void whenDeleteBlog_withInvalidBlogId_throwIllegalArgumentException() {
-		doThrow(EmptyResultDataAccessException.class).when(blogRepository).delete(1L);
+		when(blogRepository.findOne(1L)).thenReturn(null);
 		blogService.deleteBlog(1L);
 	}
 
 	@Test
 	public void whenDeleteBlog_withValidBlogId_deleteBlog() {
-		doNothing().when(blogRepository).delete(1L);
+		BlogRecord blogRecord = mock(BlogRecord.class);
+		when(blogRepository.findOne(1L)).thenReturn(blogRecord);
+		doNothing().when(blogRepository).delete(blogRecord);
 		blogService.deleteBlog(1L);
+		verify(blogRepository, times(1)).delete(blogRecord);
+	}
+
+	@Test(expected = ConstraintViolationException.class)
+	public void whenPatchBlogs_withEmptyBlogIds_throwConstraintViolationException() {
+		blogService.patchBlogs(Collections.emptyList(), new BlogPatch("Title", null));
+	}
+
+	@Test(expected = ConstraintViolationException.class)
+	public void whenPatchBlogs_withInvalidBlogPatch_throwConstraintViolationException() {
+		blogService.patchBlogs(Arrays.asList(1L), new BlogPatch(" ", null));
+	}
+
+	@Test
+	public void whenPatchBlogs_withValidBlogPatch_returnAffectedCount() {
+		when(blogRepository.updateByIds(eq(Arrays.asList(1L, 2L)), eq(null), eq("[removed]"), any(Date.class)))
+				.thenReturn(2);
+		assertEquals(2, blogService.patchBlogs(Arrays.asList(1L, 2L), new BlogPatch(null, "[removed]")));
+	}
+
+	@Test
+	public void whenPatchBlogs_inTransaction_loadPatchedBlogsBeforeCommitAndPublishAfter() {
+		BlogRecord patchedBlogRecord = mockBlogRecord(1L);
+		when(blogRepository.findAll(Arrays.asList(1L))).thenReturn(Arrays.asList(patchedBlogRecord));
+		TransactionSynchronizationManager.initSynchronization();
+		try {
+			blogService.patchBlogs(Arrays.asList(1L), new BlogPatch("Title", null));
+			verify(blogRepository).findAll(Arrays.asList(1L));
+			assertTrue(blogEventRecorder.blogEvents.isEmpty());
+
+			when(blogRepository.findAll(Arrays.asList(1L))).thenThrow(new QueryTimeoutException("timeout"));
+			TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+		} finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+		assertEquals(1, blogEventRecorder.blogEvents.size());
+		assertEquals(BlogEventType.UPDATED, blogEventRecorder.blogEvents.get(0).getType());
+		assertEquals("Title 1", blogEventRecorder.blogEvents.get(0).getBlog().getTitle());
+	}
+
+	@Test(expected = ConstraintViolationException.class)
+	public void whenDeleteBlogs_withEmptyBlogIds_throwConstraintViolationException() {
+		blogService.deleteBlogs(Collections.emptyList());
+	}
+
+	@Test
+	public void whenDeleteBlogs_withValidBlogIds_returnAffectedCount() {
+		when(blogRepository.deleteByIds(Arrays.asList(1L, 2L))).thenReturn(1);
+		assertEquals(1, blogService.deleteBlogs(Arrays.asList(1L, 2L)));
+	}
+
+	@Test
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public void whenDeleteBlogs_withValidBlogIds_saveTombstonesOfExistingBlogs() {
+		when(blogRepository.findIdsByIdsForUpdate(Arrays.asList(1L, 2L))).thenReturn(Arrays.asList(2L));
+		when(blogRepository.deleteByIds(Arrays.asList(1L, 2L))).thenReturn(1);
+		blogService.deleteBlogs(Arrays.asList(1L, 2L));
+
+		ArgumentCaptor<Iterable<BlogTombstoneRecord>> tombstonesCaptor = ArgumentCaptor.forClass((Class) Iterable.class);
+		verify(blogTombstoneRepository).save(tombstonesCaptor.capture());
+		List<BlogTombstoneRecord> blogTombstoneRecords = new ArrayList<>();
+		tombstonesCaptor.getValue().forEach(blogTombstoneRecords::add);
+		assertEquals(1, blogTombstoneRecords.size());
+		assertEquals(Long.valueOf(2L), blogTombstoneRecords.get(0).getBlogId());
+		assertNotNull(blogTombstoneRecords.get(0).getDeletedDate());
+	}
+
+	@Test
+	public void whenDeleteBlogs_withValidBlogIds_publishDeletedEventsOfExistingBlogs() {
+		when(blogRepository.findIdsByIdsForUpdate(Arrays.asList(1L, 2L))).thenReturn(Arrays.asList(2L));
+		blogService.deleteBlogs(Arrays.asList(1L, 2L));
+		assertEquals(1, blogEventRecorder.blogEvents.size());
+		assertEquals(BlogEventType.DELETED, blogEventRecorder.blogEvents.get(0).getType());
+		assertEquals(2L, blogEventRecorder.blogEvents.get(0).getBlogId());
+	}
+
+	@Test
+	public void whenCreateBlog_withValidBlog_publishCreatedEvent() {
+		BlogRecord expectedBlogRecord = mockBlogRecord(1L);
+		when(blogRepository.save(any(BlogRecord.class))).thenReturn(expectedBlogRecord);
+		Blog createdBlog = blogService.createBlog(new Blog("Title 1", "Content"));
+		assertEquals(1, blogEventRecorder.blogEvents.size());
+		assertEquals(BlogEventType.CREATED, blogEventRecorder.blogEvents.get(0).getType());
+		assertEquals(1L, blogEventRecorder.blogEvents.get(0).getBlogId());
+		assertEquals(createdBlog, blogEventRecorder.blogEvents.get(0).getBlog());
+	}
+
+	@Test
+	public void whenDeleteBlog_withValidBlogId_saveTombstone() {
+		BlogRecord expectedBlogRecord = mockBlogRecord(1L);
+		when(blogRepository.findOne(1L)).thenReturn(expectedBlogRecord);
+		blogService.deleteBlog(1L);
+
+		ArgumentCaptor<BlogTombstoneRecord> tombstoneCaptor = ArgumentCaptor.forClass(BlogTombstoneRecord.class);
+		verify(blogTombstoneRepository).save(tombstoneCaptor.capture());
+		assertEquals(Long.valueOf(1L), tombstoneCaptor.getValue().getBlogId());
+	}
+
+	@Test
+	public void whenGetBlogChanges_withMoreChangesThanLimit_returnPositionOfLastChange() {
+
+		BlogRecord expectedBlogRecordA = mockBlogRecord(1L);
+		BlogRecord expectedBlogRecordB = mockBlogRecord(2L);
+		Date deletedDate = new Date(1000L);
+		when(blogRepository.findModifiedAfter(any(Date.class), eq(Long.MAX_VALUE), any(Date.class), any(Pageable.class)))
+				.thenReturn(Arrays.asList(expectedBlogRecordA, expectedBlogRecordB));
+		when(blogTombstoneRepository.findDeletedAfter(any(Date.class), eq(Long.MAX_VALUE), any(Date.class), any(Pageable.class)))
+				.thenReturn(Arrays.asList(new BlogTombstoneRecord(3L, deletedDate)));
+
+		BlogChanges blogChanges = blogService.getBlogChanges(new BlogChangePosition(0L, Long.MAX_VALUE, 0L, Long.MAX_VALUE), 1);
+		assertTrue(blogChanges.hasNext());
+		assertEquals(1, blogChanges.getBlogs().size());
+		assertEquals(1L, blogChanges.getBlogs().get(0).getId());
+		assertEquals(Arrays.asList(3L), blogChanges.getDeletedBlogIds());
+		assertEquals(expectedBlogRecordA.getLastModifiedDate().getTime(), blogChanges.getPosition().getModifiedEpoch());
+		assertEquals(1L, blogChanges.getPosition().getModifiedBlogId());
+		assertTrue(blogChanges.getPosition().getDeletedEpoch() > deletedDate.getTime());
+		assertEquals(Long.MAX_VALUE, blogChanges.getPosition().getDeletedBlogId());
+	}
+
+	@Test
+	public void whenGetBlogChanges_withNoChanges_advancePositionToSettledTime() {
+
+		long now = System.currentTimeMillis();
+		long afterEpoch = now - TimeUnit.HOURS.toMillis(1);
+		BlogChanges blogChanges = blogService.getBlogChanges(new BlogChangePosition(afterEpoch, 5L, afterEpoch, 5L), 20);
+		assertFalse(blogChanges.hasNext());
+		assertTrue(blogChanges.getBlogs().isEmpty());
+		assertTrue(blogChanges.getDeletedBlogIds().isEmpty());
+		assertTrue(blogChanges.getPosition().getModifiedEpoch() > afterEpoch);
+		assertTrue(blogChanges.getPosition().getModifiedEpoch() < now);
+		assertEquals(Long.MAX_VALUE, blogChanges.getPosition().getModifiedBlogId());
+		assertEquals(blogChanges.getPosition().getModifiedEpoch(), blogChanges.getPosition().getDeletedEpoch());
+		assertEquals(Long.MAX_VALUE, blogChanges.getPosition().getDeletedBlogId());
+	}
+
+	@Test(expected = BlogChangesExpiredException.class)
+	public void whenGetBlogChanges_withPositionBeforeTombstoneRetention_throwBlogChangesExpiredException() {
+		long expiredEpoch = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(31);
+		blogService.getBlogChanges(new BlogChangePosition(expiredEpoch, 5L, expiredEpoch, 5L), 20);
+	}
+
+	@Test
+	public void whenGetBlogChanges_withPositionWithinTombstoneRetention_returnChanges() {
+		long retainedEpoch = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(29);
+		BlogChanges blogChanges = blogService.getBlogChanges(
+				new BlogChangePosition(retainedEpoch, 5L, retainedEpoch, 5L), 20);
+		assertFalse(blogChanges.hasNext());
 	}
 
 	private Set<String> getInvalidTitles() {
@@ -294,4 +1112,30 @@ public class BlogServiceTest {
 		String tooLongContent = new String(new char[10001]).replace("\0", "c");
 		return new HashSet<>(Arrays.asList(nullContent, emptyContent, blankContent, tooLongContent));
 	}
+
+	private <V> Map.Entry<FutureTask<V>, Thread> startThread(Callable<V> callable) {
+		FutureTask<V> future = new FutureTask<>(callable);
+		Thread thread = new Thread(future);
+		thread.start();
+		return new AbstractMap.SimpleImmutableEntry<>(future, thread);
+	}
+
+	private void awaitBlocked(Thread thread) {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (thread.getState() != Thread.State.BLOCKED && thread.getState() != Thread.State.WAITING) {
+			assertTrue(System.nanoTime() < deadline);
+			Thread.yield();
+		}
+	}
+
+	private BlogRecord mockBlogRecord(long blogId) {
+		BlogRecord blogRecord = mock(BlogRecord.class);
+		when(blogRecord.getId()).thenReturn(blogId);
+		when(blogRecord.getTitle()).thenReturn("Title " + blogId);
+		when(blogRecord.getContent()).thenReturn("Content");
+		when(blogRecord.getVersion()).thenReturn(0L);
+		when(blogRecord.getCreatedDate()).thenReturn(new Date());
+		when(blogRecord.getLastModifiedDate()).thenReturn(new Date());
+		return blogRecord;
+	}
 }
@@ -0,0 +1,111 @@
+package org.yifeng.spring.boot.blogservice.services.loaders;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class SingleFlightLoaderTest {
+
+	private static final int CALLER_COUNT = 8;
+
+	private final SingleFlightLoader<Long, String> singleFlightLoader = new SingleFlightLoader<>();
+	private final ExecutorService executorService = Executors.newFixedThreadPool(CALLER_COUNT);
+
+	@After
+	public void tearDown() {
+		executorService.shutdownNow();
+	}
+
+	@Test
+	public void whenLoad_withConcurrentCallsForSameKey_loadOnce() throws Exception {
+		AtomicInteger loaderCalls = new AtomicInteger();
+		List<Future<String>> results = loadConcurrently(key -> {
+			loaderCalls.incrementAndGet();
+			return "Blog " + key;
+		});
+		for (Future<String> result : results) {
+			assertEquals("Blog 1", result.get(5, TimeUnit.SECONDS));
+		}
+		assertEquals(1, loaderCalls.get());
+		assertEquals(1L, singleFlightLoader.getLoadCount());
+		assertEquals(CALLER_COUNT - 1, singleFlightLoader.getCoalescedCount());
+		assertEquals(0, singleFlightLoader.getInFlightCount());
+	}
+
+	@Test
+	public void whenLoad_withFailingLoader_throwSameExceptionToAllCallers() throws Exception {
+		IllegalArgumentException exception = new IllegalArgumentException("No blog with id: 1");
+		List<Future<String>> results = loadConcurrently(key -> {
+			throw exception;
+		});
+		for (Future<String> result : results) {
+			try {
+				result.get(5, TimeUnit.SECONDS);
+				fail();
+			} catch (ExecutionException e) {
+				assertSame(exception, e.getCause());
+			}
+		}
+		assertEquals(1L, singleFlightLoader.getLoadCount());
+		assertEquals(0, singleFlightLoader.getInFlightCount());
+	}
+
+	@Test
+	public void whenLoad_afterPreviousLoadCompleted_loadAgain() {
+		AtomicInteger loaderCalls = new AtomicInteger();
+		Function<Long, String> loader = key -> "Blog " + key + " v" + loaderCalls.incrementAndGet();
+		assertEquals("Blog 1 v1", singleFlightLoader.load(1L, loader));
+		assertEquals("Blog 1 v2", singleFlightLoader.load(1L, loader));
+		assertEquals(2L, singleFlightLoader.getLoadCount());
+		assertEquals(0L, singleFlightLoader.getCoalescedCount());
+	}
+
+	@Test
+	public void whenLoad_withDifferentKeys_loadEachKey() {
+		assertEquals("Blog 1", singleFlightLoader.load(1L, key -> "Blog " + key));
+		assertEquals("Blog 2", singleFlightLoader.load(2L, key -> "Blog " + key));
+		assertEquals(2L, singleFlightLoader.getLoadCount());
+	}
+
+	// Holds the first load open until every other caller has joined it, then releases it.
+	private List<Future<String>> loadConcurrently(Function<Long, String> loader) throws InterruptedException {
+		CountDownLatch loadStartedLatch = new CountDownLatch(1);
+		CountDownLatch releaseLatch = new CountDownLatch(1);
+		Function<Long, String> blockingLoader = key -> {
+			loadStartedLatch.countDown();
+			try {
+				releaseLatch.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return loader.apply(key);
+		};
+		List<Future<String>> results = new ArrayList<>();
+		results.add(executorService.submit(() -> singleFlightLoader.load(1L, blockingLoader)));
+		assertTrue(loadStartedLatch.await(5, TimeUnit.SECONDS));
+		for (int i = 1; i < CALLER_COUNT; i++) {
+			results.add(executorService.submit(() -> singleFlightLoader.load(1L, blockingLoader)));
+		}
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (singleFlightLoader.getCoalescedCount() < CALLER_COUNT - 1 && System.nanoTime() < deadline) {
+			Thread.sleep(1);
+		}
+		releaseLatch.countDown();
+		return results;
+	}
+}
@@ -0,0 +1,115 @@
+package org.yifeng.spring.boot.blogservice.services.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.yifeng.spring.boot.blogservice.services.models.KeysetPage;
+
+public class BlogSearchIndexTest {
+
+	private final BlogSearchIndex blogSearchIndex = new BlogSearchIndex();
+
+	@Test
+	public void whenSearch_inEmptyIndex_returnEmptyPage() {
+		KeysetPage<Long> actualPage = blogSearchIndex.search("anything", 0, 10);
+		assertTrue(actualPage.getItems().isEmpty());
+		assertFalse(actualPage.hasNext());
+	}
+
+	@Test
+	public void whenSearch_withQueryWithoutTokens_returnEmptyPage() {
+		blogSearchIndex.index(1L, "Title", "Content");
+		assertTrue(blogSearchIndex.search(" ,.- ", 0, 10).getItems().isEmpty());
+	}
+
+	@Test
+	public void whenSearch_withMatchingTerms_returnBlogIdsByRelevance() {
+		blogSearchIndex.index(1L, "Cooking", "A recipe with some cache mentioned once among many other words here");
+		blogSearchIndex.index(2L, "Caching", "Cache, cache and CACHE");
+		blogSearchIndex.index(3L, "Unrelated", "Nothing to see");
+		assertEquals(Arrays.asList(2L, 1L), blogSearchIndex.search("cache", 0, 10).getItems());
+		assertEquals(Arrays.asList(1L), blogSearchIndex.search("recipe", 0, 10).getItems());
+	}
+
+	@Test
+	public void whenSearch_withRareAndCommonTerms_rankRareTermHigher() {
+		blogSearchIndex.index(1L, "Post", "common words only");
+		blogSearchIndex.index(2L, "Post", "common rare");
+		blogSearchIndex.index(3L, "Post", "common words again");
+		assertEquals(Arrays.asList(2L, 1L, 3L), blogSearchIndex.search("common rare", 0, 10).getItems());
+	}
+
+	@Test
+	public void whenSearch_withCommonTermBeyondWindow_keepRankingOfMatchedBlogs() {
+		for (long blogId = 1L; blogId <= 100L; blogId++) {
+			blogSearchIndex.index(blogId, "Post", "common filler text");
+		}
+		blogSearchIndex.index(101L, "Post", "rare filler text filler");
+		blogSearchIndex.index(102L, "Post", "rare common filler text");
+		blogSearchIndex.index(103L, "Post", "rare common common filler");
+		assertEquals(Arrays.asList(103L, 102L, 101L), blogSearchIndex.search("rare common", 0, 3).getItems());
+		KeysetPage<Long> actualPage = blogSearchIndex.search("rare common", 0, 2);
+		assertEquals(Arrays.asList(103L, 102L), actualPage.getItems());
+		assertTrue(actualPage.hasNext());
+	}
+
+	@Test
+	public void whenSearch_withOffsetAndLimit_returnPagesWithNext() {
+		for (long blogId = 1L; blogId <= 5L; blogId++) {
+			blogSearchIndex.index(blogId, "Same", "same content");
+		}
+		KeysetPage<Long> firstPage = blogSearchIndex.search("same", 0, 2);
+		assertEquals(Arrays.asList(1L, 2L), firstPage.getItems());
+		assertTrue(firstPage.hasNext());
+		KeysetPage<Long> lastPage = blogSearchIndex.search("same", 4, 2);
+		assertEquals(Arrays.asList(5L), lastPage.getItems());
+		assertFalse(lastPage.hasNext());
+	}
+
+	@Test
+	public void whenSearch_withManyMatchedBlogs_returnEveryMatchOnce() {
+		for (long blogId = 1L; blogId <= 1000L; blogId++) {
+			blogSearchIndex.index(blogId, "Post", blogId % 2 == 0 ? "even content" : "odd content");
+		}
+		KeysetPage<Long> actualPage = blogSearchIndex.search("content even", 499, 10);
+		assertEquals(Arrays.asList(1000L, 1L, 3L, 5L, 7L, 9L, 11L, 13L, 15L, 17L), actualPage.getItems());
+		assertTrue(actualPage.hasNext());
+		assertFalse(blogSearchIndex.search("content even", 990, 10).hasNext());
+	}
+
+	@Test
+	public void whenIndex_withExistingBlogId_replaceIndexedTerms() {
+		blogSearchIndex.index(1L, "Title", "old words");
+		blogSearchIndex.index(1L, "Title", "new words");
+		assertTrue(blogSearchIndex.search("old", 0, 10).getItems().isEmpty());
+		assertEquals(Arrays.asList(1L), blogSearchIndex.search("new", 0, 10).getItems());
+		assertEquals(1, blogSearchIndex.size());
+	}
+
+	@Test
+	public void whenRemove_withIndexedBlogId_excludeBlogFromResults() {
+		blogSearchIndex.index(1L, "Title", "content");
+		blogSearchIndex.index(2L, "Title", "content");
+		blogSearchIndex.remove(1L);
+		blogSearchIndex.remove(3L);
+		assertEquals(Arrays.asList(2L), blogSearchIndex.search("content", 0, 10).getItems());
+	}
+
+	@Test
+	public void whenRemove_withManyBlogIds_compactAndKeepRemainingBlogs() {
+		for (long blogId = 1L; blogId <= 5000L; blogId++) {
+			blogSearchIndex.index(blogId, "Title", blogId % 2 == 0 ? "even" : "odd");
+		}
+		for (long blogId = 1L; blogId <= 4990L; blogId++) {
+			blogSearchIndex.remove(blogId);
+		}
+		assertEquals(10, blogSearchIndex.size());
+		assertEquals(Arrays.asList(4992L, 4994L, 4996L, 4998L, 5000L), blogSearchIndex.search("even", 0, 10).getItems());
+		blogSearchIndex.index(1L, "Title", "even");
+		assertEquals(6, blogSearchIndex.search("even", 0, 10).getItems().size());
+	}
+}
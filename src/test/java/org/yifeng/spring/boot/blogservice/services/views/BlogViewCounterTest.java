@@ -0,0 +1,156 @@
+package org.yifeng.spring.boot.blogservice.services.views;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class BlogViewCounterTest {
+
+	@Test
+	public void whenDrain_afterIncrements_returnViewDeltasPerBlog() {
+		BlogViewCounter blogViewCounter = new BlogViewCounter(10);
+		blogViewCounter.increment(1L);
+		blogViewCounter.increment(1L);
+		blogViewCounter.increment(2L);
+		assertEquals(2L, blogViewCounter.getPendingViews(1L));
+
+		Map<Long, Long> viewDeltas = blogViewCounter.drain();
+		assertEquals(2, viewDeltas.size());
+		assertEquals(Long.valueOf(2L), viewDeltas.get(1L));
+		assertEquals(Long.valueOf(1L), viewDeltas.get(2L));
+		assertEquals(2L, blogViewCounter.getPendingViews(1L));
+		blogViewCounter.completeDrain();
+		assertEquals(0L, blogViewCounter.getPendingViews(1L));
+		assertTrue(blogViewCounter.drain().isEmpty());
+	}
+
+	@Test
+	public void whenIncrement_withMaxPendingBlogsReached_returnTrue() {
+		BlogViewCounter blogViewCounter = new BlogViewCounter(2);
+		assertFalse(blogViewCounter.increment(1L));
+		assertTrue(blogViewCounter.increment(2L));
+		assertFalse(blogViewCounter.increment(2L));
+		blogViewCounter.drain();
+		assertEquals(0, blogViewCounter.getPendingBlogCount());
+		assertFalse(blogViewCounter.increment(3L));
+	}
+
+	@Test
+	public void whenIncrement_withFullPendingBlogs_dropViewsOfNewBlogs() {
+		BlogViewCounter blogViewCounter = new BlogViewCounter(2);
+		blogViewCounter.increment(1L);
+		blogViewCounter.increment(2L);
+		assertFalse(blogViewCounter.increment(3L));
+		blogViewCounter.increment(1L);
+
+		assertEquals(2, blogViewCounter.getPendingBlogCount());
+		assertEquals(0L, blogViewCounter.getPendingViews(3L));
+		assertEquals(2L, blogViewCounter.getPendingViews(1L));
+		assertEquals(3L, blogViewCounter.getRecordedCount());
+		assertEquals(1L, blogViewCounter.getDroppedCount());
+	}
+
+	@Test
+	public void whenRestore_withFullPendingBlogs_dropViewsOfBlogsThatDoNotFit() {
+		BlogViewCounter blogViewCounter = new BlogViewCounter(2);
+		blogViewCounter.increment(1L);
+		blogViewCounter.increment(1L);
+		blogViewCounter.increment(2L);
+		Map<Long, Long> viewDeltas = blogViewCounter.drain();
+		blogViewCounter.increment(3L);
+		blogViewCounter.increment(4L);
+		blogViewCounter.restore(viewDeltas);
+
+		assertEquals(2, blogViewCounter.getPendingBlogCount());
+		assertEquals(0L, blogViewCounter.getPendingViews(1L));
+		assertEquals(3L, blogViewCounter.getDroppedCount());
+		assertEquals(0L, blogViewCounter.getDrainedCount());
+	}
+
+	@Test
+	public void whenIncrement_withConcurrentNewBlogs_keepPendingBlogsWithinBound() throws Exception {
+		BlogViewCounter blogViewCounter = new BlogViewCounter(100);
+		int threadCount = 4;
+		ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+		CountDownLatch startLatch = new CountDownLatch(1);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int i = 0; i < threadCount; i++) {
+			long firstBlogId = i * 1000L;
+			futures.add(executorService.submit(() -> {
+				startLatch.await();
+				for (long blogId = firstBlogId; blogId < firstBlogId + 1000L; blogId++) {
+					blogViewCounter.increment(blogId);
+				}
+				return null;
+			}));
+		}
+		startLatch.countDown();
+		for (Future<?> future : futures) {
+			future.get(10, TimeUnit.SECONDS);
+		}
+		executorService.shutdown();
+
+		assertEquals(100, blogViewCounter.getPendingBlogCount());
+		assertEquals(100L, blogViewCounter.getRecordedCount());
+		assertEquals(threadCount * 1000L - 100L, blogViewCounter.getDroppedCount());
+	}
+
+	@Test
+	public void whenRestore_afterFailedDrain_returnViewDeltasOnNextDrain() {
+		BlogViewCounter blogViewCounter = new BlogViewCounter(10);
+		blogViewCounter.increment(1L);
+		blogViewCounter.restore(blogViewCounter.drain());
+		blogViewCounter.increment(1L);
+		assertEquals(Collections.singletonMap(1L, 2L), blogViewCounter.drain());
+		assertEquals(2L, blogViewCounter.getDrainedCount());
+	}
+
+	@Test
+	public void whenDrain_withConcurrentIncrements_loseNoViews() throws Exception {
+		BlogViewCounter blogViewCounter = new BlogViewCounter(Integer.MAX_VALUE);
+		int threadCount = 4;
+		int incrementsPerThread = 1000000;
+		ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
+		CountDownLatch startLatch = new CountDownLatch(1);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int i = 0; i < threadCount; i++) {
+			futures.add(executorService.submit(() -> {
+				startLatch.await();
+				for (int j = 0; j < incrementsPerThread; j++) {
+					blogViewCounter.increment(j % 16);
+				}
+				return null;
+			}));
+		}
+		Map<Long, Long> viewDeltas = new HashMap<>();
+		startLatch.countDown();
+		while (!futures.stream().allMatch(Future::isDone)) {
+			Thread.sleep(10);
+			blogViewCounter.drain().forEach((blogId, views) -> viewDeltas.merge(blogId, views, Long::sum));
+			blogViewCounter.completeDrain();
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		executorService.shutdown();
+		assertTrue(executorService.awaitTermination(10, TimeUnit.SECONDS));
+		blogViewCounter.drain().forEach((blogId, views) -> viewDeltas.merge(blogId, views, Long::sum));
+
+		assertEquals((long) threadCount * incrementsPerThread,
+				viewDeltas.values().stream().mapToLong(Long::longValue).sum());
+		assertEquals((long) threadCount * incrementsPerThread / 16, viewDeltas.get(0L).longValue());
+	}
+}